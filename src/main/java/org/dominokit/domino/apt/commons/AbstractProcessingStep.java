@@ -18,24 +18,58 @@ package org.dominokit.domino.apt.commons;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeSpec;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
 
 /**
  * A parent class for every {@link org.dominokit.domino.apt.commons.BaseProcessor.ProcessingStep}
  */
 public abstract class AbstractProcessingStep implements BaseProcessor.ProcessingStep {
 
+  private static final ThreadLocal<AbstractProcessingStep> RECORDING = new ThreadLocal<>();
+  private static final Map<Path, String[]> JAR_HASHES = new ConcurrentHashMap<>();
+
   protected final Messager messager;
   protected final Filer filer;
   protected final Types types;
   protected final Elements elements;
   protected final ProcessingEnvironment processingEnv;
   protected final ProcessorUtil processorUtil;
+  protected final GeneratedFilesRegistry generatedFiles;
+  protected final AggregatingResourceWriter aggregatingResources;
+  protected final SourceRenderer sourceRenderer;
+  private final BytecodeBudget bytecodeBudget;
+
+  private Map<String, String> recordedSources;
+  private Map<String, List<ElementHandle>> recordedOrigins;
+  private boolean recordingFailed;
+  private Map<String, String> verifiedSources;
 
   protected AbstractProcessingStep(ProcessingEnvironment processingEnv) {
     this.messager = processingEnv.getMessager();
@@ -44,6 +78,10 @@ public abstract class AbstractProcessingStep implements BaseProcessor.Processing
     this.elements = processingEnv.getElementUtils();
     this.processingEnv = processingEnv;
     this.processorUtil = new ProcessorUtil(processingEnv);
+    this.generatedFiles = GeneratedFilesRegistry.of(processingEnv);
+    this.aggregatingResources = AggregatingResourceWriter.of(processingEnv);
+    this.sourceRenderer = SourceRenderer.of(processingEnv);
+    this.bytecodeBudget = BytecodeBudget.of(processingEnv).orElse(null);
   }
 
   /**
@@ -53,24 +91,415 @@ public abstract class AbstractProcessingStep implements BaseProcessor.Processing
    */
   protected void writeSource(JavaFile sourceFile) {
     try {
-      sourceFile.writeTo(filer);
+      tryWriteSource(sourceFile);
+    } catch (FilerException e) {
+      recordingFailed = true;
+      ExceptionUtil.messageFilerException(messager, e, sourceFile.typeSpec.originatingElements);
     } catch (IOException e) {
+      recordingFailed = true;
       ExceptionUtil.messageStackTrace(messager, e);
     }
   }
 
   /**
-   * Writes the source file to the {@link Filer}
+   * Writes the source file to the {@link Filer}, the file is first claimed in the {@link
+   * GeneratedFilesRegistry} so that a duplicate is rejected before it is rendered. When {@link
+   * ProcessorOptions#BYTECODE_ANALYSIS} is enabled the type is checked against the {@link
+   * BytecodeBudget} before it is written.
    *
    * @param sourceFile the source file to write
    * @throws IOException if something went wrong
+   * @throws FilerException if the same source file was already generated
    */
   protected void tryWriteSource(JavaFile sourceFile) throws IOException {
-    sourceFile.writeTo(filer);
+    String qualifiedName = qualifiedName(sourceFile);
+    if (Objects.nonNull(verifiedSources)) {
+      verifiedSources.put(qualifiedName, sourceRenderer.render(sourceFile));
+      return;
+    }
+    ProcessingEvents.WriteSourceEvent event = new ProcessingEvents.WriteSourceEvent();
+    event.begin();
+    generatedFiles.claimSource(qualifiedName, origin(sourceFile));
+    if (Objects.nonNull(bytecodeBudget)) {
+      bytecodeBudget
+          .analyze(sourceFile.typeSpec)
+          .forEach(diagnostic -> diagnostic.printTo(messager));
+    }
+    if (Objects.isNull(recordedSources) && !event.isEnabled()) {
+      sourceRenderer.write(filer, sourceFile);
+      return;
+    }
+    String source = sourceRenderer.render(sourceFile);
+    sourceRenderer.write(
+        filer,
+        qualifiedName,
+        source,
+        sourceFile.typeSpec.originatingElements.toArray(new Element[0]));
+    if (Objects.nonNull(recordedSources)) {
+      recordedSources.put(qualifiedName, source);
+      recordedOrigins.put(qualifiedName, handles(sourceFile.typeSpec.originatingElements));
+    }
+    if (event.shouldCommit()) {
+      event.step = getClass().getName();
+      event.fileName = qualifiedName;
+      event.renderedLength = source.length();
+      event.commit();
+    }
   }
 
   /**
-   * Writes a list of type specs in a specific package.
+   * Generates sources from a {@link ModelSnapshot} of the elements using a {@link
+   * SnapshotGenerator}. When {@link ProcessorOptions#SNAPSHOT_DIR} is set the snapshot is also
+   * recorded as {@code <name>.snapshot} in that directory, so the generation can be replayed later
+   * by {@link SnapshotRunner} without javac.
+   *
+   * @param name the snapshot name, must be unique per step
+   * @param elements the elements to generate from
+   * @param generator the generator
+   */
+  protected void generate(
+      String name, Collection<? extends Element> elements, SnapshotGenerator generator) {
+    ModelSnapshot snapshot = ModelSnapshot.of(name, elements, this.elements);
+    ProcessorOptions.getValue(processingEnv, ProcessorOptions.SNAPSHOT_DIR)
+        .ifPresent(
+            directory -> {
+              try {
+                snapshot.writeTo(Paths.get(directory, name + ".snapshot"));
+              } catch (IOException e) {
+                ExceptionUtil.messageStackTrace(messager, e);
+              }
+            });
+    cached(
+        snapshot,
+        elements,
+        Collections.emptyList(),
+        () -> generator.generate(snapshot).forEach(this::writeSource));
+  }
+
+  /**
+   * Runs a generation through the {@link GenerationCache} when {@link ProcessorOptions#CACHE_DIR}
+   * is set, otherwise the generation is just executed.
+   *
+   * <p>The cache key is the hash of the {@link ModelSnapshot} of the elements, including their
+   * super types, type parameters and thrown types, the {@link ModelSnapshot} of the declarations of
+   * the types they directly reference, the step class, the {@link #cacheVersion()} and the java
+   * version. On a hit the cached sources are written to the {@link Filer} as is, with the
+   * originating elements they were written with, and the generation is not executed at all, on a
+   * miss every source written with {@link #writeSource(JavaFile)} during the generation is stored
+   * in the cache. Generations that fail to write any source, or that write a source from an element
+   * that has no {@link ElementHandle}, are not cached, and a hit is generated again if any of its
+   * originating elements cannot be resolved. Generations with effects that a hit cannot replay are
+   * not cached either and run on every build, see {@link #sideEffect()}, such as appending to an
+   * {@link AggregatingResourceWriter} resource or a {@link ModuleIndex}, or adding a method, a
+   * holder or a lookup type to the type of an {@link AbstractRegisterMethodWriter}. Writing to the
+   * {@link Filer} directly is not detected.
+   *
+   * <p>The generation must only depend on the elements and the types they directly reference, other
+   * elements the generation reads, e.g a type looked up by name or the members of a type found
+   * through another type, have to be declared with {@link #cached(String, Collection, Collection,
+   * Runnable)}, anything else that affects the generated sources has to be part of the {@link
+   * #cacheVersion()}.
+   *
+   * <p>When {@link ProcessorOptions#VERIFY_DETERMINISM} is enabled the generation is executed a
+   * second time without writing anything, and every source that differs from the first run, or from
+   * the cached source on a hit, is reported as a warning. The generation should then have no side
+   * effects other than writing sources.
+   *
+   * @param name the generation name, must be unique per step
+   * @param elements the elements to generate from
+   * @param generation the generation
+   */
+  protected void cached(String name, Collection<? extends Element> elements, Runnable generation) {
+    cached(name, elements, Collections.emptyList(), generation);
+  }
+
+  /**
+   * Same as {@link #cached(String, Collection, Runnable)} for a generation that also depends on
+   * other elements than the ones it generates from and the types they reference
+   *
+   * @param name the generation name, must be unique per step
+   * @param elements the elements to generate from
+   * @param inputs the other elements the generation depends on
+   * @param generation the generation
+   */
+  protected void cached(
+      String name,
+      Collection<? extends Element> elements,
+      Collection<? extends Element> inputs,
+      Runnable generation) {
+    if (ProcessorOptions.getValue(processingEnv, ProcessorOptions.CACHE_DIR).isPresent()) {
+      cached(ModelSnapshot.of(name, elements, this.elements), elements, inputs, generation);
+    } else {
+      verified(generation);
+    }
+  }
+
+  private void cached(
+      ModelSnapshot snapshot,
+      Collection<? extends Element> elements,
+      Collection<? extends Element> inputs,
+      Runnable generation) {
+    Optional<String> cacheDir =
+        ProcessorOptions.getValue(processingEnv, ProcessorOptions.CACHE_DIR);
+    if (!cacheDir.isPresent() || isNestedGeneration()) {
+      verified(generation);
+      return;
+    }
+    GenerationCache cache;
+    try {
+      cache = GenerationCache.open(Paths.get(cacheDir.get()));
+    } catch (IOException e) {
+      messager.printMessage(
+          Diagnostic.Kind.WARNING, "Generation cache is disabled : " + e.getMessage());
+      verified(generation);
+      return;
+    }
+    Set<Element> dependencies = new LinkedHashSet<>(inputs);
+    dependencies.addAll(ReferencedTypes.of(elements));
+    String key =
+        GenerationCache.key(
+            snapshot.toBytes(),
+            ModelSnapshot.of(snapshot.getName() + "#inputs", dependencies, this.elements).toBytes(),
+            getClass().getName().getBytes(StandardCharsets.UTF_8),
+            System.getProperty("java.version").getBytes(StandardCharsets.UTF_8),
+            cacheVersion().getBytes(StandardCharsets.UTF_8),
+            new byte[] {(byte) (sourceRenderer.isCompact() ? 1 : 0)});
+    Optional<List<GenerationCache.CachedSource>> hit = cache.get(key);
+    try {
+      if (hit.isPresent()) {
+        if (isVerifyingDeterminism()) {
+          Map<String, String> cachedSources = new LinkedHashMap<>();
+          for (GenerationCache.CachedSource source : hit.get()) {
+            cachedSources.put(source.getQualifiedName(), source.readContent());
+          }
+          verifyDeterminism(generation, cachedSources);
+        }
+        if (writeCached(hit.get())) {
+          return;
+        }
+      }
+      Map<String, List<ElementHandle>> origins = new LinkedHashMap<>();
+      Map<String, String> sources = record(generation, origins);
+      if (Objects.nonNull(sources)) {
+        cache.put(key, sources, origins);
+        if (isVerifyingDeterminism()) {
+          verifyDeterminism(generation, sources);
+        }
+      }
+    } catch (IOException e) {
+      ExceptionUtil.messageStackTrace(messager, e);
+    }
+  }
+
+  /** A generation within a generation is part of the outer one and is not cached nor verified */
+  private boolean isNestedGeneration() {
+    return Objects.nonNull(recordedSources) || Objects.nonNull(verifiedSources);
+  }
+
+  private boolean isVerifyingDeterminism() {
+    return ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.VERIFY_DETERMINISM);
+  }
+
+  /**
+   * Runs the generation and records the sources it writes
+   *
+   * @return the recorded sources, or {@code null} if any source failed to be written
+   */
+  private Map<String, String> record(Runnable generation) {
+    return record(generation, new LinkedHashMap<>());
+  }
+
+  /**
+   * Runs the generation and records the sources it writes and their originating elements
+   *
+   * @return the recorded sources, or {@code null} if any source failed to be written
+   */
+  private Map<String, String> record(
+      Runnable generation, Map<String, List<ElementHandle>> origins) {
+    recordedSources = new LinkedHashMap<>();
+    recordedOrigins = origins;
+    recordingFailed = false;
+    RECORDING.set(this);
+    try {
+      generation.run();
+      return recordingFailed ? null : recordedSources;
+    } finally {
+      RECORDING.remove();
+      recordedSources = null;
+      recordedOrigins = null;
+    }
+  }
+
+  /**
+   * Marks the generation recorded on the current thread for the {@link GenerationCache}, if any, as
+   * not cacheable. Called for every effect of a generation other than writing a source, which a
+   * cache hit would not replay, so that a build using the cache produces the same output as a build
+   * without it.
+   */
+  static void sideEffect() {
+    AbstractProcessingStep step = RECORDING.get();
+    if (Objects.nonNull(step)) {
+      step.recordingFailed = true;
+    }
+  }
+
+  /** Elements without a handle cannot be replayed from the cache, so the recording fails */
+  private List<ElementHandle> handles(List<Element> originatingElements) {
+    List<ElementHandle> handles = new ArrayList<>(originatingElements.size());
+    for (Element element : originatingElements) {
+      try {
+        handles.add(ElementHandle.of(element, types));
+      } catch (IllegalArgumentException e) {
+        recordingFailed = true;
+      }
+    }
+    return handles;
+  }
+
+  private void verified(Runnable generation) {
+    if (isNestedGeneration() || !isVerifyingDeterminism()) {
+      generation.run();
+      return;
+    }
+    Map<String, String> sources = record(generation);
+    if (Objects.nonNull(sources)) {
+      verifyDeterminism(generation, sources);
+    }
+  }
+
+  /** Runs the generation again without writing and reports the sources that are not the same */
+  private void verifyDeterminism(Runnable generation, Map<String, String> expected) {
+    Map<String, String> actual = new LinkedHashMap<>();
+    verifiedSources = actual;
+    try {
+      generation.run();
+    } finally {
+      verifiedSources = null;
+    }
+    Set<String> qualifiedNames = new TreeSet<>(expected.keySet());
+    qualifiedNames.addAll(actual.keySet());
+    for (String qualifiedName : qualifiedNames) {
+      if (!Objects.equals(expected.get(qualifiedName), actual.get(qualifiedName))) {
+        messager.printMessage(
+            Diagnostic.Kind.WARNING,
+            "Non-deterministic generation by "
+                + getClass().getName()
+                + ", ["
+                + qualifiedName
+                + "] is not the same between two runs over the same elements");
+      }
+    }
+  }
+
+  /**
+   * Writes the cached sources with their originating elements resolved against the current round
+   *
+   * @return {@code false} without writing anything if an originating element cannot be resolved
+   */
+  private boolean writeCached(List<GenerationCache.CachedSource> sources) {
+    Map<GenerationCache.CachedSource, List<Element>> origins = new LinkedHashMap<>();
+    for (GenerationCache.CachedSource source : sources) {
+      List<Element> originatingElements = new ArrayList<>();
+      for (ElementHandle handle : source.getOriginatingElements()) {
+        Optional<Element> element = handle.resolve(elements, types);
+        if (!element.isPresent()) {
+          return false;
+        }
+        originatingElements.add(element.get());
+      }
+      origins.put(source, originatingElements);
+    }
+    for (Map.Entry<GenerationCache.CachedSource, List<Element>> entry : origins.entrySet()) {
+      GenerationCache.CachedSource source = entry.getKey();
+      try {
+        generatedFiles.claimSource(source.getQualifiedName(), getClass().getName() + " (cached)");
+        sourceRenderer.write(
+            filer,
+            source.getQualifiedName(),
+            source.readContent(),
+            entry.getValue().toArray(new Element[0]));
+      } catch (FilerException e) {
+        ExceptionUtil.messageFilerException(messager, e, entry.getValue());
+      } catch (IOException e) {
+        ExceptionUtil.messageStackTrace(messager, e);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The version of the generator that is part of every {@link GenerationCache} key, a change in the
+   * version invalidates all the cached sources of the step. Defaults to the implementation version
+   * of the step package and a hash of the jar the step is loaded from, or of the class files of the
+   * step and its super classes when it is loaded from a directory, so a rebuilt snapshot does not
+   * reuse the sources of the previous one. Nested classes of the step are not part of the hash when
+   * it is loaded from a directory.
+   *
+   * @return the generator version
+   */
+  protected String cacheVersion() {
+    String version = Objects.toString(getClass().getPackage().getImplementationVersion(), "");
+    try {
+      Path location =
+          Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+      if (Files.isRegularFile(location)) {
+        return version + "@" + jarHash(location);
+      }
+      List<byte[]> classFiles = new ArrayList<>();
+      for (Class<?> type = getClass();
+          !AbstractProcessingStep.class.equals(type);
+          type = type.getSuperclass()) {
+        String classFileName = type.getName().substring(type.getName().lastIndexOf('.') + 1);
+        try (InputStream classFile = type.getResourceAsStream(classFileName + ".class")) {
+          classFiles.add(classFile.readAllBytes());
+        }
+      }
+      return version + "@" + GenerationCache.key(classFiles.toArray(new byte[0][]));
+    } catch (Exception e) {
+      return version.isEmpty() ? "unversioned" : version;
+    }
+  }
+
+  /** The hash of a jar, computed again only when the size or the last modified time changes */
+  private static String jarHash(Path jar) throws IOException {
+    String stamp = Files.size(jar) + ":" + Files.getLastModifiedTime(jar).toMillis();
+    String[] stampAndHash = JAR_HASHES.get(jar);
+    if (Objects.isNull(stampAndHash) || !stamp.equals(stampAndHash[0])) {
+      stampAndHash = new String[] {stamp, GenerationCache.key(Files.readAllBytes(jar))};
+      JAR_HASHES.put(jar, stampAndHash);
+    }
+    return stampAndHash[1];
+  }
+
+  /**
+   * Checks if a source file was already generated by any step or processor in this compilation
+   *
+   * @param qualifiedName the qualified name of the type
+   * @return {@code true} if the type was already generated, {@code false} otherwise
+   */
+  protected boolean isGenerated(String qualifiedName) {
+    return generatedFiles.isSourceGenerated(qualifiedName);
+  }
+
+  private static String qualifiedName(JavaFile sourceFile) {
+    return sourceFile.packageName.isEmpty()
+        ? sourceFile.typeSpec.name
+        : sourceFile.packageName + "." + sourceFile.typeSpec.name;
+  }
+
+  private String origin(JavaFile sourceFile) {
+    List<Element> originatingElements = sourceFile.typeSpec.originatingElements;
+    if (originatingElements.isEmpty()) {
+      return getClass().getName();
+    }
+    return getClass().getName()
+        + " for "
+        + originatingElements.stream().map(Object::toString).collect(Collectors.joining(", "));
+  }
+
+  /**
+   * Writes a list of type specs in a specific package, use {@link #writeSource(Stream, String,
+   * int)} for a large number of type specs.
    *
    * @param builders a list of type specs to write
    * @param rootPackage the package to write to
@@ -83,6 +512,45 @@ public abstract class AbstractProcessingStep implements BaseProcessor.Processing
         });
   }
 
+  /**
+   * Writes the type specs of a source builder in a specific package, see {@link
+   * SourceBuilder#typeBuilders()}
+   *
+   * @param sourceBuilder the source builder
+   * @param rootPackage the package to write to
+   */
+  protected void writeSource(SourceBuilder sourceBuilder, String rootPackage) {
+    writeSource(sourceBuilder.typeBuilders(), rootPackage, 1);
+  }
+
+  /**
+   * Writes a stream of type specs in a specific package. The type specs are consumed in batches,
+   * each batch is built and written before the next batch is consumed, so that only one batch of
+   * type specs is held in memory at a time. A source that fails to be written is reported as with
+   * {@link #writeSource(JavaFile)} and the rest of the batch is still written.
+   *
+   * @param builders a stream of type specs to write
+   * @param rootPackage the package to write to
+   * @param batchSize the number of type specs to consume before writing them
+   * @throws IllegalArgumentException if the batch size is less than 1
+   */
+  protected void writeSource(Stream<TypeSpec.Builder> builders, String rootPackage, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1 [" + batchSize + "]");
+    }
+    try (Stream<TypeSpec.Builder> stream = builders) {
+      Iterator<TypeSpec.Builder> iterator = stream.iterator();
+      List<JavaFile> batch = new ArrayList<>(batchSize);
+      while (iterator.hasNext()) {
+        batch.add(JavaFile.builder(rootPackage, iterator.next().build()).build());
+        if (batch.size() == batchSize || !iterator.hasNext()) {
+          batch.forEach(this::writeSource);
+          batch.clear();
+        }
+      }
+    }
+  }
+
   /**
    * Writes a list of type specs in a specific package.
    *
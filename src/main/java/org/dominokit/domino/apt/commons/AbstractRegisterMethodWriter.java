@@ -17,33 +17,162 @@ package org.dominokit.domino.apt.commons;
 
 import static java.util.Objects.nonNull;
 
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Modifier;
 
 /**
  * Abstract class for all register methods writers
  *
+ * <p>Optional capabilities are enabled by passing the strategy they need, so that a writer cannot
+ * use a capability it does not implement: a {@link LazyRegistration} for {@link
+ * RegistrationMode#LAZY}, a stable key for {@link #setDeterministic(Function)}, a {@link
+ * LookupMapping} for {@link #writeLookup(String, TypeName, Collection, LookupMapping)} and an
+ * {@link IndexCodec} for the {@link ModuleIndex} methods.
+ *
  * @param <E> any thing extends {@link ItemEntry}
  * @param <I> the items to register
  */
 public abstract class AbstractRegisterMethodWriter<
     E extends AbstractRegisterMethodWriter.ItemEntry, I> {
 
+  private static final CodeTemplate SUPPLIER = CodeTemplate.of("() -> $L");
+  private static final CodeTemplate HOLDER_SUPPLIER = CodeTemplate.of("() -> $T.INSTANCE");
+
   private final TypeSpec.Builder clientModuleTypeBuilder;
+  private final Set<String> holderNames = new HashSet<>();
+  private LazyRegistration<E> lazyRegistration;
+  private Function<? super E, String> stableKey;
+  private boolean renderingKey;
 
+  /** @param clientModuleTypeBuilder the builder of the type the register method is added to */
   public AbstractRegisterMethodWriter(TypeSpec.Builder clientModuleTypeBuilder) {
     this.clientModuleTypeBuilder = clientModuleTypeBuilder;
   }
 
+  /**
+   * Creates a writer that sorts the entries by the code that registers them when {@link
+   * ProcessorOptions#DETERMINISTIC} is enabled, see {@link #setDeterministic(Function)} to sort
+   * them by another key
+   *
+   * @param clientModuleTypeBuilder the builder of the type the register method is added to
+   * @param processingEnv the processing environment to read the options from
+   */
+  public AbstractRegisterMethodWriter(
+      TypeSpec.Builder clientModuleTypeBuilder, ProcessingEnvironment processingEnv) {
+    this(clientModuleTypeBuilder);
+    if (ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.DETERMINISTIC)) {
+      setDeterministic(this::registrationCode);
+    }
+  }
+
+  /**
+   * Switches the writer to {@link RegistrationMode#LAZY}, usually called from the constructor of
+   * the writer with a method reference, e.g {@code setLazyRegistration(this::registerLazyItem)}.
+   * The entry should be registered as a supplier so that its class is only loaded on first lookup,
+   * see {@link #supplierOf(CodeBlock)} and {@link #holderSupplierOf(String, TypeName, CodeBlock)}.
+   *
+   * @param lazyRegistration writes the line for registering an entry lazily
+   */
+  protected void setLazyRegistration(LazyRegistration<E> lazyRegistration) {
+    this.lazyRegistration = Objects.requireNonNull(lazyRegistration);
+  }
+
+  /** @return the registration mode of this writer */
+  public RegistrationMode getRegistrationMode() {
+    return nonNull(lazyRegistration) ? RegistrationMode.LAZY : RegistrationMode.EAGER;
+  }
+
+  /**
+   * Sorts the entries by a stable key before they are written, so that the generated code does not
+   * depend on the iteration order of the items, see {@link ProcessorOptions#DETERMINISTIC}
+   *
+   * @param stableKey returns a key of the entry that does not change between compilations, e.g the
+   *     qualified name of the registered class, {@code null} to keep the order of the items
+   */
+  public void setDeterministic(Function<? super E, String> stableKey) {
+    this.stableKey = stableKey;
+  }
+
+  /** @return {@code true} if the entries are sorted by their stable key, {@code false} otherwise */
+  public boolean isDeterministic() {
+    return nonNull(stableKey);
+  }
+
   /**
    * Write the method to register a list of items
    *
    * @param items the items to register
    */
   public void write(Collection<I> items) {
-    if (!items.isEmpty()) {
+    List<E> entries = new ArrayList<>(items.size());
+    items.forEach(item -> entries.add(parseEntry(item)));
+    writeEntries(entries);
+  }
+
+  /**
+   * Adds the items to the {@link ModuleIndex} of the current module instead of registering them, so
+   * that an aggregating module can register them with {@link #writeMerged(Collection, ModuleIndex,
+   * IndexCodec)}
+   *
+   * @param items the items to index
+   * @param moduleIndex the module index
+   * @param codec converts the entries to index entries
+   * @throws FilerException if the index resource is generated by something else
+   */
+  public void writeIndex(Collection<I> items, ModuleIndex moduleIndex, IndexCodec<E> codec)
+      throws FilerException {
+    List<String> lines = new ArrayList<>(items.size());
+    items.forEach(item -> lines.add(codec.indexEntry(parseEntry(item))));
+    moduleIndex.addAll(lines);
+  }
+
+  /**
+   * Write the method to register the items of the current module and the entries of all the module
+   * indexes found on the classpath, an entry that is both indexed and in the items is registered
+   * once.
+   *
+   * @param items the items of the current module
+   * @param moduleIndex the module index to read the other modules entries from
+   * @param codec converts the entries from and to index entries
+   */
+  public void writeMerged(Collection<I> items, ModuleIndex moduleIndex, IndexCodec<E> codec) {
+    Map<String, E> entries = new LinkedHashMap<>();
+    for (String indexEntry : moduleIndex.read()) {
+      entries.put(indexEntry, codec.parseIndexEntry(indexEntry));
+    }
+    for (I item : items) {
+      E entry = parseEntry(item);
+      entries.putIfAbsent(codec.indexEntry(entry), entry);
+    }
+    writeEntries(entries.values());
+  }
+
+  /**
+   * Write the method to register already parsed entries
+   *
+   * @param entries the entries to register
+   */
+  protected void writeEntries(Collection<E> entries) {
+    if (!entries.isEmpty()) {
+      entries = stableOrder(entries);
       MethodSpec.Builder registerViewsMethodBuilder =
           MethodSpec.methodBuilder(methodName())
               .addAnnotation(Override.class)
@@ -52,13 +181,35 @@ public abstract class AbstractRegisterMethodWriter<
       if (nonNull(registryClass())) {
         registerViewsMethodBuilder.addParameter(registryClass(), "registry");
       }
-      items.stream()
-          .map(this::parseEntry)
-          .forEach(e -> registerItem(e, registerViewsMethodBuilder));
+      entries.forEach(e -> register(e, registerViewsMethodBuilder));
+      AbstractProcessingStep.sideEffect();
       clientModuleTypeBuilder.addMethod(registerViewsMethodBuilder.build());
     }
   }
 
+  private void register(E entry, MethodSpec.Builder methodBuilder) {
+    if (nonNull(lazyRegistration)) {
+      lazyRegistration.registerLazyItem(entry, methodBuilder);
+    } else {
+      registerItem(entry, methodBuilder);
+    }
+  }
+
+  /**
+   * The default stable key of an entry, the code that registers it, the holder classes of the entry
+   * are not added while the key is rendered
+   */
+  private String registrationCode(E entry) {
+    MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder(methodName());
+    renderingKey = true;
+    try {
+      register(entry, methodBuilder);
+    } finally {
+      renderingKey = false;
+    }
+    return methodBuilder.build().code.toString();
+  }
+
   /** @return the method name */
   protected abstract String methodName();
 
@@ -73,6 +224,79 @@ public abstract class AbstractRegisterMethodWriter<
    */
   protected abstract void registerItem(E entry, MethodSpec.Builder methodBuilder);
 
+  /**
+   * Creates a supplier that creates a new instance on every call
+   *
+   * @param instantiation the expression that creates the instance, e.g {@code new Item()}
+   * @return the supplier lambda
+   */
+  protected CodeBlock supplierOf(CodeBlock instantiation) {
+    return SUPPLIER.apply(instantiation);
+  }
+
+  /**
+   * Creates a supplier of a single instance that is created on first call, the instance is held by
+   * a nested holder class added to the module type, the holder class and the instance class are
+   * only loaded and initialized when the supplier is first called.
+   *
+   * @param holderName the simple name of the holder class, must be unique within the module type
+   * @param type the type of the instance
+   * @param instantiation the expression that creates the instance, e.g {@code new Item()}
+   * @return the supplier lambda
+   * @throws IllegalArgumentException if the holder name was already used
+   */
+  protected CodeBlock holderSupplierOf(String holderName, TypeName type, CodeBlock instantiation) {
+    if (renderingKey) {
+      return HOLDER_SUPPLIER.apply(ClassName.get("", holderName));
+    }
+    if (!holderNames.add(holderName)) {
+      throw new IllegalArgumentException("Holder class [" + holderName + "] already exists");
+    }
+    AbstractProcessingStep.sideEffect();
+    clientModuleTypeBuilder.addType(
+        TypeSpec.classBuilder(holderName)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .addField(
+                FieldSpec.builder(type, "INSTANCE", Modifier.STATIC, Modifier.FINAL)
+                    .initializer(instantiation)
+                    .build())
+            .build());
+    return HOLDER_SUPPLIER.apply(ClassName.get("", holderName));
+  }
+
+  /**
+   * Adds a static lookup type of the items to the module type instead of registering them in a
+   * runtime map, see {@link LookupTableWriter}
+   *
+   * @param lookupTypeName the simple name of the nested lookup type
+   * @param valueType the type of the values
+   * @param items the items to add to the lookup
+   * @param mapping maps the entries to their lookup keys and values
+   */
+  public void writeLookup(
+      String lookupTypeName, TypeName valueType, Collection<I> items, LookupMapping<E> mapping) {
+    LookupTableWriter lookup = new LookupTableWriter(lookupTypeName, valueType);
+    List<E> entries = new ArrayList<>(items.size());
+    items.forEach(item -> entries.add(parseEntry(item)));
+    for (E entry : stableOrder(entries)) {
+      lookup.put(mapping.lookupKey(entry), mapping.lookupValue(entry));
+    }
+    TypeSpec lookupType = lookup.build();
+    AbstractProcessingStep.sideEffect();
+    clientModuleTypeBuilder.addType(lookupType.toBuilder().addModifiers(Modifier.STATIC).build());
+  }
+
+  private Collection<E> stableOrder(Collection<E> entries) {
+    if (!isDeterministic()) {
+      return entries;
+    }
+    Map<E, String> keys = new HashMap<>();
+    entries.forEach(entry -> keys.put(entry, stableKey.apply(entry)));
+    List<E> sorted = new ArrayList<>(entries);
+    sorted.sort(Comparator.comparing(keys::get));
+    return sorted;
+  }
+
   /**
    * Converts the item to {@link ItemEntry}
    *
@@ -81,6 +305,67 @@ public abstract class AbstractRegisterMethodWriter<
    */
   protected abstract E parseEntry(I item);
 
+  /** How the items are registered by the generated register method */
+  public enum RegistrationMode {
+    /** Every item is instantiated when the register method runs */
+    EAGER,
+    /** Every item is registered as a supplier and instantiated on first lookup */
+    LAZY
+  }
+
   /** A marker interface to indicate that an item is an entry to be registered */
   public interface ItemEntry {}
+
+  /**
+   * Writes the line for registering an entry in {@link RegistrationMode#LAZY} mode
+   *
+   * @param <E> the entry type
+   */
+  @FunctionalInterface
+  public interface LazyRegistration<E> {
+    /**
+     * @param entry the entry to register
+     * @param methodBuilder the method builder to add the line to it
+     */
+    void registerLazyItem(E entry, MethodSpec.Builder methodBuilder);
+  }
+
+  /**
+   * Maps the entries to the keys and values of a lookup type, see {@link #writeLookup(String,
+   * TypeName, Collection, LookupMapping)}
+   *
+   * @param <E> the entry type
+   */
+  public interface LookupMapping<E> {
+    /**
+     * @param entry the entry
+     * @return the lookup key
+     */
+    String lookupKey(E entry);
+
+    /**
+     * @param entry the entry
+     * @return the value expression
+     */
+    CodeBlock lookupValue(E entry);
+  }
+
+  /**
+   * Converts the entries from and to single line {@link ModuleIndex} entries
+   *
+   * @param <E> the entry type
+   */
+  public interface IndexCodec<E> {
+    /**
+     * @param entry the entry
+     * @return the index entry
+     */
+    String indexEntry(E entry);
+
+    /**
+     * @param indexEntry the index entry as returned by {@link #indexEntry(Object)}
+     * @return the entry
+     */
+    E parseIndexEntry(String indexEntry);
+  }
 }
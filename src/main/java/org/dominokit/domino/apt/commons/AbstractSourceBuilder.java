@@ -30,6 +30,7 @@ public abstract class AbstractSourceBuilder implements SourceBuilder {
   protected final Elements elements;
   protected final ProcessingEnvironment processingEnv;
   protected final ProcessorUtil processorUtil;
+  protected final GeneratedFilesRegistry generatedFiles;
 
   public AbstractSourceBuilder(ProcessingEnvironment processingEnv) {
     this.messager = processingEnv.getMessager();
@@ -38,5 +39,6 @@ public abstract class AbstractSourceBuilder implements SourceBuilder {
     this.elements = processingEnv.getElementUtils();
     this.processingEnv = processingEnv;
     this.processorUtil = new ProcessorUtil(processingEnv);
+    this.generatedFiles = GeneratedFilesRegistry.of(processingEnv);
   }
 }
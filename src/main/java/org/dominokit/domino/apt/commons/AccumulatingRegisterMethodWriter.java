@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+
+/**
+ * A register methods writer that collects the items of all the rounds and writes the register
+ * method and its type once, in the first round that does not add new items.
+ *
+ * <p>Items are kept between rounds as their {@link #indexEntry(ItemEntry)} strings, no element of a
+ * previous round is retained, and an item added in more than one round is registered once. The
+ * entries are parsed back with {@link #parseIndexEntry(String)} when the method is written.
+ *
+ * <pre>
+ * // every round
+ * writer.add(items);
+ * writer.writeIfComplete(roundEnv).ifPresent(this::writeSource);
+ * </pre>
+ *
+ * <p>The type is written before processing is over so that it is processed like any other source, a
+ * source created in the last round is not processed and javac warns about it, which fails builds
+ * with {@code -Werror}. It is only written in the last round when no round without new items came
+ * before it, e.g when nothing was added at all, or when the round that added the last items did not
+ * generate any source so that the next round is the last one. Items that are only found after the
+ * type was written, e.g on sources generated by another processor in a later round, are rejected.
+ *
+ * @param <E> any thing extends {@link ItemEntry}
+ * @param <I> the items to register
+ */
+public abstract class AccumulatingRegisterMethodWriter<
+        E extends AbstractRegisterMethodWriter.ItemEntry, I>
+    extends AbstractRegisterMethodWriter<E, I> {
+
+  private final String packageName;
+  private final TypeSpec.Builder typeBuilder;
+  private final Set<String> entries = new LinkedHashSet<>();
+  private boolean added;
+  private boolean written;
+
+  /**
+   * @param packageName the package of the generated type
+   * @param typeBuilder the builder of the type the register method is added to
+   */
+  public AccumulatingRegisterMethodWriter(String packageName, TypeSpec.Builder typeBuilder) {
+    super(typeBuilder);
+    this.packageName = packageName;
+    this.typeBuilder = typeBuilder;
+  }
+
+  /**
+   * Creates a writer that sorts the entries when {@link ProcessorOptions#DETERMINISTIC} is enabled,
+   * see {@link AbstractRegisterMethodWriter#AbstractRegisterMethodWriter(TypeSpec.Builder,
+   * ProcessingEnvironment)}
+   *
+   * @param packageName the package of the generated type
+   * @param typeBuilder the builder of the type the register method is added to
+   * @param processingEnv the processing environment to read the options from
+   */
+  public AccumulatingRegisterMethodWriter(
+      String packageName, TypeSpec.Builder typeBuilder, ProcessingEnvironment processingEnv) {
+    super(typeBuilder, processingEnv);
+    this.packageName = packageName;
+    this.typeBuilder = typeBuilder;
+  }
+
+  /**
+   * Converts the entry to the single line string it is kept as between rounds
+   *
+   * @param entry the entry
+   * @return the entry as a string
+   */
+  protected abstract String indexEntry(E entry);
+
+  /**
+   * Converts the string an entry is kept as back to an entry
+   *
+   * @param indexEntry the entry as returned by {@link #indexEntry(ItemEntry)}
+   * @return the entry
+   */
+  protected abstract E parseIndexEntry(String indexEntry);
+
+  /**
+   * Adds the items of the current round, items that were already added are ignored
+   *
+   * @param items the items to register
+   * @throws IllegalStateException if new items are added after the type was written
+   */
+  public void add(Collection<I> items) {
+    for (I item : items) {
+      String entry = indexEntry(parseEntry(item));
+      if (written && !entries.contains(entry)) {
+        throw new IllegalStateException(
+            "Register method of ["
+                + typeName()
+                + "] is already written, cannot add ["
+                + entry
+                + "]");
+      }
+      added |= entries.add(entry);
+    }
+  }
+
+  /**
+   * Writes the register method of all the added items if the current round did not add new items,
+   * or if processing is over
+   *
+   * @param roundEnv the current round environment
+   * @return the source file of the type if it is complete and was not written yet, {@link
+   *     Optional#empty()} otherwise
+   */
+  public Optional<JavaFile> writeIfComplete(RoundEnvironment roundEnv) {
+    boolean complete = roundEnv.processingOver() || (!added && !entries.isEmpty());
+    added = false;
+    if (!complete || written) {
+      return Optional.empty();
+    }
+    written = true;
+    List<E> parsed = new ArrayList<>(entries.size());
+    entries.forEach(entry -> parsed.add(parseIndexEntry(entry)));
+    writeEntries(parsed);
+    return Optional.of(JavaFile.builder(packageName, typeBuilder.build()).build());
+  }
+
+  /** @return the number of distinct items added so far */
+  public int getEntryCount() {
+    return entries.size();
+  }
+
+  /** @return {@code true} if the type was written, {@code false} otherwise */
+  public boolean isWritten() {
+    return written;
+  }
+
+  private String typeName() {
+    return packageName.isEmpty()
+        ? typeBuilder.build().name
+        : packageName + "." + typeBuilder.build().name;
+  }
+}
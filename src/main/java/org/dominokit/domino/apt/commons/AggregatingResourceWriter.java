@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileManager;
+
+/**
+ * Collects the lines of resource files across rounds and writes each resource exactly once when
+ * processing is over.
+ *
+ * <p>The writer is shared by all processors and steps that use the same {@link Filer}, entries
+ * appended to the same location, package and resource name end up in the same resource. The lines
+ * of a resource are written in the order they were appended, or sorted when {@link
+ * ProcessorOptions#DETERMINISTIC} is enabled.
+ *
+ * <p>Processors flush the writer through {@link #flush(Object, RoundEnvironment, Filer)} at the end
+ * of every round, a processor that flushes in a round that is not over takes part in the final
+ * flush, and the resources are only written once all the taking part processors reached the end of
+ * the last round, so that a processor still appends in the last round after another one is done. A
+ * line appended to a resource that is already written, e.g by a processor that did not flush before
+ * the last round, is reported as an error.
+ */
+public class AggregatingResourceWriter {
+
+  private static final Map<Filer, AggregatingResourceWriter> WRITERS = new WeakHashMap<>();
+
+  private final GeneratedFilesRegistry generatedFiles;
+  private final Messager messager;
+  private final boolean deterministic;
+  private final Map<String, AggregatedResource> resources = new LinkedHashMap<>();
+  private final Set<Object> processors = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final Set<Object> finishedProcessors = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private AggregatingResourceWriter(ProcessingEnvironment processingEnv) {
+    this.generatedFiles = GeneratedFilesRegistry.of(processingEnv);
+    this.messager = processingEnv.getMessager();
+    this.deterministic = ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.DETERMINISTIC);
+  }
+
+  /**
+   * Returns the writer shared by all processors of the processing environment
+   *
+   * @param processingEnv the processing environment
+   * @return the shared writer
+   */
+  public static AggregatingResourceWriter of(ProcessingEnvironment processingEnv) {
+    synchronized (WRITERS) {
+      return WRITERS.computeIfAbsent(
+          processingEnv.getFiler(), filer -> new AggregatingResourceWriter(processingEnv));
+    }
+  }
+
+  /**
+   * Appends a line to a resource
+   *
+   * @param location the location of the resource, e.g {@link
+   *     javax.tools.StandardLocation#CLASS_OUTPUT}
+   * @param targetPackage the package of the resource
+   * @param resourceName the resource name
+   * @param entry the line to append
+   * @throws FilerException if the resource is generated by something else
+   */
+  public synchronized void append(
+      JavaFileManager.Location location, String targetPackage, String resourceName, String entry)
+      throws FilerException {
+    appendAll(location, targetPackage, resourceName, Collections.singletonList(entry));
+  }
+
+  /**
+   * Appends a list of lines to a resource
+   *
+   * @param location the location of the resource, e.g {@link
+   *     javax.tools.StandardLocation#CLASS_OUTPUT}
+   * @param targetPackage the package of the resource
+   * @param resourceName the resource name
+   * @param entries the lines to append
+   * @throws FilerException if the resource is generated by something else
+   */
+  public synchronized void appendAll(
+      JavaFileManager.Location location,
+      String targetPackage,
+      String resourceName,
+      Collection<String> entries)
+      throws FilerException {
+    AbstractProcessingStep.sideEffect();
+    AggregatedResource resource = resource(location, targetPackage, resourceName);
+    if (resource.written) {
+      messager.printMessage(
+          Diagnostic.Kind.ERROR,
+          "Resource ["
+              + resourceName
+              + "] in ["
+              + targetPackage
+              + "] was already written, "
+              + entries
+              + " cannot be appended to it, the processors appending to it must flush it in every"
+              + " round");
+      return;
+    }
+    resource.entries.addAll(entries);
+  }
+
+  /**
+   * @return {@code true} if there are resources that are not written yet, {@code false} otherwise
+   */
+  public synchronized boolean hasPendingResources() {
+    return resources.values().stream().anyMatch(resource -> !resource.written);
+  }
+
+  /**
+   * Flushes the resources on behalf of a processor at the end of a round, the processor takes part
+   * in the final flush if the round is not over, otherwise it is done and the resources are written
+   * if all the taking part processors are done, see {@link #flush(Filer)}
+   *
+   * @param processor the processor that reached the end of the round
+   * @param roundEnv the current round environment
+   * @param filer the filer to write the resources to
+   * @return {@code true} if the resources were written, {@code false} otherwise
+   * @throws IOException if a resource cannot be written
+   */
+  public synchronized boolean flush(Object processor, RoundEnvironment roundEnv, Filer filer)
+      throws IOException {
+    if (!roundEnv.processingOver()) {
+      processors.add(processor);
+      return false;
+    }
+    finishedProcessors.add(processor);
+    if (!finishedProcessors.containsAll(processors)) {
+      return false;
+    }
+    flush(filer);
+    return true;
+  }
+
+  /**
+   * Writes all the resources that are not written yet, each resource is written only once.
+   * Appending to a resource after it is written is reported as an error, processors sharing the
+   * writer should use {@link #flush(Object, RoundEnvironment, Filer)} instead.
+   *
+   * @param filer the filer to write the resources to
+   * @throws IOException if a resource cannot be written
+   */
+  public synchronized void flush(Filer filer) throws IOException {
+    for (AggregatedResource resource : resources.values()) {
+      if (!resource.written) {
+        resource.written = true;
+        write(filer, resource);
+      }
+    }
+  }
+
+  private void write(Filer filer, AggregatedResource resource) throws IOException {
+    try (Writer writer =
+        new BufferedWriter(
+            filer
+                .createResource(resource.location, resource.targetPackage, resource.resourceName)
+                .openWriter())) {
+      List<String> entries = resource.entries;
+      if (deterministic) {
+        entries = new ArrayList<>(entries);
+        Collections.sort(entries);
+      }
+      for (String entry : entries) {
+        writer.write(entry);
+        writer.write('\n');
+      }
+    }
+  }
+
+  private AggregatedResource resource(
+      JavaFileManager.Location location, String targetPackage, String resourceName)
+      throws FilerException {
+    String key = location.getName() + ":" + targetPackage + ":" + resourceName;
+    AggregatedResource resource = resources.get(key);
+    if (resource == null) {
+      generatedFiles.claimResource(
+          location, targetPackage, resourceName, AggregatingResourceWriter.class.getName());
+      resource = new AggregatedResource(location, targetPackage, resourceName);
+      resources.put(key, resource);
+    }
+    return resource;
+  }
+
+  private static class AggregatedResource {
+    private final JavaFileManager.Location location;
+    private final String targetPackage;
+    private final String resourceName;
+    private final List<String> entries = new ArrayList<>();
+    private boolean written;
+
+    private AggregatedResource(
+        JavaFileManager.Location location, String targetPackage, String resourceName) {
+      this.location = location;
+      this.targetPackage = targetPackage;
+      this.resourceName = resourceName;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+/**
+ * A plain data copy of an annotation and its values, including the default values.
+ *
+ * <p>The values are one of {@link String}, a boxed primitive, {@link EnumConstant}, {@link
+ * ClassReference}, a nested {@link AnnotationSnapshot} or a {@link List} of these.
+ */
+public class AnnotationSnapshot {
+
+  private final String annotationName;
+  private final Map<String, Object> values;
+
+  public AnnotationSnapshot(String annotationName, Map<String, Object> values) {
+    this.annotationName = annotationName;
+    this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+  }
+
+  /**
+   * Creates a snapshot of an annotation mirror
+   *
+   * @param annotationMirror the annotation mirror
+   * @param elements the elements utils used to read the default values
+   * @return the annotation snapshot
+   */
+  public static AnnotationSnapshot of(AnnotationMirror annotationMirror, Elements elements) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        elements.getElementValuesWithDefaults(annotationMirror).entrySet()) {
+      values.put(
+          entry.getKey().getSimpleName().toString(),
+          valueOf(entry.getValue().getValue(), elements));
+    }
+    return new AnnotationSnapshot(AnnotationUtil.annotationName(annotationMirror), values);
+  }
+
+  private static Object valueOf(Object value, Elements elements) {
+    if (value instanceof TypeMirror) {
+      return new ClassReference(value.toString());
+    }
+    if (value instanceof VariableElement) {
+      VariableElement constant = (VariableElement) value;
+      return new EnumConstant(
+          constant.getEnclosingElement().toString(), constant.getSimpleName().toString());
+    }
+    if (value instanceof AnnotationMirror) {
+      return of((AnnotationMirror) value, elements);
+    }
+    if (value instanceof List) {
+      List<?> items = (List<?>) value;
+      List<Object> result = new ArrayList<>(items.size());
+      for (Object item : items) {
+        result.add(valueOf(((AnnotationValue) item).getValue(), elements));
+      }
+      return result;
+    }
+    return value;
+  }
+
+  /** @return the qualified name of the annotation */
+  public String getAnnotationName() {
+    return annotationName;
+  }
+
+  /** @return all the annotation values by member name */
+  public Map<String, Object> getValues() {
+    return values;
+  }
+
+  /**
+   * @param member the member name
+   * @return the value of the member, {@code null} if the member does not exist
+   */
+  public Object getValue(String member) {
+    return values.get(member);
+  }
+
+  /**
+   * @param member the member name
+   * @return the value of a {@link String} member
+   */
+  public String getString(String member) {
+    return (String) values.get(member);
+  }
+
+  /**
+   * @param member the member name
+   * @return the qualified name of the class of a {@link Class} member
+   */
+  public String getClassName(String member) {
+    return ((ClassReference) values.get(member)).getTypeName();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    AnnotationSnapshot that = (AnnotationSnapshot) o;
+    return annotationName.equals(that.annotationName) && values.equals(that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(annotationName, values);
+  }
+
+  /** A reference to an enum constant used as an annotation value */
+  public static class EnumConstant {
+    private final String enumType;
+    private final String name;
+
+    public EnumConstant(String enumType, String name) {
+      this.enumType = enumType;
+      this.name = name;
+    }
+
+    /** @return the qualified name of the enum */
+    public String getEnumType() {
+      return enumType;
+    }
+
+    /** @return the constant name */
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      EnumConstant that = (EnumConstant) o;
+      return enumType.equals(that.enumType) && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(enumType, name);
+    }
+
+    @Override
+    public String toString() {
+      return enumType + "." + name;
+    }
+  }
+
+  /** A reference to a class used as an annotation value */
+  public static class ClassReference {
+    private final String typeName;
+
+    public ClassReference(String typeName) {
+      this.typeName = typeName;
+    }
+
+    /** @return the name of the type */
+    public String getTypeName() {
+      return typeName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      return typeName.equals(((ClassReference) o).typeName);
+    }
+
+    @Override
+    public int hashCode() {
+      return typeName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return typeName + ".class";
+    }
+  }
+}
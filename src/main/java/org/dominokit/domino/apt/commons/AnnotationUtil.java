@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.SimpleAnnotationValueVisitor8;
+
+/**
+ * Utility methods for checking and reading annotations using their {@link AnnotationMirror}s only.
+ *
+ * <p>Unlike {@link Element#getAnnotation(Class)}, these methods never create a reflective proxy of
+ * the annotation and never rely on a {@link javax.lang.model.type.MirroredTypeException} to read
+ * {@link Class} valued members.
+ */
+public class AnnotationUtil {
+
+  private AnnotationUtil() {}
+
+  /**
+   * Checks if the element is annotated with an annotation
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return {@code true} if the element is annotated with the annotation, {@code false} otherwise
+   */
+  public static boolean isAnnotationPresent(
+      Element element, Class<? extends Annotation> annotation) {
+    return isAnnotationPresent(element, annotation.getCanonicalName());
+  }
+
+  /**
+   * Checks if the element is annotated with an annotation
+   *
+   * @param element the element
+   * @param annotationName the qualified name of the annotation
+   * @return {@code true} if the element is annotated with the annotation, {@code false} otherwise
+   */
+  public static boolean isAnnotationPresent(Element element, String annotationName) {
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      if (isAnnotationOfType(annotationMirror, annotationName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the annotation mirror of an annotation in an element
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return the annotation mirror if exists, {@link Optional#empty()} otherwise
+   */
+  public static Optional<AnnotationMirror> findAnnotationMirror(
+      Element element, Class<? extends Annotation> annotation) {
+    return findAnnotationMirror(element, annotation.getCanonicalName());
+  }
+
+  /**
+   * Finds the annotation mirror of an annotation in an element
+   *
+   * @param element the element
+   * @param annotationName the qualified name of the annotation
+   * @return the annotation mirror if exists, {@link Optional#empty()} otherwise
+   */
+  public static Optional<AnnotationMirror> findAnnotationMirror(
+      Element element, String annotationName) {
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      if (isAnnotationOfType(annotationMirror, annotationName)) {
+        return Optional.of(annotationMirror);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Checks if an annotation mirror is of a specific annotation type
+   *
+   * @param annotationMirror the annotation mirror
+   * @param annotationName the qualified name of the annotation
+   * @return {@code true} if the annotation mirror is of the annotation type, {@code false}
+   *     otherwise
+   */
+  public static boolean isAnnotationOfType(
+      AnnotationMirror annotationMirror, String annotationName) {
+    return ((TypeElement) annotationMirror.getAnnotationType().asElement())
+        .getQualifiedName()
+        .contentEquals(annotationName);
+  }
+
+  /**
+   * Returns the qualified name of the annotation type of an annotation mirror
+   *
+   * @param annotationMirror the annotation mirror
+   * @return the qualified name of the annotation type
+   */
+  public static String annotationName(AnnotationMirror annotationMirror) {
+    return ((TypeElement) annotationMirror.getAnnotationType().asElement())
+        .getQualifiedName()
+        .toString();
+  }
+
+  /**
+   * Returns the value of an annotation member that is explicitly set in the annotation mirror,
+   * default values are not included.
+   *
+   * @param annotationMirror the annotation mirror
+   * @param paramName the member name
+   * @return the value if explicitly set, {@link Optional#empty()} otherwise
+   */
+  public static Optional<AnnotationValue> getExplicitValue(
+      AnnotationMirror annotationMirror, String paramName) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        annotationMirror.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(paramName)) {
+        return Optional.of(entry.getValue());
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Reads a {@link Class} valued annotation member as a type mirror.
+   *
+   * @param annotationValue the annotation value
+   * @return the type mirror, {@link Optional#empty()} if the value is not a class
+   */
+  public static Optional<TypeMirror> asTypeMirror(AnnotationValue annotationValue) {
+    return Optional.ofNullable(annotationValue.accept(TypeValueVisitor.INSTANCE, null));
+  }
+
+  /**
+   * Reads a {@link Class} array valued annotation member as a list of type mirrors, a single class
+   * value is returned as a list of one type mirror.
+   *
+   * @param annotationValue the annotation value
+   * @return the list of type mirrors, empty list if the value is not a class or a class array
+   */
+  public static List<TypeMirror> asTypeMirrors(AnnotationValue annotationValue) {
+    return annotationValue.accept(TypeArrayValueVisitor.INSTANCE, null);
+  }
+
+  private static class TypeValueVisitor extends SimpleAnnotationValueVisitor8<TypeMirror, Void> {
+    private static final TypeValueVisitor INSTANCE = new TypeValueVisitor();
+
+    @Override
+    public TypeMirror visitType(TypeMirror t, Void unused) {
+      return t;
+    }
+  }
+
+  private static class TypeArrayValueVisitor
+      extends SimpleAnnotationValueVisitor8<List<TypeMirror>, Void> {
+    private static final TypeArrayValueVisitor INSTANCE = new TypeArrayValueVisitor();
+
+    private TypeArrayValueVisitor() {
+      super(Collections.emptyList());
+    }
+
+    @Override
+    public List<TypeMirror> visitType(TypeMirror t, Void unused) {
+      return Collections.singletonList(t);
+    }
+
+    @Override
+    public List<TypeMirror> visitArray(List<? extends AnnotationValue> values, Void unused) {
+      List<TypeMirror> result = new ArrayList<>(values.size());
+      for (AnnotationValue value : values) {
+        TypeMirror typeMirror = value.accept(TypeValueVisitor.INSTANCE, null);
+        if (typeMirror != null) {
+          result.add(typeMirror);
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+
+/**
+ * Reads annotation values from {@link AnnotationMirror}s into {@link AnnotationValues}.
+ *
+ * <p>For each annotation type an accessor plan is built once, it maps the annotation members names
+ * to value slots and to their position in the annotation type. The plan holds no element or value,
+ * so it stays valid across rounds, the default values of the members that are not set are read from
+ * the annotation type of the mirror, the same defaults returned by {@link
+ * javax.lang.model.util.Elements#getElementValuesWithDefaults(AnnotationMirror)}. The plan is then
+ * reused for every annotation mirror of that type read by this reader, except for annotation types
+ * that do not exist yet, which may be generated in a later round.
+ */
+public class AnnotationValueReader {
+
+  private final Map<String, AccessorPlan> plans = new HashMap<>();
+
+  /**
+   * Reads the values of an annotation from an element
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return the annotation values if the element has the annotation, {@link Optional#empty()}
+   *     otherwise
+   */
+  public Optional<AnnotationValues> read(Element element, Class<? extends Annotation> annotation) {
+    return read(element, annotation.getCanonicalName());
+  }
+
+  /**
+   * Reads the values of an annotation from an element
+   *
+   * @param element the element
+   * @param annotationName the qualified name of the annotation
+   * @return the annotation values if the element has the annotation, {@link Optional#empty()}
+   *     otherwise
+   */
+  public Optional<AnnotationValues> read(Element element, String annotationName) {
+    return AnnotationUtil.findAnnotationMirror(element, annotationName).map(this::read);
+  }
+
+  /**
+   * Reads the values of an annotation mirror including the default values
+   *
+   * @param annotationMirror the annotation mirror
+   * @return the annotation values
+   */
+  public AnnotationValues read(AnnotationMirror annotationMirror) {
+    TypeElement annotationType = (TypeElement) annotationMirror.getAnnotationType().asElement();
+    AccessorPlan plan =
+        annotationMirror.getAnnotationType().getKind() == TypeKind.ERROR
+            ? new AccessorPlan(annotationType)
+            : plans.computeIfAbsent(
+                annotationType.getQualifiedName().toString(),
+                name -> new AccessorPlan(annotationType));
+    return new AnnotationValues(this, annotationMirror, plan, plan.values(annotationMirror));
+  }
+
+  /** The members layout of a single annotation type. */
+  static class AccessorPlan {
+
+    private final String annotationName;
+    private final Map<String, Integer> slotsByName = new HashMap<>();
+    private final int[] memberPositions;
+
+    private AccessorPlan(TypeElement annotationType) {
+      this.annotationName = annotationType.getQualifiedName().toString();
+      List<? extends Element> members = annotationType.getEnclosedElements();
+      int[] positions = new int[members.size()];
+      int slot = 0;
+      for (int position = 0; position < members.size(); position++) {
+        Element member = members.get(position);
+        if (member.getKind() == ElementKind.METHOD) {
+          slotsByName.put(member.getSimpleName().toString(), slot);
+          positions[slot] = position;
+          slot++;
+        }
+      }
+      this.memberPositions = Arrays.copyOf(positions, slot);
+    }
+
+    private AnnotationValue[] values(AnnotationMirror annotationMirror) {
+      AnnotationValue[] values = new AnnotationValue[memberPositions.length];
+      int explicit = 0;
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+          annotationMirror.getElementValues().entrySet()) {
+        Integer slot = slotsByName.get(entry.getKey().getSimpleName().toString());
+        if (slot != null) {
+          values[slot] = entry.getValue();
+          explicit++;
+        }
+      }
+      if (explicit < values.length) {
+        List<? extends Element> members = members(annotationMirror);
+        for (int slot = 0; slot < values.length; slot++) {
+          if (values[slot] == null) {
+            values[slot] = defaultValue(members, slot);
+          }
+        }
+      }
+      return values;
+    }
+
+    int slot(String member) {
+      Integer slot = slotsByName.get(member);
+      if (slot == null) {
+        throw new IllegalArgumentException(
+            "Annotation @" + annotationName + " does not have a member named [" + member + "]");
+      }
+      return slot;
+    }
+
+    AnnotationValue defaultValue(AnnotationMirror annotationMirror, int slot) {
+      return defaultValue(members(annotationMirror), slot);
+    }
+
+    private AnnotationValue defaultValue(List<? extends Element> members, int slot) {
+      return ((ExecutableElement) members.get(memberPositions[slot])).getDefaultValue();
+    }
+
+    private static List<? extends Element> members(AnnotationMirror annotationMirror) {
+      return annotationMirror.getAnnotationType().asElement().getEnclosedElements();
+    }
+
+    String annotationName() {
+      return annotationName;
+    }
+  }
+}
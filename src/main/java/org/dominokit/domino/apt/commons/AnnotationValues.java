@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Typed access to the values of a single annotation mirror, including the members default values.
+ *
+ * <p>Instances are created by {@link AnnotationValueReader#read(AnnotationMirror)}.
+ */
+public class AnnotationValues {
+
+  private final AnnotationValueReader reader;
+  private final AnnotationMirror annotationMirror;
+  private final AnnotationValueReader.AccessorPlan plan;
+  private final AnnotationValue[] values;
+
+  AnnotationValues(
+      AnnotationValueReader reader,
+      AnnotationMirror annotationMirror,
+      AnnotationValueReader.AccessorPlan plan,
+      AnnotationValue[] values) {
+    this.reader = reader;
+    this.annotationMirror = annotationMirror;
+    this.plan = plan;
+    this.values = values;
+  }
+
+  /** @return the annotation mirror these values are read from */
+  public AnnotationMirror getAnnotationMirror() {
+    return annotationMirror;
+  }
+
+  AnnotationValueReader.AccessorPlan plan() {
+    return plan;
+  }
+
+  /**
+   * @param member the member name
+   * @return {@code true} if the member has a value, either explicit or default, {@code false}
+   *     otherwise
+   */
+  public boolean hasValue(String member) {
+    return Objects.nonNull(values[plan.slot(member)]);
+  }
+
+  /**
+   * @param member the member name
+   * @return {@code true} if the member value is not explicitly set, {@code false} otherwise
+   */
+  public boolean isDefault(String member) {
+    int slot = plan.slot(member);
+    return values[slot] == plan.defaultValue(annotationMirror, slot);
+  }
+
+  /**
+   * @param member the member name
+   * @return the raw annotation value of the member
+   */
+  public AnnotationValue getValue(String member) {
+    AnnotationValue value = values[plan.slot(member)];
+    if (Objects.isNull(value)) {
+      throw new IllegalArgumentException(
+          "Member [" + member + "] of @" + plan.annotationName() + " does not have a value");
+    }
+    return value;
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@link String} value of the member
+   */
+  public String getString(String member) {
+    return as(member, getValue(member).getValue(), String.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code boolean} value of the member
+   */
+  public boolean getBoolean(String member) {
+    return as(member, getValue(member).getValue(), Boolean.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code byte} value of the member
+   */
+  public byte getByte(String member) {
+    return as(member, getValue(member).getValue(), Byte.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code short} value of the member
+   */
+  public short getShort(String member) {
+    return as(member, getValue(member).getValue(), Short.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code char} value of the member
+   */
+  public char getChar(String member) {
+    return as(member, getValue(member).getValue(), Character.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code int} value of the member
+   */
+  public int getInt(String member) {
+    return as(member, getValue(member).getValue(), Integer.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code long} value of the member
+   */
+  public long getLong(String member) {
+    return as(member, getValue(member).getValue(), Long.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code float} value of the member
+   */
+  public float getFloat(String member) {
+    return as(member, getValue(member).getValue(), Float.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the {@code double} value of the member
+   */
+  public double getDouble(String member) {
+    return as(member, getValue(member).getValue(), Double.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the type mirror of a {@link Class} valued member
+   */
+  public TypeMirror getType(String member) {
+    return as(member, getValue(member).getValue(), TypeMirror.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the constant name of an enum valued member
+   */
+  public String getEnumName(String member) {
+    return as(member, getValue(member).getValue(), VariableElement.class)
+        .getSimpleName()
+        .toString();
+  }
+
+  /**
+   * @param member the member name
+   * @param enumType the enum class
+   * @param <E> the enum type
+   * @return the enum constant of an enum valued member
+   */
+  public <E extends Enum<E>> E getEnum(String member, Class<E> enumType) {
+    return Enum.valueOf(enumType, getEnumName(member));
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a nested annotation member
+   */
+  public AnnotationValues getAnnotation(String member) {
+    return reader.read(as(member, getValue(member).getValue(), AnnotationMirror.class));
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@link String} array member
+   */
+  public List<String> getStringArray(String member) {
+    return getArray(member, String.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the type mirrors of a {@link Class} array member
+   */
+  public List<TypeMirror> getTypeArray(String member) {
+    return getArray(member, TypeMirror.class);
+  }
+
+  /**
+   * @param member the member name
+   * @return the constant names of an enum array member
+   */
+  public List<String> getEnumNameArray(String member) {
+    List<VariableElement> constants = getArray(member, VariableElement.class);
+    List<String> names = new ArrayList<>(constants.size());
+    for (VariableElement constant : constants) {
+      names.add(constant.getSimpleName().toString());
+    }
+    return names;
+  }
+
+  /**
+   * @param member the member name
+   * @param enumType the enum class
+   * @param <E> the enum type
+   * @return the enum constants of an enum array member
+   */
+  public <E extends Enum<E>> List<E> getEnumArray(String member, Class<E> enumType) {
+    List<String> names = getEnumNameArray(member);
+    List<E> constants = new ArrayList<>(names.size());
+    for (String name : names) {
+      constants.add(Enum.valueOf(enumType, name));
+    }
+    return constants;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of each nested annotation in an annotation array member
+   */
+  public List<AnnotationValues> getAnnotationArray(String member) {
+    List<AnnotationMirror> mirrors = getArray(member, AnnotationMirror.class);
+    List<AnnotationValues> result = new ArrayList<>(mirrors.size());
+    for (AnnotationMirror mirror : mirrors) {
+      result.add(reader.read(mirror));
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code boolean} array member
+   */
+  public boolean[] getBooleanArray(String member) {
+    List<Boolean> items = getArray(member, Boolean.class);
+    boolean[] result = new boolean[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code byte} array member
+   */
+  public byte[] getByteArray(String member) {
+    List<Byte> items = getArray(member, Byte.class);
+    byte[] result = new byte[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code short} array member
+   */
+  public short[] getShortArray(String member) {
+    List<Short> items = getArray(member, Short.class);
+    short[] result = new short[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code char} array member
+   */
+  public char[] getCharArray(String member) {
+    List<Character> items = getArray(member, Character.class);
+    char[] result = new char[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of an {@code int} array member
+   */
+  public int[] getIntArray(String member) {
+    List<Integer> items = getArray(member, Integer.class);
+    int[] result = new int[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code long} array member
+   */
+  public long[] getLongArray(String member) {
+    List<Long> items = getArray(member, Long.class);
+    long[] result = new long[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code float} array member
+   */
+  public float[] getFloatArray(String member) {
+    List<Float> items = getArray(member, Float.class);
+    float[] result = new float[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @param member the member name
+   * @return the values of a {@code double} array member
+   */
+  public double[] getDoubleArray(String member) {
+    List<Double> items = getArray(member, Double.class);
+    double[] result = new double[items.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = items.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the items of an array member, a single value assigned to an array member is returned as
+   * a list of one item.
+   *
+   * @param member the member name
+   * @param itemType the expected type of the items
+   * @param <T> the items type
+   * @return the items of the array member
+   */
+  public <T> List<T> getArray(String member, Class<T> itemType) {
+    Object value = getValue(member).getValue();
+    if (!(value instanceof List)) {
+      return Collections.singletonList(as(member, value, itemType));
+    }
+    List<?> items = (List<?>) value;
+    List<T> result = new ArrayList<>(items.size());
+    for (Object item : items) {
+      result.add(as(member, ((AnnotationValue) item).getValue(), itemType));
+    }
+    return result;
+  }
+
+  private <T> T as(String member, Object value, Class<T> type) {
+    if (!type.isInstance(value)) {
+      throw new IllegalArgumentException(
+          "Member ["
+              + member
+              + "] of @"
+              + plan.annotationName()
+              + " is not of type "
+              + type.getSimpleName());
+    }
+    return type.cast(value);
+  }
+}
@@ -17,16 +17,22 @@ package org.dominokit.domino.apt.commons;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
 
@@ -38,6 +44,11 @@ public abstract class BaseProcessor extends AbstractProcessor {
   protected Filer filer;
   protected Messager messager;
   protected ElementFactory elementFactory;
+  protected GeneratedFilesRegistry generatedFiles;
+  protected AggregatingResourceWriter aggregatingResources;
+  private RoundElementIndex roundElementIndex;
+  private ProcessingEvents.RoundEvent roundEvent;
+  private int round;
 
   @Override
   public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -47,6 +58,21 @@ public abstract class BaseProcessor extends AbstractProcessor {
     this.filer = processingEnv.getFiler();
     this.messager = processingEnv.getMessager();
     this.elementFactory = new ElementFactory(elementUtils, typeUtils);
+    this.generatedFiles = GeneratedFilesRegistry.of(processingEnv);
+    this.aggregatingResources = AggregatingResourceWriter.of(processingEnv);
+  }
+
+  /**
+   * Adds the options supported by the library, see {@link ProcessorOptions}, to the options
+   * declared by the processor
+   *
+   * @return the supported options
+   */
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> options = new HashSet<>(super.getSupportedOptions());
+    options.addAll(ProcessorOptions.supportedOptions());
+    return options;
   }
 
   /**
@@ -68,10 +94,14 @@ public abstract class BaseProcessor extends AbstractProcessor {
    * @param className the class name
    * @return the source file as a {@link JavaFileObject}
    * @throws IOException if the writer cannot be created
+   * @throws javax.annotation.processing.FilerException if the same source file was already
+   *     generated
    */
   protected JavaFileObject createSourceFile(String targetPackage, String className)
       throws IOException {
-    return filer.createSourceFile(targetPackage + "." + className);
+    String qualifiedName = targetPackage + "." + className;
+    generatedFiles.claimSource(qualifiedName, getClass().getName());
+    return filer.createSourceFile(qualifiedName);
   }
 
   /**
@@ -94,12 +124,138 @@ public abstract class BaseProcessor extends AbstractProcessor {
    * @param resourceName the resource name
    * @return the resource file as a {@link FileObject}
    * @throws IOException if the writer cannot be created
+   * @throws javax.annotation.processing.FilerException if the same resource was already generated
    */
   protected FileObject createResourceFile(String targetPackage, String resourceName)
       throws IOException {
+    generatedFiles.claimResource(
+        StandardLocation.SOURCE_OUTPUT, targetPackage, resourceName, getClass().getName());
     return filer.createResource(StandardLocation.SOURCE_OUTPUT, targetPackage, resourceName);
   }
 
+  /**
+   * Appends a line to a resource that is written once when processing is over, see {@link
+   * #flushAggregatedResources(RoundEnvironment)}
+   *
+   * @param location the location of the resource, e.g {@link StandardLocation#CLASS_OUTPUT}
+   * @param targetPackage the package of the resource
+   * @param resourceName the resource name
+   * @param entry the line to append
+   * @throws IOException if the resource is generated by something else
+   */
+  protected void appendToResource(
+      JavaFileManager.Location location, String targetPackage, String resourceName, String entry)
+      throws IOException {
+    aggregatingResources.append(location, targetPackage, resourceName, entry);
+  }
+
+  /**
+   * Writes the aggregated resources in the final round once every processor sharing them is done,
+   * see {@link AggregatingResourceWriter#flush(Object, RoundEnvironment, Filer)}, this should be
+   * called at the end of {@link #process(Set, RoundEnvironment)} in every round
+   *
+   * @param roundEnv the current round environment
+   */
+  protected void flushAggregatedResources(RoundEnvironment roundEnv) {
+    try {
+      aggregatingResources.flush(this, roundEnv, filer);
+    } catch (IOException e) {
+      ExceptionUtil.messageStackTrace(messager, e);
+    }
+  }
+
+  /**
+   * Returns the {@link RoundElementIndex} of the supported annotation types, the root elements of a
+   * round are indexed once on first call within the round
+   *
+   * @param roundEnv the current round environment
+   * @return the index of the round
+   */
+  protected RoundElementIndex roundElementIndex(RoundEnvironment roundEnv) {
+    if (roundElementIndex == null) {
+      roundElementIndex = new RoundElementIndex(getSupportedAnnotationTypes());
+    }
+    return roundElementIndex.index(roundEnv);
+  }
+
+  /**
+   * Returns the elements annotated with an annotation from the {@link RoundElementIndex}, unlike
+   * {@link RoundEnvironment#getElementsAnnotatedWith(Class)} elements annotated through a
+   * meta-annotation are included. Annotations that are not supported by the processor are looked up
+   * in the round environment. When {@link ProcessorOptions#DETERMINISTIC} is enabled the elements
+   * are in {@link ProcessorUtil#stableOrder(java.util.Collection)}.
+   *
+   * @param roundEnv the current round environment
+   * @param annotation the annotation
+   * @return the annotated elements
+   */
+  protected Set<? extends Element> getElementsAnnotatedWith(
+      RoundEnvironment roundEnv, Class<? extends Annotation> annotation) {
+    RoundElementIndex index = roundElementIndex(roundEnv);
+    Set<? extends Element> elements =
+        index.isIndexed(annotation.getCanonicalName())
+            ? index.getElementsAnnotatedWith(annotation)
+            : roundEnv.getElementsAnnotatedWith(annotation);
+    if (ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.DETERMINISTIC)) {
+      return Collections.unmodifiableSet(
+          new LinkedHashSet<>(new ProcessorUtil(processingEnv).stableOrder(elements)));
+    }
+    return elements;
+  }
+
+  /**
+   * Runs a step with the elements annotated with an annotation, see {@link
+   * #getElementsAnnotatedWith(RoundEnvironment, Class)}, and records a {@link
+   * ProcessingEvents.StepEvent} for it when the event is enabled
+   *
+   * @param step the step
+   * @param roundEnv the current round environment
+   * @param annotation the annotation
+   */
+  protected void runStep(
+      ProcessingStep step, RoundEnvironment roundEnv, Class<? extends Annotation> annotation) {
+    ProcessingEvents.StepEvent event = new ProcessingEvents.StepEvent();
+    event.begin();
+    Set<? extends Element> elements = getElementsAnnotatedWith(roundEnv, annotation);
+    step.process(elements);
+    if (event.shouldCommit()) {
+      event.step = step.getClass().getName();
+      event.annotation = annotation.getCanonicalName();
+      event.elementCount = elements.size();
+      event.commit();
+    }
+  }
+
+  /**
+   * Marks the beginning of a round for the {@link ProcessingEvents}, this should be called at the
+   * beginning of {@link #process(Set, RoundEnvironment)} with a matching {@link
+   * #endRound(RoundEnvironment)}
+   *
+   * @param roundEnv the current round environment
+   */
+  protected void beginRound(RoundEnvironment roundEnv) {
+    round++;
+    roundEvent = new ProcessingEvents.RoundEvent();
+    roundEvent.begin();
+  }
+
+  /**
+   * Marks the end of a round for the {@link ProcessingEvents}
+   *
+   * @param roundEnv the current round environment
+   */
+  protected void endRound(RoundEnvironment roundEnv) {
+    ProcessingEvents.RoundEvent event = roundEvent;
+    roundEvent = null;
+    if (event != null && event.shouldCommit()) {
+      event.processor = getClass().getName();
+      event.round = round;
+      event.rootElements = roundEnv.getRootElements().size();
+      event.processingOver = roundEnv.processingOver();
+      event.commit();
+    }
+  }
+
   /**
    * Checks if an element is of a specific {@link ElementKind}
    *
@@ -107,6 +263,7 @@ public abstract class BaseProcessor extends AbstractProcessor {
    * @param kind the kind
    * @return {@code true} if the element is of the kind, throws exception otherwise
    * @throws ProcessingException if the element is not of the kind
+   * @see ElementValidator for collecting all the violations without exceptions
    */
   protected boolean validateElementKind(Element element, ElementKind kind) {
     if (element.getKind() != kind)
@@ -138,6 +295,16 @@ public abstract class BaseProcessor extends AbstractProcessor {
     public ProcessorElement make(Element element) {
       return new ProcessorElement(element, this.elementUtils, this.typeUtils, messager);
     }
+
+    /**
+     * Creates a processor element from a handle kept from a previous round
+     *
+     * @param handle the element handle
+     * @return a new processor element resolved against the current round
+     */
+    public ProcessorElement make(ElementHandle handle) {
+      return new ProcessorElement(handle, this.elementUtils, this.typeUtils, messager);
+    }
   }
 
   /** A step in the process of generation */
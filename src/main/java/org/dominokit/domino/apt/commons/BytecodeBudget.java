@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+
+/**
+ * Checks generated types against the JVM limits that affect JIT compilation, using the estimates of
+ * {@link BytecodeSizeEstimator}.
+ *
+ * <ul>
+ *   <li>a method over the huge method limit, 8000 bytes by default, is never JIT compiled and is
+ *       reported as a warning
+ *   <li>a method over the frequent inline size, 325 bytes by default, is not inlined even when hot
+ *       and is reported as a note
+ *   <li>a method over the max inline size, usually 35 bytes, is not inlined unless hot, it is only
+ *       reported when {@link ProcessorOptions#MAX_INLINE_SIZE} is set
+ *   <li>a type over the constant pool limit, 60000 entries by default, is reported as a warning
+ * </ul>
+ *
+ * The analysis is enabled with {@link ProcessorOptions#BYTECODE_ANALYSIS}.
+ */
+public class BytecodeBudget {
+
+  public static final int DEFAULT_FREQ_INLINE_SIZE = 325;
+  public static final int DEFAULT_HUGE_METHOD_LIMIT = 8000;
+  public static final int DEFAULT_CONSTANT_POOL_LIMIT = 60000;
+
+  private final int maxInlineSize;
+  private final int freqInlineSize;
+  private final int hugeMethodLimit;
+  private final int constantPoolLimit;
+
+  /**
+   * @param maxInlineSize the max inline size, {@code 0} to not report it
+   * @param freqInlineSize the frequent inline size
+   * @param hugeMethodLimit the huge method limit
+   * @param constantPoolLimit the constant pool entries limit
+   */
+  public BytecodeBudget(
+      int maxInlineSize, int freqInlineSize, int hugeMethodLimit, int constantPoolLimit) {
+    this.maxInlineSize = maxInlineSize;
+    this.freqInlineSize = freqInlineSize;
+    this.hugeMethodLimit = hugeMethodLimit;
+    this.constantPoolLimit = constantPoolLimit;
+  }
+
+  /**
+   * Creates the budget from the processor options
+   *
+   * @param processingEnv the processing environment
+   * @return the budget if {@link ProcessorOptions#BYTECODE_ANALYSIS} is enabled, {@link
+   *     Optional#empty()} otherwise
+   */
+  public static Optional<BytecodeBudget> of(ProcessingEnvironment processingEnv) {
+    if (!ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.BYTECODE_ANALYSIS)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new BytecodeBudget(
+            ProcessorOptions.getIntValue(processingEnv, ProcessorOptions.MAX_INLINE_SIZE, 0),
+            ProcessorOptions.getIntValue(
+                processingEnv, ProcessorOptions.FREQ_INLINE_SIZE, DEFAULT_FREQ_INLINE_SIZE),
+            ProcessorOptions.getIntValue(
+                processingEnv, ProcessorOptions.HUGE_METHOD_LIMIT, DEFAULT_HUGE_METHOD_LIMIT),
+            ProcessorOptions.getIntValue(
+                processingEnv, ProcessorOptions.CONSTANT_POOL_LIMIT, DEFAULT_CONSTANT_POOL_LIMIT)));
+  }
+
+  /**
+   * Analyzes a type and its nested types
+   *
+   * @param type the type
+   * @return the budget violations, empty list if the type is within the budget
+   */
+  public List<ValidationDiagnostic> analyze(TypeSpec type) {
+    List<ValidationDiagnostic> diagnostics = new ArrayList<>();
+    analyze(type, type.name, diagnostics);
+    return diagnostics;
+  }
+
+  private void analyze(TypeSpec type, String typeName, List<ValidationDiagnostic> diagnostics) {
+    Element element = type.originatingElements.isEmpty() ? null : type.originatingElements.get(0);
+    for (MethodSpec method : type.methodSpecs) {
+      int size = BytecodeSizeEstimator.estimate(method);
+      String name = typeName + "." + method.name;
+      if (size > hugeMethodLimit) {
+        diagnostics.add(
+            diagnostic(
+                Diagnostic.Kind.WARNING,
+                element,
+                name,
+                size,
+                "the huge method limit of " + hugeMethodLimit + ", it will not be JIT compiled"));
+      } else if (size > freqInlineSize) {
+        diagnostics.add(
+            diagnostic(
+                Diagnostic.Kind.NOTE,
+                element,
+                name,
+                size,
+                "the frequent inline size of " + freqInlineSize + ", it will not be inlined"));
+      } else if (maxInlineSize > 0 && size > maxInlineSize) {
+        diagnostics.add(
+            diagnostic(
+                Diagnostic.Kind.NOTE,
+                element,
+                name,
+                size,
+                "the max inline size of " + maxInlineSize + ", it is only inlined when hot"));
+      }
+    }
+    int constantPool = BytecodeSizeEstimator.estimateConstantPool(type);
+    if (constantPool > constantPoolLimit) {
+      diagnostics.add(
+          new ValidationDiagnostic(
+              Diagnostic.Kind.WARNING,
+              element,
+              null,
+              "Generated type ["
+                  + typeName
+                  + "] is estimated at "
+                  + constantPool
+                  + " constant pool entries, over the limit of "
+                  + constantPoolLimit));
+    }
+    for (TypeSpec nested : type.typeSpecs) {
+      analyze(nested, typeName + "." + nested.name, diagnostics);
+    }
+  }
+
+  private static ValidationDiagnostic diagnostic(
+      Diagnostic.Kind kind, Element element, String method, int size, String limit) {
+    return new ValidationDiagnostic(
+        kind,
+        element,
+        null,
+        "Generated method ["
+            + method
+            + "] is estimated at "
+            + size
+            + " bytes of bytecode, over "
+            + limit);
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Estimates the bytecode size of generated methods and the constant pool size of generated types
+ * from their JavaPoet model, without compiling them.
+ *
+ * <p>The estimate is computed from the tokens of the method code, each token is given the size of
+ * the instructions javac usually emits for it, e.g. a method call is an {@code invoke*} with a two
+ * bytes index, a {@code new} is a {@code new} and a {@code dup}, a condition is a branch with a two
+ * bytes offset. The estimate is meant to find methods that are well over or well under a budget, it
+ * is not exact, lambda bodies for example are counted in the enclosing method.
+ */
+public class BytecodeSizeEstimator {
+
+  private static final Pattern PACKAGE_PREFIX =
+      Pattern.compile("\\b(?:[a-z_$][\\w$]*\\.)+(?=[A-Z])");
+
+  private static final Set<String> NO_CODE_KEYWORDS =
+      new HashSet<>(
+          Arrays.asList(
+              "boolean", "byte", "char", "short", "int", "long", "float", "double", "void", "final",
+              "var", "try", "finally", "extends"));
+
+  private static final String[] OPERATORS = {
+    ">>>=", "<<=", ">>=", ">>>", "->", "::", "==", "!=", "<=", ">=", "&&", "||", "++", "--", "+=",
+    "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<", ">>"
+  };
+
+  private BytecodeSizeEstimator() {}
+
+  /**
+   * Estimates the size in bytes of the bytecode of a method
+   *
+   * @param method the method
+   * @return the estimated size, {@code 0} for abstract methods
+   */
+  public static int estimate(MethodSpec method) {
+    if (method.code.isEmpty()) {
+      return method.hasModifier(Modifier.ABSTRACT) ? 0 : 1;
+    }
+    int size = estimate(method.code.toString());
+    return TypeName.VOID.equals(method.returnType) || method.isConstructor() ? size + 1 : size;
+  }
+
+  /**
+   * Estimates the size in bytes of the bytecode of a block of java statements
+   *
+   * @param code the statements
+   * @return the estimated size
+   */
+  public static int estimate(String code) {
+    List<String> tokens = tokenize(code);
+    int size = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      size += tokenSize(tokens, i);
+    }
+    return size;
+  }
+
+  /**
+   * Estimates the number of constant pool entries of a type, nested types have their own constant
+   * pool and are not included
+   *
+   * @param type the type
+   * @return the estimated number of entries
+   */
+  public static int estimateConstantPool(TypeSpec type) {
+    Set<String> strings = new HashSet<>();
+    Set<String> members = new HashSet<>();
+    Set<String> types = new HashSet<>();
+    for (MethodSpec method : type.methodSpecs) {
+      members.add(method.name);
+      collectConstants(tokenize(method.code.toString()), strings, members, types);
+    }
+    for (FieldSpec field : type.fieldSpecs) {
+      members.add(field.name);
+      types.add(field.type.toString());
+      collectConstants(tokenize(field.initializer.toString()), strings, members, types);
+    }
+    collectConstants(tokenize(type.staticBlock.toString()), strings, members, types);
+    collectConstants(tokenize(type.initializerBlock.toString()), strings, members, types);
+    // this class, super class, their names and the attribute names always present
+    int entries = 10;
+    entries += strings.size() * 2;
+    entries += members.size() * 4;
+    entries += types.size() * 2;
+    return entries;
+  }
+
+  private static void collectConstants(
+      List<String> tokens, Set<String> strings, Set<String> members, Set<String> types) {
+    for (int i = 0; i < tokens.size(); i++) {
+      String token = tokens.get(i);
+      char first = token.charAt(0);
+      if (first == '"') {
+        strings.add(token);
+      } else if (Character.isJavaIdentifierStart(first)) {
+        if (isCall(tokens, i) || isAfterDot(tokens, i)) {
+          members.add(token);
+        } else if (Character.isUpperCase(first)) {
+          types.add(token);
+        }
+      }
+    }
+  }
+
+  private static int tokenSize(List<String> tokens, int index) {
+    String token = tokens.get(index);
+    char first = token.charAt(0);
+    if (first == '"' || first == '\'' || Character.isDigit(first)) {
+      return 2;
+    }
+    if (Character.isJavaIdentifierStart(first)) {
+      return identifierSize(tokens, index, token);
+    }
+    switch (token) {
+      case "=":
+      case "(":
+      case ")":
+      case "{":
+      case "}":
+      case "]":
+      case ",":
+      case ";":
+      case ".":
+      case ":":
+        return 0;
+      case "[":
+        return next(tokens, index).equals("]") ? 0 : 1;
+      case "==":
+      case "!=":
+      case "<":
+      case ">":
+      case "<=":
+      case ">=":
+      case "&&":
+      case "||":
+        return 3;
+      case "!":
+        return 4;
+      case "?":
+        return 6;
+      case "->":
+      case "::":
+        return 5;
+      case "++":
+      case "--":
+        return 3;
+      default:
+        // arithmetic, bitwise and compound assignment operators
+        return token.endsWith("=") ? 2 : 1;
+    }
+  }
+
+  private static int identifierSize(List<String> tokens, int index, String token) {
+    switch (token) {
+      case "new":
+        return 4;
+      case "return":
+      case "throw":
+      case "this":
+      case "super":
+      case "true":
+      case "false":
+      case "null":
+      case "catch":
+        return 1;
+      case "if":
+      case "do":
+      case "else":
+      case "break":
+      case "continue":
+      case "instanceof":
+        return 3;
+      case "for":
+      case "while":
+        return 6;
+      case "switch":
+        return 16;
+      case "case":
+        return 8;
+      case "default":
+        return 4;
+      case "synchronized":
+        return 6;
+      case "class":
+        return isAfterDot(tokens, index) ? 2 : 0;
+      default:
+        break;
+    }
+    if (NO_CODE_KEYWORDS.contains(token)) {
+      return 0;
+    }
+    if (index > 0 && tokens.get(index - 1).equals("::")) {
+      return 0;
+    }
+    if (isCall(tokens, index)) {
+      return 3;
+    }
+    if (Character.isUpperCase(token.charAt(0))) {
+      // a constant is a static field, other upper case names are types
+      return isConstantName(token) ? 3 : 0;
+    }
+    return isAfterDot(tokens, index) ? 3 : 1;
+  }
+
+  private static boolean isConstantName(String token) {
+    if (token.length() < 2) {
+      return false;
+    }
+    for (int i = 0; i < token.length(); i++) {
+      char c = token.charAt(i);
+      if (Character.isLowerCase(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isCall(List<String> tokens, int index) {
+    return next(tokens, index).equals("(");
+  }
+
+  private static boolean isAfterDot(List<String> tokens, int index) {
+    return index > 0 && tokens.get(index - 1).equals(".");
+  }
+
+  private static String next(List<String> tokens, int index) {
+    return index + 1 < tokens.size() ? tokens.get(index + 1) : "";
+  }
+
+  static List<String> tokenize(String code) {
+    String source = PACKAGE_PREFIX.matcher(code).replaceAll("");
+    List<String> tokens = new ArrayList<>();
+    int length = source.length();
+    int i = 0;
+    while (i < length) {
+      char c = source.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+        i = source.indexOf('\n', i);
+        i = i < 0 ? length : i;
+      } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+        i = source.indexOf("*/", i + 2);
+        i = i < 0 ? length : i + 2;
+      } else if (c == '"' || c == '\'') {
+        int end = literalEnd(source, i, c);
+        tokens.add(source.substring(i, end));
+        i = end;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int end = i + 1;
+        while (end < length && Character.isJavaIdentifierPart(source.charAt(end))) {
+          end++;
+        }
+        String identifier = source.substring(i, end);
+        tokens.add(identifier);
+        i = end;
+        if (Character.isUpperCase(c) && !isConstantName(identifier)) {
+          i = skipTypeArguments(source, i);
+        }
+      } else if (Character.isDigit(c)) {
+        int end = i + 1;
+        while (end < length
+            && (Character.isLetterOrDigit(source.charAt(end)) || source.charAt(end) == '.')) {
+          end++;
+        }
+        tokens.add(source.substring(i, end));
+        i = end;
+      } else {
+        String operator = operator(source, i);
+        tokens.add(operator);
+        i += operator.length();
+      }
+    }
+    return tokens;
+  }
+
+  /** Skips the type arguments of a type name, they are erased and have no bytecode */
+  private static int skipTypeArguments(String source, int start) {
+    int i = start;
+    while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+      i++;
+    }
+    if (i >= source.length() || source.charAt(i) != '<') {
+      return start;
+    }
+    int depth = 0;
+    for (; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '<') {
+        depth++;
+      } else if (c == '>') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      } else if (!Character.isJavaIdentifierPart(c)
+          && !Character.isWhitespace(c)
+          && ".,?[]&".indexOf(c) < 0) {
+        return start;
+      }
+    }
+    return start;
+  }
+
+  private static int literalEnd(String source, int start, char quote) {
+    int i = start + 1;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return source.length();
+  }
+
+  private static String operator(String source, int start) {
+    for (String operator : OPERATORS) {
+      if (source.startsWith(operator, start)) {
+        return operator;
+      }
+    }
+    return String.valueOf(source.charAt(start));
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ModuleElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * A JVM wide cache of the metadata of binary types loaded from jars and from the JDK, for
+ * compilations that run in a long lived daemon such as a Gradle or Bazel worker. Enabled by {@link
+ * ProcessorOptions#CLASSPATH_CACHE}.
+ *
+ * <p>The metadata is stored as plain strings, no compiler object is retained between compilations.
+ * Every jar has its own entry keyed by its path, the size and last modified time of the jar are
+ * checked once per compilation and a changed jar drops all its cached metadata. JDK types are keyed
+ * by the JDK home, the source version and their module. Types compiled from sources or loaded from
+ * class directories are never cached.
+ *
+ * <p>Only the erased direct supertypes of a type are cached, the supertype closure is composed from
+ * them at query time so that every jar contributing to the closure is checked, see {@link
+ * ProcessorUtil#supertypeNames(javax.lang.model.type.TypeMirror)}. Types with an erroneous
+ * supertype, e.g missing from the classpath, are not cached.
+ *
+ * <p>The state kept per compilation only holds strings, the processing environment is held by the
+ * view returned from {@link #of(ProcessingEnvironment)} and is never shared.
+ */
+public class ClasspathMetadataCache {
+
+  private static final Map<String, ClasspathEntry> ENTRIES = new ConcurrentHashMap<>();
+  private static final Map<Filer, CompilationEntries> COMPILATIONS = new WeakHashMap<>();
+
+  private final ProcessingEnvironment processingEnv;
+  private final CompilationEntries compilationEntries;
+
+  private ClasspathMetadataCache(
+      ProcessingEnvironment processingEnv, CompilationEntries compilationEntries) {
+    this.processingEnv = processingEnv;
+    this.compilationEntries = compilationEntries;
+  }
+
+  /**
+   * Returns the cache view of the processing environment
+   *
+   * @param processingEnv the processing environment
+   * @return the cache if {@link ProcessorOptions#CLASSPATH_CACHE} is enabled, {@link
+   *     Optional#empty()} otherwise
+   */
+  public static Optional<ClasspathMetadataCache> of(ProcessingEnvironment processingEnv) {
+    if (!ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.CLASSPATH_CACHE)) {
+      return Optional.empty();
+    }
+    CompilationEntries compilationEntries;
+    synchronized (COMPILATIONS) {
+      compilationEntries =
+          COMPILATIONS.computeIfAbsent(processingEnv.getFiler(), filer -> new CompilationEntries());
+    }
+    return Optional.of(new ClasspathMetadataCache(processingEnv, compilationEntries));
+  }
+
+  /**
+   * Returns the erased direct supertypes of a type, from the cache if the type is a binary type
+   * that was already seen, otherwise computed and cached if the type is a binary type
+   *
+   * @param typeElement the type
+   * @return the qualified names of the super class and interfaces of the type, an erroneous
+   *     supertype is listed by its name as written in the source
+   */
+  public List<String> directSupertypes(TypeElement typeElement) {
+    Optional<ClasspathEntry> entry = entryOf(typeElement);
+    String qualifiedName = typeElement.getQualifiedName().toString();
+    if (entry.isPresent()) {
+      List<String> supertypes = entry.get().directSupertypes.get(qualifiedName);
+      if (supertypes != null) {
+        return supertypes;
+      }
+    }
+    List<String> supertypes = new ArrayList<>();
+    boolean complete = true;
+    Types types = processingEnv.getTypeUtils();
+    for (TypeMirror supertype : types.directSupertypes(typeElement.asType())) {
+      if (supertype.getKind() == TypeKind.DECLARED) {
+        supertypes.add(((TypeElement) types.asElement(supertype)).getQualifiedName().toString());
+      } else if (supertype.getKind() == TypeKind.ERROR) {
+        supertypes.add(supertype.toString());
+        complete = false;
+      }
+    }
+    supertypes = Collections.unmodifiableList(supertypes);
+    if (entry.isPresent() && complete) {
+      entry.get().directSupertypes.put(qualifiedName, supertypes);
+    }
+    return supertypes;
+  }
+
+  /** Drops all the cached metadata of the JVM */
+  public static void clear() {
+    ENTRIES.clear();
+  }
+
+  private Optional<ClasspathEntry> entryOf(TypeElement typeElement) {
+    synchronized (compilationEntries) {
+      String qualifiedName = typeElement.getQualifiedName().toString();
+      Optional<ClasspathEntry> entry = compilationEntries.entriesByType.get(qualifiedName);
+      if (entry == null) {
+        entry = locationOf(typeElement).flatMap(this::entryAt);
+        compilationEntries.entriesByType.put(qualifiedName, entry);
+      }
+      return entry;
+    }
+  }
+
+  private Optional<String> locationOf(TypeElement typeElement) {
+    Elements elements = processingEnv.getElementUtils();
+    ModuleElement module = elements.getModuleOf(typeElement);
+    if (module != null && !module.isUnnamed()) {
+      String moduleName = module.getQualifiedName().toString();
+      if (moduleName.startsWith("java.") || moduleName.startsWith("jdk.")) {
+        return Optional.of(
+            "jrt:"
+                + System.getProperty("java.home")
+                + "!"
+                + processingEnv.getSourceVersion()
+                + "!"
+                + moduleName);
+      }
+      return Optional.empty();
+    }
+    PackageElement packageElement = elements.getPackageOf(typeElement);
+    String packageName = packageElement.getQualifiedName().toString();
+    String binaryName = elements.getBinaryName(typeElement).toString();
+    String relativeName =
+        (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            + ".class";
+    try {
+      FileObject classFile =
+          processingEnv
+              .getFiler()
+              .getResource(StandardLocation.CLASS_PATH, packageName, relativeName);
+      URI uri = classFile.toUri();
+      String location = uri.toString();
+      if (!"jar".equals(uri.getScheme()) || location.indexOf("!/") < 0) {
+        return Optional.empty();
+      }
+      return Optional.of(location.substring("jar:".length(), location.indexOf("!/")));
+    } catch (IOException | IllegalArgumentException | UnsupportedOperationException e) {
+      return Optional.empty();
+    }
+  }
+
+  private Optional<ClasspathEntry> entryAt(String location) {
+    return compilationEntries.entriesByLocation.computeIfAbsent(
+        location,
+        key -> {
+          String stamp;
+          if (key.startsWith("jrt:")) {
+            stamp = "";
+          } else {
+            try {
+              Path jar = Paths.get(URI.create(key));
+              stamp = Files.size(jar) + ":" + Files.getLastModifiedTime(jar).toMillis();
+            } catch (IOException | IllegalArgumentException e) {
+              return Optional.empty();
+            }
+          }
+          return Optional.of(
+              ENTRIES.compute(
+                  key,
+                  (name, entry) ->
+                      entry != null && entry.stamp.equals(stamp)
+                          ? entry
+                          : new ClasspathEntry(stamp)));
+        });
+  }
+
+  /** The entries resolved in a compilation, only holds strings and JVM wide entries */
+  private static class CompilationEntries {
+    private final Map<String, Optional<ClasspathEntry>> entriesByType = new HashMap<>();
+    private final Map<String, Optional<ClasspathEntry>> entriesByLocation = new HashMap<>();
+  }
+
+  private static class ClasspathEntry {
+    private final String stamp;
+    private final Map<String, List<String>> directSupertypes = new ConcurrentHashMap<>();
+
+    private ClasspathEntry(String stamp) {
+      this.stamp = stamp;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A JavaPoet format string parsed once and applied to many argument lists, for statements that are
+ * generated once per item with the same format.
+ *
+ * <pre>
+ * CodeTemplate register = CodeTemplate.of("registry.register($S, new $T())");
+ * for (Entry entry : entries) {
+ *   register.addStatement(methodBuilder, entry.getKey(), entry.getType());
+ * }
+ * </pre>
+ *
+ * The result is the same as {@link CodeBlock#of(String, Object...)} with the same format and
+ * arguments. Relative {@code $L $S $T $N} and indexed {@code $1L} placeholders and the {@code $$ $>
+ * $< $[ $] $W $Z} controls are supported, named placeholders are not.
+ */
+public final class CodeTemplate {
+
+  private static final String PLACEHOLDERS = "LSTN";
+  private static final String CONTROLS = "<>[]WZ";
+
+  private final String format;
+  private final List<Part> parts;
+  private final int argumentCount;
+
+  private CodeTemplate(String format, List<Part> parts, int argumentCount) {
+    this.format = format;
+    this.parts = parts;
+    this.argumentCount = argumentCount;
+  }
+
+  /**
+   * Parses a format
+   *
+   * @param format the JavaPoet format
+   * @return the template
+   * @throws IllegalArgumentException if the format is not valid or uses named placeholders
+   */
+  public static CodeTemplate of(String format) {
+    List<Part> parts = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    boolean escaped = false;
+    int relativeIndex = 0;
+    int argumentCount = 0;
+    boolean indexed = false;
+    int p = 0;
+    while (p < format.length()) {
+      char c = format.charAt(p);
+      if (c != '$') {
+        literal.append(c);
+        p++;
+        continue;
+      }
+      if (p + 1 >= format.length()) {
+        throw new IllegalArgumentException("dangling $ at end of [" + format + "]");
+      }
+      char next = format.charAt(p + 1);
+      if (next == '$') {
+        literal.append('$');
+        escaped = true;
+        p += 2;
+        continue;
+      }
+      addLiteral(parts, literal, escaped);
+      escaped = false;
+      if (CONTROLS.indexOf(next) >= 0) {
+        parts.add(new Part("$" + next, -1));
+        p += 2;
+        continue;
+      }
+      int end = p + 1;
+      while (end < format.length() && Character.isDigit(format.charAt(end))) {
+        end++;
+      }
+      if (end >= format.length() || PLACEHOLDERS.indexOf(format.charAt(end)) < 0) {
+        throw new IllegalArgumentException(
+            "unsupported placeholder at " + p + " in [" + format + "]");
+      }
+      int index;
+      if (end > p + 1) {
+        index = Integer.parseInt(format.substring(p + 1, end)) - 1;
+        if (index < 0) {
+          throw new IllegalArgumentException("index 0 is not valid in [" + format + "]");
+        }
+        indexed = true;
+      } else {
+        index = relativeIndex++;
+      }
+      argumentCount = Math.max(argumentCount, index + 1);
+      parts.add(new Part("$" + format.charAt(end), index));
+      p = end + 1;
+    }
+    addLiteral(parts, literal, escaped);
+    if (indexed && relativeIndex > 0) {
+      throw new IllegalArgumentException(
+          "cannot mix indexed and positional parameters in [" + format + "]");
+    }
+    return new CodeTemplate(format, parts, argumentCount);
+  }
+
+  private static void addLiteral(List<Part> parts, StringBuilder literal, boolean escaped) {
+    if (literal.length() > 0) {
+      // text that contained $$ is added as a $L argument so that it is not parsed again
+      parts.add(
+          escaped ? new Part("$L", literal.toString(), -1) : new Part(literal.toString(), -1));
+      literal.setLength(0);
+    }
+  }
+
+  /**
+   * @param arguments the arguments of the placeholders
+   * @return the code block
+   * @throws IllegalArgumentException if the number of arguments does not match the format
+   */
+  public CodeBlock apply(Object... arguments) {
+    CodeBlock.Builder builder = CodeBlock.builder();
+    addTo(builder, arguments);
+    return builder.build();
+  }
+
+  /**
+   * Adds the code to a code block builder
+   *
+   * @param builder the code block builder
+   * @param arguments the arguments of the placeholders
+   * @return same builder instance
+   * @throws IllegalArgumentException if the number of arguments does not match the format
+   */
+  public CodeBlock.Builder addTo(CodeBlock.Builder builder, Object... arguments) {
+    if (arguments.length != argumentCount) {
+      throw new IllegalArgumentException(
+          "expected "
+              + argumentCount
+              + " arguments but got "
+              + arguments.length
+              + " for ["
+              + format
+              + "]");
+    }
+    for (Part part : parts) {
+      if (part.argumentIndex >= 0) {
+        builder.add(part.format, arguments[part.argumentIndex]);
+      } else if (part.literal != null) {
+        builder.add(part.format, part.literal);
+      } else {
+        builder.add(part.format);
+      }
+    }
+    return builder;
+  }
+
+  /**
+   * Adds the code as a statement, same as {@link MethodSpec.Builder#addStatement(String,
+   * Object...)}
+   *
+   * @param methodBuilder the method builder
+   * @param arguments the arguments of the placeholders
+   * @return same method builder instance
+   * @throws IllegalArgumentException if the number of arguments does not match the format
+   */
+  public MethodSpec.Builder addStatement(MethodSpec.Builder methodBuilder, Object... arguments) {
+    CodeBlock.Builder statement = CodeBlock.builder().add("$[");
+    addTo(statement, arguments);
+    return methodBuilder.addCode(statement.add(";\n$]").build());
+  }
+
+  /** @return the format of the template */
+  public String getFormat() {
+    return format;
+  }
+
+  @Override
+  public String toString() {
+    return format;
+  }
+
+  private static final class Part {
+    private final String format;
+    private final String literal;
+    private final int argumentIndex;
+
+    private Part(String format, int argumentIndex) {
+      this(format, null, argumentIndex);
+    }
+
+    private Part(String format, String literal, int argumentIndex) {
+      this.format = format;
+      this.literal = literal;
+      this.argumentIndex = argumentIndex;
+    }
+  }
+}
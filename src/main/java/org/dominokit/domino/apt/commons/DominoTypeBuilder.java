@@ -19,7 +19,12 @@ import com.squareup.javapoet.TypeSpec;
 import javax.annotation.processing.Processor;
 import javax.lang.model.element.Modifier;
 
-/** Utility methods for creating javapoet specs */
+/**
+ * Utility methods for creating javapoet specs
+ *
+ * <p>The javadoc added to the types is removed when the sources are written in compact mode, see
+ * {@link ProcessorOptions#COMPACT_OUTPUT}
+ */
 public class DominoTypeBuilder {
 
   /**
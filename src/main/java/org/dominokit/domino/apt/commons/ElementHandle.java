@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * A reference to an element by its qualified name and member signature that does not hold any
+ * compiler object.
+ *
+ * <p>Unlike an {@link Element}, a handle can be kept across rounds and compilations without
+ * retaining the compiler symbols and trees, and is resolved again against the {@link Elements} of
+ * the current round when needed. Packages, types, fields, enum constants, methods, constructors and
+ * their parameters are supported, a method is identified by its name and the erasure of its
+ * parameter types, without their type annotations.
+ */
+public final class ElementHandle {
+
+  private final ElementKind kind;
+  private final String qualifiedName;
+  private final String memberName;
+  private final List<String> parameterTypes;
+  private final int parameterIndex;
+
+  private ElementHandle(
+      ElementKind kind,
+      String qualifiedName,
+      String memberName,
+      List<String> parameterTypes,
+      int parameterIndex) {
+    this.kind = kind;
+    this.qualifiedName = qualifiedName;
+    this.memberName = memberName;
+    this.parameterTypes = parameterTypes;
+    this.parameterIndex = parameterIndex;
+  }
+
+  /**
+   * Creates a handle from its parts, used to read back a handle that was stored, e.g by the {@link
+   * GenerationCache}
+   */
+  static ElementHandle of(
+      ElementKind kind,
+      String qualifiedName,
+      String memberName,
+      List<String> parameterTypes,
+      int parameterIndex) {
+    return new ElementHandle(
+        kind,
+        qualifiedName,
+        memberName,
+        Collections.unmodifiableList(new ArrayList<>(parameterTypes)),
+        parameterIndex);
+  }
+
+  /**
+   * Creates a handle for an element
+   *
+   * @param element the element
+   * @param types the type utils used to compute the erasure of the parameter types
+   * @return the element handle
+   * @throws IllegalArgumentException if the element kind is not supported, or the element is a
+   *     local or anonymous type or a member of one
+   */
+  public static ElementHandle of(Element element, Types types) {
+    ElementKind kind = element.getKind();
+    if (element instanceof PackageElement) {
+      return new ElementHandle(
+          kind,
+          ((PackageElement) element).getQualifiedName().toString(),
+          null,
+          Collections.emptyList(),
+          -1);
+    }
+    if (element instanceof TypeElement) {
+      return new ElementHandle(
+          kind, qualifiedName((TypeElement) element), null, Collections.emptyList(), -1);
+    }
+    if (kind == ElementKind.FIELD || kind == ElementKind.ENUM_CONSTANT) {
+      return new ElementHandle(
+          kind,
+          qualifiedName((TypeElement) element.getEnclosingElement()),
+          element.getSimpleName().toString(),
+          Collections.emptyList(),
+          -1);
+    }
+    if (element instanceof ExecutableElement) {
+      ExecutableElement executable = (ExecutableElement) element;
+      return new ElementHandle(
+          kind,
+          qualifiedName((TypeElement) executable.getEnclosingElement()),
+          executable.getSimpleName().toString(),
+          parameterTypes(executable, types),
+          -1);
+    }
+    if (kind == ElementKind.PARAMETER
+        && element.getEnclosingElement() instanceof ExecutableElement) {
+      ExecutableElement executable = (ExecutableElement) element.getEnclosingElement();
+      ElementHandle method = of(executable, types);
+      return new ElementHandle(
+          kind,
+          method.qualifiedName,
+          method.memberName,
+          method.parameterTypes,
+          executable.getParameters().indexOf(element));
+    }
+    throw new IllegalArgumentException("Cannot create a handle for [" + kind + "] " + element);
+  }
+
+  /**
+   * The qualified name of a type, javac names a local type by its simple name instead of an empty
+   * name so the nesting kinds of the type and its enclosing types are checked
+   */
+  private static String qualifiedName(TypeElement typeElement) {
+    for (Element type = typeElement;
+        type instanceof TypeElement;
+        type = type.getEnclosingElement()) {
+      NestingKind nestingKind = ((TypeElement) type).getNestingKind();
+      if (nestingKind == NestingKind.LOCAL || nestingKind == NestingKind.ANONYMOUS) {
+        throw new IllegalArgumentException(
+            "Cannot create a handle for local or anonymous type " + typeElement);
+      }
+    }
+    return typeElement.getQualifiedName().toString();
+  }
+
+  private static List<String> parameterTypes(ExecutableElement executable, Types types) {
+    List<String> parameterTypes = new ArrayList<>(executable.getParameters().size());
+    for (VariableElement parameter : executable.getParameters()) {
+      parameterTypes.add(erasedName(parameter.asType(), types));
+    }
+    return Collections.unmodifiableList(parameterTypes);
+  }
+
+  /**
+   * The name of the erasure of a type without its type annotations, which are part of the {@code
+   * toString()} of a type compiled from source but not of the same type loaded from a class file
+   */
+  private static String erasedName(TypeMirror type, Types types) {
+    TypeMirror erasure = types.erasure(type);
+    if (erasure.getKind() == TypeKind.ARRAY) {
+      return erasedName(((ArrayType) erasure).getComponentType(), types) + "[]";
+    }
+    if (erasure.getKind() == TypeKind.DECLARED) {
+      return ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName().toString();
+    }
+    if (erasure.getKind().isPrimitive()) {
+      return erasure.getKind().name().toLowerCase(Locale.ROOT);
+    }
+    return erasure.toString();
+  }
+
+  /**
+   * Resolves the element against the current round
+   *
+   * @param elements the element utils of the current round
+   * @param types the type utils of the current round
+   * @return the element if found, {@link Optional#empty()} otherwise
+   */
+  public Optional<Element> resolve(Elements elements, Types types) {
+    if (kind == ElementKind.PACKAGE) {
+      return Optional.ofNullable(elements.getPackageElement(qualifiedName));
+    }
+    TypeElement typeElement = elements.getTypeElement(qualifiedName);
+    if (Objects.isNull(typeElement) || Objects.isNull(memberName)) {
+      return Optional.ofNullable(typeElement);
+    }
+    for (Element enclosed : typeElement.getEnclosedElements()) {
+      if (!enclosed.getSimpleName().contentEquals(memberName)) {
+        continue;
+      }
+      if (enclosed instanceof ExecutableElement) {
+        ExecutableElement executable = (ExecutableElement) enclosed;
+        if (parameterTypes.equals(parameterTypes(executable, types))) {
+          return kind == ElementKind.PARAMETER
+              ? Optional.of(executable.getParameters().get(parameterIndex))
+              : Optional.of(executable);
+        }
+      } else if (enclosed.getKind() == kind) {
+        return Optional.of(enclosed);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** @return the element kind */
+  public ElementKind getKind() {
+    return kind;
+  }
+
+  /** @return the qualified name of the package or type, or of the type enclosing the member */
+  public String getQualifiedName() {
+    return qualifiedName;
+  }
+
+  /** @return the member name, {@code null} for packages and types */
+  public String getMemberName() {
+    return memberName;
+  }
+
+  /** @return the erasure of the parameter types of a method or constructor */
+  public List<String> getParameterTypes() {
+    return parameterTypes;
+  }
+
+  /** @return the index of a parameter in its method or constructor, {@code -1} for other kinds */
+  public int getParameterIndex() {
+    return parameterIndex;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ElementHandle that = (ElementHandle) o;
+    return parameterIndex == that.parameterIndex
+        && kind == that.kind
+        && qualifiedName.equals(that.qualifiedName)
+        && Objects.equals(memberName, that.memberName)
+        && parameterTypes.equals(that.parameterTypes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(kind, qualifiedName, memberName, parameterTypes, parameterIndex);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(qualifiedName);
+    if (Objects.nonNull(memberName)) {
+      sb.append('#').append(memberName);
+    }
+    if (kind == ElementKind.METHOD
+        || kind == ElementKind.CONSTRUCTOR
+        || kind == ElementKind.PARAMETER) {
+      sb.append('(').append(String.join(", ", parameterTypes)).append(')');
+    }
+    if (kind == ElementKind.PARAMETER) {
+      sb.append('[').append(parameterIndex).append(']');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Parameterizable;
+import javax.lang.model.element.QualifiedNameable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+/**
+ * A plain data copy of an element, its annotations and the elements enclosed within it, that does
+ * not reference any compiler object and can be written to and read from a {@link ModelSnapshot}.
+ */
+public class ElementSnapshot {
+
+  private final ElementKind kind;
+  private final String name;
+  private final String simpleName;
+  private final String type;
+  private final List<Modifier> modifiers;
+  private final List<AnnotationSnapshot> annotations;
+  private final List<ElementSnapshot> parameters;
+  private final List<ElementSnapshot> enclosedElements;
+  private final List<String> supertypes;
+  private final List<String> typeParameters;
+  private final List<String> thrownTypes;
+
+  public ElementSnapshot(
+      ElementKind kind,
+      String name,
+      String simpleName,
+      String type,
+      List<Modifier> modifiers,
+      List<AnnotationSnapshot> annotations,
+      List<ElementSnapshot> parameters,
+      List<ElementSnapshot> enclosedElements) {
+    this(
+        kind,
+        name,
+        simpleName,
+        type,
+        modifiers,
+        annotations,
+        parameters,
+        enclosedElements,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        Collections.emptyList());
+  }
+
+  public ElementSnapshot(
+      ElementKind kind,
+      String name,
+      String simpleName,
+      String type,
+      List<Modifier> modifiers,
+      List<AnnotationSnapshot> annotations,
+      List<ElementSnapshot> parameters,
+      List<ElementSnapshot> enclosedElements,
+      List<String> supertypes,
+      List<String> typeParameters,
+      List<String> thrownTypes) {
+    this.kind = kind;
+    this.name = name;
+    this.simpleName = simpleName;
+    this.type = type;
+    this.modifiers = Collections.unmodifiableList(new ArrayList<>(modifiers));
+    this.annotations = Collections.unmodifiableList(new ArrayList<>(annotations));
+    this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+    this.enclosedElements = Collections.unmodifiableList(new ArrayList<>(enclosedElements));
+    this.supertypes = Collections.unmodifiableList(new ArrayList<>(supertypes));
+    this.typeParameters = Collections.unmodifiableList(new ArrayList<>(typeParameters));
+    this.thrownTypes = Collections.unmodifiableList(new ArrayList<>(thrownTypes));
+  }
+
+  /**
+   * Creates a snapshot of an element, type elements include their enclosed elements and all their
+   * super classes and interfaces, executable elements include their parameters and thrown types,
+   * both include their type parameters with their bounds.
+   *
+   * @param element the element
+   * @param elements the elements utils
+   * @return the element snapshot
+   */
+  public static ElementSnapshot of(Element element, Elements elements) {
+    List<AnnotationSnapshot> annotations = new ArrayList<>();
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      annotations.add(AnnotationSnapshot.of(annotationMirror, elements));
+    }
+    List<ElementSnapshot> parameters = new ArrayList<>();
+    List<String> typeParameters = new ArrayList<>();
+    List<String> thrownTypes = new ArrayList<>();
+    String type;
+    if (element instanceof Parameterizable) {
+      for (TypeParameterElement typeParameter : ((Parameterizable) element).getTypeParameters()) {
+        typeParameters.add(
+            typeParameter.getSimpleName()
+                + typeParameter.getBounds().stream()
+                    .map(TypeMirror::toString)
+                    .collect(Collectors.joining(" & ", " extends ", "")));
+      }
+    }
+    if (element instanceof ExecutableElement) {
+      ExecutableElement executable = (ExecutableElement) element;
+      for (VariableElement parameter : executable.getParameters()) {
+        parameters.add(of(parameter, elements));
+      }
+      for (TypeMirror thrownType : executable.getThrownTypes()) {
+        thrownTypes.add(thrownType.toString());
+      }
+      type = executable.getReturnType().toString();
+    } else {
+      type = element.asType().toString();
+    }
+    List<ElementSnapshot> enclosed = new ArrayList<>();
+    List<String> supertypes = new ArrayList<>();
+    if (element instanceof TypeElement) {
+      for (Element enclosedElement : element.getEnclosedElements()) {
+        enclosed.add(of(enclosedElement, elements));
+      }
+      supertypes((TypeElement) element, supertypes, new HashSet<>(), new HashSet<>());
+    }
+    String simpleName = element.getSimpleName().toString();
+    String name =
+        element instanceof QualifiedNameable
+            ? ((QualifiedNameable) element).getQualifiedName().toString()
+            : simpleName;
+    List<Modifier> modifiers = new ArrayList<>(element.getModifiers());
+    Collections.sort(modifiers);
+    return new ElementSnapshot(
+        element.getKind(),
+        name,
+        simpleName,
+        type,
+        modifiers,
+        annotations,
+        parameters,
+        enclosed,
+        supertypes,
+        typeParameters,
+        thrownTypes);
+  }
+
+  /**
+   * Collects the super classes and interfaces of a type, recursively, as declared with their type
+   * arguments, e.g {@code java.util.AbstractList<E>}
+   */
+  private static void supertypes(
+      TypeElement typeElement, List<String> supertypes, Set<String> seen, Set<String> visited) {
+    if (!visited.add(typeElement.getQualifiedName().toString())) {
+      return;
+    }
+    List<TypeMirror> directSupertypes = new ArrayList<>();
+    directSupertypes.add(typeElement.getSuperclass());
+    directSupertypes.addAll(typeElement.getInterfaces());
+    for (TypeMirror supertype : directSupertypes) {
+      if (supertype.getKind() == TypeKind.NONE) {
+        continue;
+      }
+      if (seen.add(supertype.toString())) {
+        supertypes.add(supertype.toString());
+      }
+      if (supertype.getKind() == TypeKind.DECLARED) {
+        supertypes((TypeElement) ((DeclaredType) supertype).asElement(), supertypes, seen, visited);
+      }
+    }
+  }
+
+  /** @return the element kind */
+  public ElementKind getKind() {
+    return kind;
+  }
+
+  /** @return the qualified name for types and packages, the simple name otherwise */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the simple name */
+  public String getSimpleName() {
+    return simpleName;
+  }
+
+  /** @return the element type, the return type for executable elements */
+  public String getType() {
+    return type;
+  }
+
+  /** @return the modifiers */
+  public List<Modifier> getModifiers() {
+    return modifiers;
+  }
+
+  /** @return the annotations of the element */
+  public List<AnnotationSnapshot> getAnnotations() {
+    return annotations;
+  }
+
+  /** @return the parameters of an executable element */
+  public List<ElementSnapshot> getParameters() {
+    return parameters;
+  }
+
+  /** @return the elements enclosed within a type element */
+  public List<ElementSnapshot> getEnclosedElements() {
+    return enclosedElements;
+  }
+
+  /** @return all the super classes and interfaces of a type element, with their type arguments */
+  public List<String> getSupertypes() {
+    return supertypes;
+  }
+
+  /** @return the type parameters of a type or executable element, with their bounds */
+  public List<String> getTypeParameters() {
+    return typeParameters;
+  }
+
+  /** @return the thrown types of an executable element */
+  public List<String> getThrownTypes() {
+    return thrownTypes;
+  }
+
+  /**
+   * @param kind the kind
+   * @return the enclosed elements of a specific kind
+   */
+  public List<ElementSnapshot> getEnclosedElements(ElementKind kind) {
+    return enclosedElements.stream().filter(e -> e.kind == kind).collect(Collectors.toList());
+  }
+
+  /**
+   * @param annotationName the qualified name of the annotation
+   * @return the annotation if exists, {@link Optional#empty()} otherwise
+   */
+  public Optional<AnnotationSnapshot> getAnnotation(String annotationName) {
+    return annotations.stream()
+        .filter(annotation -> annotation.getAnnotationName().equals(annotationName))
+        .findFirst();
+  }
+
+  /**
+   * @param annotationName the qualified name of the annotation
+   * @return {@code true} if the element has the annotation, {@code false} otherwise
+   */
+  public boolean isAnnotatedWith(String annotationName) {
+    return getAnnotation(annotationName).isPresent();
+  }
+
+  /** @return the package name of a type element snapshot */
+  public String getPackageName() {
+    int index = name.lastIndexOf('.');
+    return index < 0 ? "" : name.substring(0, index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ElementSnapshot that = (ElementSnapshot) o;
+    return kind == that.kind
+        && name.equals(that.name)
+        && simpleName.equals(that.simpleName)
+        && type.equals(that.type)
+        && modifiers.equals(that.modifiers)
+        && annotations.equals(that.annotations)
+        && parameters.equals(that.parameters)
+        && enclosedElements.equals(that.enclosedElements)
+        && supertypes.equals(that.supertypes)
+        && typeParameters.equals(that.typeParameters)
+        && thrownTypes.equals(that.thrownTypes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        kind,
+        name,
+        type,
+        modifiers,
+        annotations,
+        parameters,
+        enclosedElements,
+        supertypes,
+        typeParameters,
+        thrownTypes);
+  }
+
+  @Override
+  public String toString() {
+    return kind + " " + name;
+  }
+}
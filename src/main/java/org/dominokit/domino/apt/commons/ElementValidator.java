@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static java.util.Objects.nonNull;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Validates elements against a set of rules registered once.
+ *
+ * <p>All the elements are checked in a single pass and every violation is collected as a {@link
+ * ValidationDiagnostic}, so all the errors can be reported from a single compilation instead of
+ * failing on the first one. No exception is created for a violation.
+ *
+ * <pre>
+ * List&lt;ValidationDiagnostic&gt; diagnostics = new ElementValidator(processingEnv, MyAnnotation.class)
+ *     .requireKind(ElementKind.CLASS)
+ *     .forbidModifiers(Modifier.ABSTRACT)
+ *     .requireAssignableTo(MyInterface.class)
+ *     .validate(elements);
+ * </pre>
+ */
+public class ElementValidator {
+
+  private final ProcessorUtil processorUtil;
+  private final String annotationName;
+  private final List<ValidationRule> rules = new ArrayList<>();
+
+  /**
+   * Creates a validator for elements annotated with an annotation, the annotation is used in the
+   * messages and the diagnostics are reported on its mirror.
+   *
+   * @param processingEnv the processing environment
+   * @param annotation the annotation being validated
+   */
+  public ElementValidator(
+      ProcessingEnvironment processingEnv, Class<? extends Annotation> annotation) {
+    this.processorUtil = new ProcessorUtil(processingEnv);
+    this.annotationName = annotation.getCanonicalName();
+  }
+
+  /**
+   * Creates a validator that is not bound to an annotation
+   *
+   * @param processingEnv the processing environment
+   */
+  public ElementValidator(ProcessingEnvironment processingEnv) {
+    this.processorUtil = new ProcessorUtil(processingEnv);
+    this.annotationName = null;
+  }
+
+  /**
+   * Requires the element to be of one of the kinds
+   *
+   * @param kinds the allowed kinds
+   * @return same validator instance
+   * @throws IllegalArgumentException if no kind is given
+   */
+  public ElementValidator requireKind(ElementKind... kinds) {
+    if (kinds.length == 0) {
+      throw new IllegalArgumentException("At least one element kind is required");
+    }
+    Set<ElementKind> allowed = EnumSet.copyOf(Arrays.asList(kinds));
+    String message = "Only " + joined(allowed) + " can be" + annotatedWith();
+    return rule(element -> allowed.contains(element.getKind()) ? null : message);
+  }
+
+  /**
+   * Requires the element to have all the modifiers
+   *
+   * @param modifiers the required modifiers
+   * @return same validator instance
+   */
+  public ElementValidator requireModifiers(Modifier... modifiers) {
+    List<Modifier> required = Arrays.asList(modifiers);
+    String message =
+        "Only elements with modifiers " + joined(required) + " can be" + annotatedWith();
+    return rule(element -> element.getModifiers().containsAll(required) ? null : message);
+  }
+
+  /**
+   * Forbids the element from having any of the modifiers
+   *
+   * @param modifiers the forbidden modifiers
+   * @return same validator instance
+   */
+  public ElementValidator forbidModifiers(Modifier... modifiers) {
+    List<Modifier> forbidden = Arrays.asList(modifiers);
+    String message =
+        "Elements with modifiers " + joined(forbidden) + " cannot be" + annotatedWith();
+    return rule(
+        element -> {
+          for (Modifier modifier : forbidden) {
+            if (element.getModifiers().contains(modifier)) {
+              return message;
+            }
+          }
+          return null;
+        });
+  }
+
+  /**
+   * Requires the element to be annotated with another annotation
+   *
+   * @param annotation the required annotation
+   * @return same validator instance
+   */
+  public ElementValidator requireAnnotation(Class<? extends Annotation> annotation) {
+    String requiredName = annotation.getCanonicalName();
+    String message = "Element must be annotated with @" + requiredName;
+    return rule(
+        element -> AnnotationUtil.isAnnotationPresent(element, requiredName) ? null : message);
+  }
+
+  /**
+   * Requires the element type to be assignable to a class
+   *
+   * @param targetClass the target class
+   * @return same validator instance
+   */
+  public ElementValidator requireAssignableTo(Class<?> targetClass) {
+    String message =
+        "Only types assignable to " + targetClass.getCanonicalName() + " can be" + annotatedWith();
+    return requireType(type -> processorUtil.isAssignableFrom(type, targetClass), message);
+  }
+
+  /**
+   * Requires the element type to match a constraint
+   *
+   * @param constraint the type constraint
+   * @param message the message to report when the constraint is not met
+   * @return same validator instance
+   */
+  public ElementValidator requireType(Predicate<TypeMirror> constraint, String message) {
+    return rule(element -> constraint.test(element.asType()) ? null : message);
+  }
+
+  /**
+   * Registers a custom rule
+   *
+   * @param rule the rule
+   * @return same validator instance
+   */
+  public ElementValidator rule(ValidationRule rule) {
+    rules.add(rule);
+    return this;
+  }
+
+  /**
+   * Validates all the elements against all the rules
+   *
+   * @param elements the elements to validate
+   * @return all the violations, empty list if all elements are valid
+   */
+  public List<ValidationDiagnostic> validate(Collection<? extends Element> elements) {
+    List<ValidationDiagnostic> diagnostics = new ArrayList<>();
+    for (Element element : elements) {
+      AnnotationMirror annotationMirror = null;
+      boolean mirrorResolved = false;
+      for (ValidationRule rule : rules) {
+        String violation = rule.validate(element);
+        if (nonNull(violation)) {
+          if (!mirrorResolved) {
+            annotationMirror = annotationMirror(element);
+            mirrorResolved = true;
+          }
+          diagnostics.add(
+              new ValidationDiagnostic(
+                  Diagnostic.Kind.ERROR, element, annotationMirror, violation));
+        }
+      }
+    }
+    return diagnostics;
+  }
+
+  /**
+   * Validates all the elements and prints all the violations
+   *
+   * @param elements the elements to validate
+   * @param messager the messager to print the violations
+   * @return {@code true} if all elements are valid, {@code false} otherwise
+   */
+  public boolean validate(Collection<? extends Element> elements, Messager messager) {
+    List<ValidationDiagnostic> diagnostics = validate(elements);
+    diagnostics.forEach(diagnostic -> diagnostic.printTo(messager));
+    return diagnostics.isEmpty();
+  }
+
+  private AnnotationMirror annotationMirror(Element element) {
+    if (nonNull(annotationName)) {
+      return AnnotationUtil.findAnnotationMirror(element, annotationName).orElse(null);
+    }
+    return null;
+  }
+
+  private String annotatedWith() {
+    return nonNull(annotationName) ? " annotated with @" + annotationName : " used here";
+  }
+
+  private static String joined(Collection<?> items) {
+    return items.stream().map(Object::toString).collect(Collectors.joining(", "));
+  }
+
+  /** A single validation rule */
+  @FunctionalInterface
+  public interface ValidationRule {
+
+    /**
+     * Validates an element
+     *
+     * @param element the element
+     * @return the violation message, {@code null} if the element is valid
+     */
+    String validate(Element element);
+  }
+}
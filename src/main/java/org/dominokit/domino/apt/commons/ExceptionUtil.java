@@ -17,6 +17,8 @@ package org.dominokit.domino.apt.commons;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.List;
+import javax.annotation.processing.FilerException;
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -65,4 +67,21 @@ public class ExceptionUtil {
         element,
         annotationMirror);
   }
+
+  /**
+   * Prints a {@link FilerException} as a single error without its stack trace, the message of the
+   * exception already describes the conflicting file.
+   *
+   * @param messager the messager to print the error
+   * @param e the filer exception
+   * @param elements the elements the file is generated for, the error is reported on the first one
+   */
+  public static void messageFilerException(
+      Messager messager, FilerException e, List<? extends Element> elements) {
+    if (elements.isEmpty()) {
+      messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage());
+    } else {
+      messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), elements.get(0));
+    }
+  }
 }
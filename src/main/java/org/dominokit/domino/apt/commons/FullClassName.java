@@ -15,6 +15,13 @@
  */
 package org.dominokit.domino.apt.commons;
 
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -23,6 +30,7 @@ import java.util.StringTokenizer;
 /** Helper class provides information about a class */
 public class FullClassName {
   private final String completeClassName;
+  private TypeName typeName;
 
   public FullClassName(String completeClassName) {
     if (Objects.isNull(completeClassName) || completeClassName.trim().isEmpty())
@@ -85,6 +93,162 @@ public class FullClassName {
     return imports;
   }
 
+  /**
+   * Converts the class name into a javapoet {@link TypeName}, supporting nested generics, arrays,
+   * wildcards and primitives. The name is parsed once and the result is cached in this instance.
+   *
+   * <p>Package segments are recognized as the segments that start with a lower case letter, the
+   * rest are class names, e.g {@code a.b.Outer.Inner} is the nested class {@code Inner} of {@code
+   * a.b.Outer}. A name without package is converted to a class in the default package.
+   *
+   * @return the type name
+   * @throws InvalidClassName if the name cannot be parsed
+   */
+  public TypeName asTypeName() {
+    if (Objects.isNull(typeName)) {
+      typeName = new TypeNameParser(completeClassName).parse();
+    }
+    return typeName;
+  }
+
   /** Unchecked exception thrown when the class name is invalid */
   public static class InvalidClassName extends RuntimeException {}
+
+  private static class TypeNameParser {
+    private static final String EXTENDS = "extends";
+    private static final String SUPER = "super";
+
+    private final String input;
+    private int position;
+
+    private TypeNameParser(String input) {
+      this.input = input;
+    }
+
+    private TypeName parse() {
+      TypeName result = parseType();
+      if (position != input.length()) {
+        throw new InvalidClassName();
+      }
+      return result;
+    }
+
+    private TypeName parseType() {
+      if (peek() == '?') {
+        return parseWildcard();
+      }
+      TypeName type = parseReference();
+      while (input.startsWith("[]", position) || input.startsWith("...", position)) {
+        position += input.startsWith("[]", position) ? 2 : 3;
+        type = ArrayTypeName.of(type);
+      }
+      return type;
+    }
+
+    private TypeName parseWildcard() {
+      position++;
+      if (input.startsWith(EXTENDS, position)) {
+        position += EXTENDS.length();
+        return WildcardTypeName.subtypeOf(parseType());
+      }
+      if (input.startsWith(SUPER, position)) {
+        position += SUPER.length();
+        return WildcardTypeName.supertypeOf(parseType());
+      }
+      return WildcardTypeName.subtypeOf(Object.class);
+    }
+
+    private TypeName parseReference() {
+      String name = parseName();
+      TypeName primitive = primitive(name);
+      if (Objects.nonNull(primitive)) {
+        return primitive;
+      }
+      ClassName className = className(name);
+      if (peek() != '<') {
+        return className;
+      }
+      ParameterizedTypeName type = ParameterizedTypeName.get(className, parseTypeArguments());
+      while (peek() == '.') {
+        position++;
+        String nested = parseName();
+        type =
+            peek() == '<'
+                ? type.nestedClass(nested, Arrays.asList(parseTypeArguments()))
+                : type.nestedClass(nested);
+      }
+      return type;
+    }
+
+    private TypeName[] parseTypeArguments() {
+      List<TypeName> arguments = new ArrayList<>();
+      do {
+        position++;
+        arguments.add(parseType());
+      } while (peek() == ',');
+      if (peek() != '>') {
+        throw new InvalidClassName();
+      }
+      position++;
+      return arguments.toArray(new TypeName[0]);
+    }
+
+    private String parseName() {
+      int start = position;
+      while (position < input.length()
+          && (Character.isJavaIdentifierPart(input.charAt(position))
+              || (input.charAt(position) == '.' && !input.startsWith("...", position)))) {
+        if (input.charAt(position) == '.'
+            && position + 1 < input.length()
+            && !Character.isJavaIdentifierStart(input.charAt(position + 1))) {
+          break;
+        }
+        position++;
+      }
+      if (start == position) {
+        throw new InvalidClassName();
+      }
+      return input.substring(start, position);
+    }
+
+    private static ClassName className(String name) {
+      String[] parts = name.split("\\.");
+      int firstClass = 0;
+      while (firstClass < parts.length - 1 && !Character.isUpperCase(parts[firstClass].charAt(0))) {
+        firstClass++;
+      }
+      String packageName = String.join(".", Arrays.copyOfRange(parts, 0, firstClass));
+      return ClassName.get(
+          packageName, parts[firstClass], Arrays.copyOfRange(parts, firstClass + 1, parts.length));
+    }
+
+    private static TypeName primitive(String name) {
+      switch (name) {
+        case "boolean":
+          return TypeName.BOOLEAN;
+        case "byte":
+          return TypeName.BYTE;
+        case "short":
+          return TypeName.SHORT;
+        case "int":
+          return TypeName.INT;
+        case "long":
+          return TypeName.LONG;
+        case "char":
+          return TypeName.CHAR;
+        case "float":
+          return TypeName.FLOAT;
+        case "double":
+          return TypeName.DOUBLE;
+        case "void":
+          return TypeName.VOID;
+        default:
+          return null;
+      }
+    }
+
+    private char peek() {
+      return position < input.length() ? input.charAt(position) : 0;
+    }
+  }
 }
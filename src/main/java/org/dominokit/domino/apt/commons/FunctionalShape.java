@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntSupplier;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@code java.util.function} interface chosen for the types it works on, primitive specialized
+ * interfaces such as {@link IntSupplier} or {@link ToLongFunction} are used whenever the types
+ * allow it so that the generated code does not box.
+ *
+ * <p>{@code int}, {@code long} and {@code double} have specialized interfaces, {@code boolean} has
+ * {@link BooleanSupplier} and the predicates, other primitives are boxed and reported by {@link
+ * #getBoxedPrimitives()}.
+ *
+ * <pre>
+ * FunctionalShape shape = FunctionalShape.function(TypeName.get(User.class), TypeName.INT);
+ * shape.getType();       // ToIntFunction&lt;User&gt;
+ * shape.getMethodName(); // applyAsInt
+ * </pre>
+ */
+public class FunctionalShape {
+
+  private final TypeName type;
+  private final String methodName;
+  private final List<TypeName> boxedPrimitives;
+
+  private FunctionalShape(TypeName type, String methodName, List<TypeName> boxedPrimitives) {
+    this.type = type;
+    this.methodName = methodName;
+    this.boxedPrimitives = Collections.unmodifiableList(boxedPrimitives);
+  }
+
+  /**
+   * @param valueType the supplied type
+   * @return the supplier shape of the type
+   */
+  public static FunctionalShape supplier(TypeName valueType) {
+    switch (kindOf(valueType)) {
+      case INT:
+        return primitive(IntSupplier.class, "getAsInt");
+      case LONG:
+        return primitive(LongSupplier.class, "getAsLong");
+      case DOUBLE:
+        return primitive(DoubleSupplier.class, "getAsDouble");
+      case BOOLEAN:
+        return primitive(BooleanSupplier.class, "getAsBoolean");
+      default:
+        return generic(Supplier.class, "get", valueType);
+    }
+  }
+
+  /**
+   * @param valueType the consumed type
+   * @return the consumer shape of the type
+   */
+  public static FunctionalShape consumer(TypeName valueType) {
+    switch (kindOf(valueType)) {
+      case INT:
+        return primitive(IntConsumer.class, "accept");
+      case LONG:
+        return primitive(LongConsumer.class, "accept");
+      case DOUBLE:
+        return primitive(DoubleConsumer.class, "accept");
+      default:
+        return generic(Consumer.class, "accept", valueType);
+    }
+  }
+
+  /**
+   * @param inputType the tested type
+   * @return the predicate shape of the type
+   */
+  public static FunctionalShape predicate(TypeName inputType) {
+    switch (kindOf(inputType)) {
+      case INT:
+        return primitive(IntPredicate.class, "test");
+      case LONG:
+        return primitive(LongPredicate.class, "test");
+      case DOUBLE:
+        return primitive(DoublePredicate.class, "test");
+      default:
+        return generic(Predicate.class, "test", inputType);
+    }
+  }
+
+  /**
+   * @param inputType the input type
+   * @param outputType the output type
+   * @return the function shape from the input type to the output type
+   */
+  public static FunctionalShape function(TypeName inputType, TypeName outputType) {
+    Kind input = kindOf(inputType);
+    Kind output = kindOf(outputType);
+    if (output == Kind.BOOLEAN) {
+      return predicate(inputType);
+    }
+    if (input.isSpecialized() && output.isSpecialized()) {
+      return primitiveToPrimitive(input, output);
+    }
+    if (input.isSpecialized()) {
+      Class<?> shape =
+          input == Kind.INT
+              ? IntFunction.class
+              : input == Kind.LONG ? LongFunction.class : DoubleFunction.class;
+      return generic(shape, "apply", outputType);
+    }
+    if (output.isSpecialized()) {
+      switch (output) {
+        case INT:
+          return generic(ToIntFunction.class, "applyAsInt", inputType);
+        case LONG:
+          return generic(ToLongFunction.class, "applyAsLong", inputType);
+        default:
+          return generic(ToDoubleFunction.class, "applyAsDouble", inputType);
+      }
+    }
+    return generic(Function.class, "apply", inputType, outputType);
+  }
+
+  private static FunctionalShape primitiveToPrimitive(Kind input, Kind output) {
+    if (input == output) {
+      switch (input) {
+        case INT:
+          return primitive(IntUnaryOperator.class, "applyAsInt");
+        case LONG:
+          return primitive(LongUnaryOperator.class, "applyAsLong");
+        default:
+          return primitive(DoubleUnaryOperator.class, "applyAsDouble");
+      }
+    }
+    switch (input) {
+      case INT:
+        return output == Kind.LONG
+            ? primitive(IntToLongFunction.class, "applyAsLong")
+            : primitive(IntToDoubleFunction.class, "applyAsDouble");
+      case LONG:
+        return output == Kind.INT
+            ? primitive(LongToIntFunction.class, "applyAsInt")
+            : primitive(LongToDoubleFunction.class, "applyAsDouble");
+      default:
+        return output == Kind.INT
+            ? primitive(DoubleToIntFunction.class, "applyAsInt")
+            : primitive(DoubleToLongFunction.class, "applyAsLong");
+    }
+  }
+
+  private static FunctionalShape primitive(Class<?> shape, String methodName) {
+    return new FunctionalShape(ClassName.get(shape), methodName, new ArrayList<>());
+  }
+
+  private static FunctionalShape generic(
+      Class<?> shape, String methodName, TypeName... typeArguments) {
+    List<TypeName> boxedPrimitives = new ArrayList<>();
+    TypeName[] boxed = new TypeName[typeArguments.length];
+    for (int i = 0; i < typeArguments.length; i++) {
+      if (typeArguments[i].isPrimitive()) {
+        boxedPrimitives.add(typeArguments[i]);
+      }
+      boxed[i] = typeArguments[i].box();
+    }
+    return new FunctionalShape(
+        ParameterizedTypeName.get(ClassName.get(shape), boxed), methodName, boxedPrimitives);
+  }
+
+  private static Kind kindOf(TypeName typeName) {
+    if (TypeName.INT.equals(typeName)) {
+      return Kind.INT;
+    } else if (TypeName.LONG.equals(typeName)) {
+      return Kind.LONG;
+    } else if (TypeName.DOUBLE.equals(typeName)) {
+      return Kind.DOUBLE;
+    } else if (TypeName.BOOLEAN.equals(typeName)) {
+      return Kind.BOOLEAN;
+    }
+    return Kind.OTHER;
+  }
+
+  /** @return the type of the functional interface */
+  public TypeName getType() {
+    return type;
+  }
+
+  /** @return the name of the functional method, e.g {@code applyAsInt} */
+  public String getMethodName() {
+    return methodName;
+  }
+
+  /** @return the primitive types that had to be boxed because there is no specialized shape */
+  public List<TypeName> getBoxedPrimitives() {
+    return boxedPrimitives;
+  }
+
+  /** @return {@code true} if the shape boxes a primitive type, {@code false} otherwise */
+  public boolean isBoxing() {
+    return !boxedPrimitives.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return type + "#" + methodName;
+  }
+
+  private enum Kind {
+    INT,
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    OTHER;
+
+    private boolean isSpecialized() {
+      return this == INT || this == LONG || this == DOUBLE;
+    }
+  }
+}
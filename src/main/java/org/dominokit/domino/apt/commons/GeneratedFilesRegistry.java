@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.JavaFileManager;
+
+/**
+ * An in-memory registry of the source and resource files generated during a compilation.
+ *
+ * <p>The registry is shared by every {@link BaseProcessor} and {@link AbstractProcessingStep} that
+ * uses the same {@link Filer}, and lives across rounds. Files are claimed before they are rendered,
+ * so a second attempt to generate the same file is rejected early and reported with both origins.
+ */
+public class GeneratedFilesRegistry {
+
+  private static final Map<Filer, GeneratedFilesRegistry> REGISTRIES = new WeakHashMap<>();
+
+  private final Map<String, String> sources = new HashMap<>();
+  private final Map<String, String> resources = new HashMap<>();
+
+  /**
+   * Returns the registry shared by all processors of the processing environment
+   *
+   * @param processingEnv the processing environment
+   * @return the shared registry
+   */
+  public static GeneratedFilesRegistry of(ProcessingEnvironment processingEnv) {
+    synchronized (REGISTRIES) {
+      return REGISTRIES.computeIfAbsent(
+          processingEnv.getFiler(), filer -> new GeneratedFilesRegistry());
+    }
+  }
+
+  /**
+   * @param qualifiedName the qualified name of the type
+   * @return {@code true} if a source file for the type was already generated, {@code false}
+   *     otherwise
+   */
+  public synchronized boolean isSourceGenerated(String qualifiedName) {
+    return sources.containsKey(qualifiedName);
+  }
+
+  /**
+   * @param location the location of the resource
+   * @param targetPackage the package of the resource
+   * @param resourceName the resource name
+   * @return {@code true} if the resource was already generated, {@code false} otherwise
+   */
+  public synchronized boolean isResourceGenerated(
+      JavaFileManager.Location location, String targetPackage, String resourceName) {
+    return resources.containsKey(resourcePath(location, targetPackage, resourceName));
+  }
+
+  /**
+   * @param qualifiedName the qualified name of the type
+   * @return the origin that generated the source file, {@link Optional#empty()} if not generated
+   */
+  public synchronized Optional<String> getSourceOrigin(String qualifiedName) {
+    return Optional.ofNullable(sources.get(qualifiedName));
+  }
+
+  /**
+   * Claims a source file before generating it
+   *
+   * @param qualifiedName the qualified name of the type
+   * @param origin a description of what is generating the file
+   * @throws FilerException if the source file was already claimed
+   */
+  public synchronized void claimSource(String qualifiedName, String origin) throws FilerException {
+    String existing = sources.putIfAbsent(qualifiedName, origin);
+    if (existing != null) {
+      throw new FilerException(duplicateMessage("source file", qualifiedName, existing, origin));
+    }
+  }
+
+  /**
+   * Claims a resource file before generating it
+   *
+   * @param location the location of the resource
+   * @param targetPackage the package of the resource
+   * @param resourceName the resource name
+   * @param origin a description of what is generating the file
+   * @throws FilerException if the resource file was already claimed
+   */
+  public synchronized void claimResource(
+      JavaFileManager.Location location, String targetPackage, String resourceName, String origin)
+      throws FilerException {
+    String path = resourcePath(location, targetPackage, resourceName);
+    String existing = resources.putIfAbsent(path, origin);
+    if (existing != null) {
+      throw new FilerException(duplicateMessage("resource", path, existing, origin));
+    }
+  }
+
+  private static String resourcePath(
+      JavaFileManager.Location location, String targetPackage, String resourceName) {
+    String packagePath = targetPackage.isEmpty() ? "" : targetPackage.replace('.', '/') + "/";
+    return location.getName() + ":" + packagePath + resourceName;
+  }
+
+  private static String duplicateMessage(
+      String fileKind, String name, String existingOrigin, String newOrigin) {
+    return "Attempt to generate "
+        + fileKind
+        + " ["
+        + name
+        + "] from ["
+        + newOrigin
+        + "] but it was already generated from ["
+        + existingOrigin
+        + "]";
+  }
+}
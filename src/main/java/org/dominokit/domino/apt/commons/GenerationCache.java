@@ -0,0 +1,529 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.lang.model.element.ElementKind;
+
+/**
+ * A content addressed cache of generated sources that survives between builds.
+ *
+ * <p>The cache directory holds an {@code index} file and a {@code blobs} directory. Every generated
+ * source is stored once as a blob named by the SHA-256 of its content, the index maps the key of a
+ * generation, usually the hash of a {@link ModelSnapshot}, to the qualified names, blob hashes and
+ * {@link ElementHandle}s of the originating elements of the sources it produced. The index is
+ * append only and is memory mapped when the cache is opened, appends are guarded by a file lock so
+ * parallel compilations can share the same directory. Every record ends with its CRC-32, a damaged
+ * or partially written record and everything after it is dropped from the index when it is loaded,
+ * the keys it held are then misses.
+ *
+ * <p>The cache keeps the {@value #MAX_ENTRIES} most recently used keys. Once the index holds more
+ * records it is compacted to the most recently used half, a hit on a key that is about to be
+ * evicted appends its record again, and the blobs no other key refers to are deleted.
+ *
+ * <p>Instances are shared per directory within the JVM, see {@link #open(Path)}, and only the
+ * {@value #MAX_OPEN_CACHES} most recently opened directories are kept open.
+ */
+public class GenerationCache {
+
+  private static final int MAGIC = 0x44474333;
+  private static final int MAGIC_VERSION_MASK = 0xFFFFFF00;
+  private static final int HASH_LENGTH = 32;
+  private static final String INDEX_FILE = "index";
+  private static final String BLOBS_DIRECTORY = "blobs";
+  private static final int MAX_ENTRIES = 4096;
+  private static final int MAX_OPEN_CACHES = 8;
+
+  private static final Map<Path, GenerationCache> CACHES =
+      new LinkedHashMap<Path, GenerationCache>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, GenerationCache> eldest) {
+          return size() > MAX_OPEN_CACHES;
+        }
+      };
+
+  private final Path directory;
+  private final Path indexFile;
+  private final Path blobsDirectory;
+  private final int maxEntries;
+  private final Map<String, List<CachedSource>> entries = new HashMap<>();
+  private final Map<String, Long> lastRecords = new HashMap<>();
+  private long records;
+
+  private GenerationCache(Path directory, int maxEntries) throws IOException {
+    this.directory = directory;
+    this.indexFile = directory.resolve(INDEX_FILE);
+    this.blobsDirectory = directory.resolve(BLOBS_DIRECTORY);
+    this.maxEntries = maxEntries;
+    Files.createDirectories(blobsDirectory);
+    loadIndex();
+    if (records > maxEntries) {
+      compact();
+    }
+  }
+
+  /**
+   * Opens the cache in a directory, the directory is created if it does not exist
+   *
+   * @param directory the cache directory
+   * @return the cache shared by all the steps using the same directory
+   * @throws IOException if the directory or the index cannot be read
+   */
+  public static GenerationCache open(Path directory) throws IOException {
+    return open(directory, MAX_ENTRIES);
+  }
+
+  static GenerationCache open(Path directory, int maxEntries) throws IOException {
+    Path key = directory.toAbsolutePath().normalize();
+    synchronized (CACHES) {
+      GenerationCache cache = CACHES.get(key);
+      if (cache == null) {
+        cache = new GenerationCache(key, maxEntries);
+        CACHES.put(key, cache);
+      }
+      return cache;
+    }
+  }
+
+  /** @return the cache directory */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Creates a stable key from a list of parts, the parts are hashed in order with a separator so
+   * that {@code ("ab", "c")} and {@code ("a", "bc")} produce different keys.
+   *
+   * @param parts the key parts
+   * @return the hex encoded SHA-256 of the parts
+   */
+  public static String key(byte[]... parts) {
+    MessageDigest digest = sha256();
+    for (byte[] part : parts) {
+      digest.update(ByteBuffer.allocate(4).putInt(part.length).array());
+      digest.update(part);
+    }
+    return hex(digest.digest());
+  }
+
+  /**
+   * Looks up the sources generated for a key, a key is only a hit if all its blobs still exist
+   *
+   * @param key the generation key
+   * @return the cached sources if found, {@link Optional#empty()} otherwise
+   */
+  public synchronized Optional<List<CachedSource>> get(String key) {
+    List<CachedSource> sources = entries.get(key);
+    if (sources == null) {
+      return Optional.empty();
+    }
+    for (CachedSource source : sources) {
+      if (!Files.isRegularFile(blobPath(source.contentHash))) {
+        return Optional.empty();
+      }
+    }
+    if (records - lastRecords.get(key) > maxEntries / 2) {
+      // the key would not survive the next compaction, it is used again so it is kept
+      try {
+        append(key, sources);
+      } catch (IOException e) {
+        // still a hit, the key is only evicted earlier
+      }
+    }
+    return Optional.of(sources);
+  }
+
+  /**
+   * Stores the sources generated for a key without originating elements, see {@link #put(String,
+   * Map, Map)}
+   *
+   * @param key the generation key
+   * @param sources the qualified name and content of every generated source
+   * @throws IOException if the blobs or the index cannot be written
+   */
+  public void put(String key, Map<String, String> sources) throws IOException {
+    put(key, sources, Collections.emptyMap());
+  }
+
+  /**
+   * Stores the sources generated for a key, blobs that already exist are not written again
+   *
+   * @param key the generation key
+   * @param sources the qualified name and content of every generated source
+   * @param originatingElements the handles of the originating elements of every generated source
+   * @throws IOException if the blobs or the index cannot be written
+   */
+  public synchronized void put(
+      String key, Map<String, String> sources, Map<String, List<ElementHandle>> originatingElements)
+      throws IOException {
+    List<CachedSource> cached = new ArrayList<>(sources.size());
+    for (Map.Entry<String, String> source : sources.entrySet()) {
+      byte[] content = source.getValue().getBytes(StandardCharsets.UTF_8);
+      String contentHash = hex(sha256().digest(content));
+      writeBlob(contentHash, content);
+      cached.add(
+          new CachedSource(
+              source.getKey(),
+              contentHash,
+              originatingElements.getOrDefault(source.getKey(), Collections.emptyList())));
+    }
+    append(key, Collections.unmodifiableList(cached));
+  }
+
+  private void append(String key, List<CachedSource> sources) throws IOException {
+    appendIndex(key, sources);
+    entries.put(key, sources);
+    lastRecords.put(key, records++);
+    if (records > maxEntries) {
+      compact();
+    }
+  }
+
+  /**
+   * Rewrites the index with the most recently used half of the keys, and deletes the blobs that are
+   * not referred to anymore and were written before the compaction started, a newer blob may belong
+   * to a record another compilation is about to append.
+   */
+  private void compact() throws IOException {
+    long startTime = System.currentTimeMillis();
+    List<String> keys = new ArrayList<>(entries.keySet());
+    keys.sort(Comparator.comparing(lastRecords::get));
+    List<String> kept = keys.subList(Math.max(0, keys.size() - maxEntries / 2), keys.size());
+    ByteArrayOutputStream index = new ByteArrayOutputStream();
+    index.write(ByteBuffer.allocate(4).putInt(MAGIC).array());
+    Map<String, List<CachedSource>> keptEntries = new HashMap<>();
+    for (String key : kept) {
+      index.write(record(key, entries.get(key)));
+      keptEntries.put(key, entries.get(key));
+    }
+    Path temp = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+    Files.write(temp, index.toByteArray());
+    try (FileChannel channel =
+        FileChannel.open(
+            indexFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        try {
+          Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        lock.release();
+      }
+    }
+    entries.keySet().retainAll(keptEntries.keySet());
+    lastRecords.clear();
+    records = 0;
+    for (String key : kept) {
+      lastRecords.put(key, records++);
+    }
+    Set<String> referenced = new HashSet<>();
+    entries
+        .values()
+        .forEach(sources -> sources.forEach(source -> referenced.add(source.contentHash)));
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(blobsDirectory)) {
+      for (Path blob : blobs) {
+        if (!referenced.contains(blob.getFileName().toString())
+            && Files.getLastModifiedTime(blob).toMillis() < startTime) {
+          Files.deleteIfExists(blob);
+        }
+      }
+    }
+  }
+
+  private void writeBlob(String contentHash, byte[] content) throws IOException {
+    Path blob = blobPath(contentHash);
+    if (Files.isRegularFile(blob)) {
+      return;
+    }
+    Path temp = Files.createTempFile(blobsDirectory, contentHash, ".tmp");
+    Files.write(temp, content);
+    try {
+      Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private Path blobPath(String contentHash) {
+    return blobsDirectory.resolve(contentHash);
+  }
+
+  private void appendIndex(String key, List<CachedSource> sources) throws IOException {
+    byte[] record = record(key, sources);
+    try (FileChannel channel =
+        FileChannel.open(
+            indexFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        if (channel.read(header, 0) < 4 || header.getInt(0) != MAGIC) {
+          // a new index, or the index of another version of the cache that cannot be appended to
+          channel.truncate(0);
+          channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC), 0);
+        }
+        channel.position(channel.size());
+        channel.write(ByteBuffer.wrap(record));
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  private static byte[] record(String key, List<CachedSource> sources) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream record = new DataOutputStream(bytes);
+    record.write(unhex(key));
+    record.writeInt(sources.size());
+    for (CachedSource source : sources) {
+      writeString(record, source.qualifiedName);
+      record.write(unhex(source.contentHash));
+      record.writeShort(source.originatingElements.size());
+      for (ElementHandle handle : source.originatingElements) {
+        writeString(record, handle.getKind().name());
+        writeString(record, handle.getQualifiedName());
+        writeString(record, Objects.isNull(handle.getMemberName()) ? "" : handle.getMemberName());
+        record.writeShort(handle.getParameterTypes().size());
+        for (String parameterType : handle.getParameterTypes()) {
+          writeString(record, parameterType);
+        }
+        record.writeInt(handle.getParameterIndex());
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    record.writeInt((int) crc.getValue());
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    return new String(bytes(buffer, buffer.getShort() & 0xFFFF), StandardCharsets.UTF_8);
+  }
+
+  private void loadIndex() throws IOException {
+    if (!Files.isRegularFile(indexFile)) {
+      return;
+    }
+    long validLength;
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      if (channel.size() < 4) {
+        return;
+      }
+      MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int magic = index.getInt();
+      if ((magic & MAGIC_VERSION_MASK) != (MAGIC & MAGIC_VERSION_MASK)) {
+        throw new IOException("Not a generation cache index [" + indexFile + "]");
+      }
+      if (magic != MAGIC) {
+        // written by another version of the cache, it is replaced on the next append
+        return;
+      }
+      validLength = readRecords(index);
+      if (validLength == channel.size()) {
+        return;
+      }
+    }
+    truncateIndex(validLength);
+  }
+
+  /** Reads the records of the index and returns the length of the index up to the first bad one */
+  private long readRecords(ByteBuffer index) {
+    while (index.hasRemaining()) {
+      int start = index.position();
+      try {
+        String key = hex(bytes(index, HASH_LENGTH));
+        List<CachedSource> sources = readSources(index);
+        CRC32 crc = new CRC32();
+        crc.update(index.duplicate().position(start).limit(index.position()));
+        if (index.getInt() != (int) crc.getValue()) {
+          return start;
+        }
+        entries.put(key, Collections.unmodifiableList(sources));
+        lastRecords.put(key, records++);
+      } catch (RuntimeException e) {
+        // a partially written record from an interrupted build or a damaged index
+        return start;
+      }
+    }
+    return index.position();
+  }
+
+  private List<CachedSource> readSources(ByteBuffer index) {
+    int count = index.getInt();
+    if (count < 0 || count > index.remaining()) {
+      throw new IllegalArgumentException("Invalid source count [" + count + "]");
+    }
+    List<CachedSource> sources = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String name = readString(index);
+      String contentHash = hex(bytes(index, HASH_LENGTH));
+      int originCount = index.getShort() & 0xFFFF;
+      List<ElementHandle> originatingElements = new ArrayList<>(originCount);
+      for (int j = 0; j < originCount; j++) {
+        ElementKind kind = ElementKind.valueOf(readString(index));
+        String qualifiedName = readString(index);
+        String memberName = readString(index);
+        int parameterCount = index.getShort() & 0xFFFF;
+        List<String> parameterTypes = new ArrayList<>(parameterCount);
+        for (int k = 0; k < parameterCount; k++) {
+          parameterTypes.add(readString(index));
+        }
+        originatingElements.add(
+            ElementHandle.of(
+                kind,
+                qualifiedName,
+                memberName.isEmpty() ? null : memberName,
+                parameterTypes,
+                index.getInt()));
+      }
+      sources.add(new CachedSource(name, contentHash, originatingElements));
+    }
+    return sources;
+  }
+
+  /**
+   * Drops the damaged tail of the index, the next append starts from the last good record. The tail
+   * is read again under the lock first, it may be a record that another compilation was appending.
+   */
+  private void truncateIndex(long validLength) {
+    try (FileChannel channel =
+        FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        index.position((int) validLength);
+        long length = readRecords(index);
+        if (length < channel.size()) {
+          channel.truncate(length);
+        }
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      // the tail stays unreadable and is dropped again by the next load
+    }
+  }
+
+  private static byte[] bytes(ByteBuffer buffer, int length) {
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static byte[] unhex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] =
+          (byte)
+              ((Character.digit(hex.charAt(i * 2), 16) << 4)
+                  | Character.digit(hex.charAt(i * 2 + 1), 16));
+    }
+    return bytes;
+  }
+
+  /** A source stored in the cache */
+  public class CachedSource {
+    private final String qualifiedName;
+    private final String contentHash;
+    private final List<ElementHandle> originatingElements;
+
+    private CachedSource(
+        String qualifiedName, String contentHash, List<ElementHandle> originatingElements) {
+      this.qualifiedName = qualifiedName;
+      this.contentHash = contentHash;
+      this.originatingElements = Collections.unmodifiableList(originatingElements);
+    }
+
+    /** @return the qualified name of the generated type */
+    public String getQualifiedName() {
+      return qualifiedName;
+    }
+
+    /** @return the hex encoded SHA-256 of the source content */
+    public String getContentHash() {
+      return contentHash;
+    }
+
+    /** @return the handles of the elements the source was generated from */
+    public List<ElementHandle> getOriginatingElements() {
+      return originatingElements;
+    }
+
+    /**
+     * @return the source content
+     * @throws IOException if the blob cannot be read
+     */
+    public String readContent() throws IOException {
+      return new String(Files.readAllBytes(blobPath(contentHash)), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -17,7 +17,10 @@ package org.dominokit.domino.apt.commons;
 
 import java.io.IOException;
 
-/** Abstract class for all java source writers */
+/**
+ * Abstract class for all java source writers, repetitive sources can be rendered with a {@link
+ * SourceTemplate}
+ */
 public abstract class JavaSourceWriter {
 
   protected final ProcessorElement processorElement;
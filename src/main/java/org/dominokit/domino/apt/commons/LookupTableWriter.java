@@ -0,0 +1,280 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Generates a static lookup type for a set of string keys known at processing time, so that the
+ * registry is not built at runtime.
+ *
+ * <p>The generated type holds the keys and values in arrays sized for the keys. When a {@link
+ * PerfectHash} is found the slot of a key is computed from its hash code and a lookup is a single
+ * {@link String#equals(Object)}, otherwise the lookup falls back to a {@code switch} on the key.
+ *
+ * <pre>
+ * TypeSpec lookup = new LookupTableWriter("ViewsLookup", ClassName.get(View.class))
+ *     .put("home", CodeBlock.of("new $T()", HomeView.class))
+ *     .put("about", CodeBlock.of("new $T()", AboutView.class))
+ *     .build();
+ * </pre>
+ *
+ * The generated type has the static methods {@code get(String)} returning {@code null} for unknown
+ * keys, {@code contains(String)} and {@code size()}.
+ *
+ * <p>Arrays and {@code switch} statements larger than {@value #CHUNK_SIZE} entries are split into
+ * static methods of {@value #CHUNK_SIZE} entries each, so that a large lookup does not exceed the
+ * 64KB limit of the bytecode of a single method, e.g the static initializer.
+ */
+public class LookupTableWriter {
+
+  private static final CodeTemplate STRING = CodeTemplate.of("$S");
+  private static final CodeTemplate LITERAL = CodeTemplate.of("$L");
+  private static final CodeTemplate CASE = CodeTemplate.of("case $S: return $L");
+  private static final CodeTemplate ELEMENT = CodeTemplate.of("$L[$L] = $L");
+  private static final int CHUNK_SIZE = 512;
+
+  private final String typeName;
+  private final TypeName valueType;
+  private final Map<String, CodeBlock> entries = new LinkedHashMap<>();
+
+  /**
+   * @param typeName the simple name of the generated type
+   * @param valueType the type of the values, must not be a primitive type
+   * @throws IllegalArgumentException if the value type is primitive
+   */
+  public LookupTableWriter(String typeName, TypeName valueType) {
+    if (valueType.isPrimitive()) {
+      throw new IllegalArgumentException(
+          "Lookup value type cannot be primitive [" + valueType + "]");
+    }
+    this.typeName = typeName;
+    this.valueType = valueType;
+  }
+
+  /**
+   * Adds an entry
+   *
+   * @param key the key
+   * @param value the expression of the value, evaluated once when the lookup type is initialized
+   * @return same writer instance
+   * @throws IllegalArgumentException if the key was already added
+   */
+  public LookupTableWriter put(String key, CodeBlock value) {
+    if (entries.putIfAbsent(key, value) != null) {
+      throw new IllegalArgumentException("Duplicate lookup key [" + key + "]");
+    }
+    return this;
+  }
+
+  /** @return the generated lookup type */
+  public TypeSpec build() {
+    TypeSpec.Builder type =
+        TypeSpec.classBuilder(typeName)
+            .addModifiers(Modifier.FINAL)
+            .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+            .addMethod(
+                MethodSpec.methodBuilder("size")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(int.class)
+                    .addStatement("return $L", entries.size())
+                    .build())
+            .addMethod(
+                MethodSpec.methodBuilder("contains")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .addParameter(String.class, "key")
+                    .returns(boolean.class)
+                    .addStatement("return indexOf(key) >= 0")
+                    .build());
+
+    Optional<PerfectHash> perfectHash = PerfectHash.find(entries.keySet());
+    List<String> keys = new ArrayList<>();
+    if (perfectHash.isPresent()) {
+      keys.addAll(Arrays.asList(perfectHash.get().getSlots()));
+      addPerfectHashIndex(type, perfectHash.get());
+    } else {
+      keys.addAll(entries.keySet());
+      addSwitchIndex(type, keys);
+    }
+
+    addArray(type, ClassName.get(String.class), "KEYS", keys, STRING::apply);
+    TypeName component = arrayComponent(valueType);
+    addArray(type, component, "VALUES", keys, entries::get);
+
+    MethodSpec.Builder get =
+        MethodSpec.methodBuilder("get")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(String.class, "key")
+            .returns(valueType)
+            .addStatement("int index = indexOf(key)");
+    if (component.equals(valueType)) {
+      get.addStatement("return index < 0 ? null : VALUES[index]");
+    } else {
+      get.addAnnotation(
+              AnnotationSpec.builder(SuppressWarnings.class)
+                  .addMember("value", "$S", "unchecked")
+                  .build())
+          .addStatement("return index < 0 ? null : ($T) VALUES[index]", valueType);
+    }
+    return type.addMethod(get.build()).build();
+  }
+
+  private void addPerfectHashIndex(TypeSpec.Builder type, PerfectHash perfectHash) {
+    int[] displacements = perfectHash.getDisplacements();
+    List<Integer> displacementList = new ArrayList<>(displacements.length);
+    for (int displacement : displacements) {
+      displacementList.add(displacement);
+    }
+    addArray(type, TypeName.INT, "DISPLACEMENTS", displacementList, LITERAL::apply);
+    type.addMethod(
+        MethodSpec.methodBuilder("mix")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(int.class, "hashCode")
+            .addParameter(int.class, "seed")
+            .returns(int.class)
+            .addStatement("int x = (hashCode ^ seed) * 0x9E3779B1")
+            .addStatement("return x ^ (x >>> 15)")
+            .build());
+    type.addMethod(
+        MethodSpec.methodBuilder("indexOf")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(String.class, "key")
+            .returns(int.class)
+            .addStatement("int hashCode = key.hashCode()")
+            .addStatement(
+                "int slot = mix(hashCode, DISPLACEMENTS[mix(hashCode, 0) & $L]) & $L",
+                displacements.length - 1,
+                perfectHash.getSlotCount() - 1)
+            .addStatement("return key.equals(KEYS[slot]) ? slot : -1")
+            .build());
+  }
+
+  private static void addSwitchIndex(TypeSpec.Builder type, List<String> keys) {
+    if (keys.size() <= CHUNK_SIZE) {
+      type.addMethod(switchIndex("indexOf", keys, 0));
+      return;
+    }
+    MethodSpec.Builder indexOf =
+        MethodSpec.methodBuilder("indexOf")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(String.class, "key")
+            .returns(int.class)
+            .addStatement("int index");
+    for (int from = 0, chunk = 0; from < keys.size(); from += CHUNK_SIZE, chunk++) {
+      String chunkName = "indexOf" + chunk;
+      type.addMethod(
+          switchIndex(
+              chunkName, keys.subList(from, Math.min(from + CHUNK_SIZE, keys.size())), from));
+      indexOf
+          .beginControlFlow("if ((index = $L(key)) >= 0)", chunkName)
+          .addStatement("return index")
+          .endControlFlow();
+    }
+    type.addMethod(indexOf.addStatement("return -1").build());
+  }
+
+  private static MethodSpec switchIndex(String methodName, List<String> keys, int offset) {
+    MethodSpec.Builder indexOf =
+        MethodSpec.methodBuilder(methodName)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addParameter(String.class, "key")
+            .returns(int.class)
+            .beginControlFlow("switch (key)");
+    for (int i = 0; i < keys.size(); i++) {
+      CASE.addStatement(indexOf, keys.get(i), offset + i);
+    }
+    return indexOf.addStatement("default: return -1").endControlFlow().build();
+  }
+
+  /**
+   * Adds a static array field, an array larger than {@link #CHUNK_SIZE} is created empty and filled
+   * by one static method per chunk called from the static initializer
+   */
+  private static <T> void addArray(
+      TypeSpec.Builder type, TypeName component, String name, List<T> items, Function<T, ?> item) {
+    FieldSpec.Builder field =
+        FieldSpec.builder(
+            ArrayTypeName.of(component), name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+    if (items.size() <= CHUNK_SIZE) {
+      type.addField(
+          field
+              .initializer(
+                  CodeBlock.builder().add("new $T[] ", component).add(arrayOf(items, item)).build())
+              .build());
+      return;
+    }
+    type.addField(field.initializer("new $T[$L]", component, items.size()).build());
+    CodeBlock.Builder fill = CodeBlock.builder();
+    for (int from = 0, chunk = 0; from < items.size(); from += CHUNK_SIZE, chunk++) {
+      String fillName = "fill" + name.charAt(0) + name.substring(1).toLowerCase() + chunk;
+      MethodSpec.Builder fillChunk =
+          MethodSpec.methodBuilder(fillName).addModifiers(Modifier.PRIVATE, Modifier.STATIC);
+      for (int i = from; i < Math.min(from + CHUNK_SIZE, items.size()); i++) {
+        T value = items.get(i);
+        Object rendered = value == null ? null : item.apply(value);
+        if (rendered != null) {
+          ELEMENT.addStatement(fillChunk, name, i, rendered);
+        }
+      }
+      type.addMethod(fillChunk.build());
+      fill.addStatement("$L()", fillName);
+    }
+    type.addStaticBlock(fill.build());
+  }
+
+  private static <T> CodeBlock arrayOf(List<T> items, Function<T, ?> item) {
+    CodeBlock.Builder array = CodeBlock.builder().add("{");
+    for (int i = 0; i < items.size(); i++) {
+      T value = items.get(i);
+      array.add(i == 0 ? "" : ", ");
+      if (value == null) {
+        array.add("null");
+      } else {
+        Object rendered = item.apply(value);
+        array.add("$L", rendered == null ? "null" : rendered);
+      }
+    }
+    return array.add("}").build();
+  }
+
+  /** Generic arrays cannot be created, parameterized types are stored with wildcard arguments */
+  private static TypeName arrayComponent(TypeName typeName) {
+    if (!(typeName instanceof ParameterizedTypeName)) {
+      return typeName;
+    }
+    ParameterizedTypeName parameterized = (ParameterizedTypeName) typeName;
+    TypeName[] wildcards = new TypeName[parameterized.typeArguments.size()];
+    Arrays.fill(wildcards, WildcardTypeName.subtypeOf(Object.class));
+    return ParameterizedTypeName.get(parameterized.rawType, wildcards);
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.util.Elements;
+
+/**
+ * The elements consumed by a processing step, with their annotation values, as plain data that can
+ * be written to a compact binary file and read back without a compiler.
+ *
+ * <p>The binary format starts with a table of all distinct strings, elements and values then refer
+ * to strings by their index in the table.
+ */
+public class ModelSnapshot {
+
+  private static final int MAGIC = 0x444D534E;
+  private static final int VERSION = 2;
+
+  private final String name;
+  private final List<ElementSnapshot> elements;
+
+  public ModelSnapshot(String name, List<ElementSnapshot> elements) {
+    this.name = name;
+    this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+  }
+
+  /**
+   * Creates a snapshot of a collection of elements
+   *
+   * @param name the snapshot name, usually the step name
+   * @param elements the elements
+   * @param elementUtils the elements utils
+   * @return the model snapshot
+   */
+  public static ModelSnapshot of(
+      String name, Collection<? extends Element> elements, Elements elementUtils) {
+    List<ElementSnapshot> snapshots = new ArrayList<>(elements.size());
+    for (Element element : elements) {
+      snapshots.add(ElementSnapshot.of(element, elementUtils));
+    }
+    return new ModelSnapshot(name, snapshots);
+  }
+
+  /** @return the snapshot name */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the root elements of the snapshot */
+  public List<ElementSnapshot> getElements() {
+    return elements;
+  }
+
+  /** @return the snapshot in its binary form */
+  public byte[] toBytes() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      writeTo(out);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes the snapshot in its binary form to a file
+   *
+   * @param path the file path
+   * @throws IOException if the file cannot be written
+   */
+  public void writeTo(Path path) throws IOException {
+    if (Objects.nonNull(path.getParent())) {
+      Files.createDirectories(path.getParent());
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+      writeTo(out);
+    }
+  }
+
+  /**
+   * Writes the snapshot in its binary form
+   *
+   * @param out the output stream
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    Encoder encoder = new Encoder();
+    encoder.writeString(name);
+    encoder.writeElements(elements);
+
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    writeVarInt(data, encoder.strings.size());
+    for (String string : encoder.strings.keySet()) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(data, bytes.length);
+      data.write(bytes);
+    }
+    encoder.body.writeTo(data);
+    data.flush();
+  }
+
+  /**
+   * Reads a snapshot from a file
+   *
+   * @param path the file path
+   * @return the model snapshot
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  public static ModelSnapshot readFrom(Path path) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      return readFrom(in);
+    }
+  }
+
+  /**
+   * Reads a snapshot from its binary form
+   *
+   * @param in the input stream
+   * @return the model snapshot
+   * @throws IOException if the stream cannot be read or is not a snapshot
+   */
+  public static ModelSnapshot readFrom(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a model snapshot");
+    }
+    int version = data.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported model snapshot version [" + version + "]");
+    }
+    String[] strings = new String[readVarInt(data)];
+    for (int i = 0; i < strings.length; i++) {
+      byte[] bytes = new byte[readVarInt(data)];
+      data.readFully(bytes);
+      strings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    Decoder decoder = new Decoder(data, strings);
+    String name = decoder.readString();
+    return new ModelSnapshot(name, decoder.readElements());
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static class Encoder {
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(body);
+
+    private void writeString(String value) throws IOException {
+      if (Objects.isNull(value)) {
+        writeVarInt(out, 0);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (Objects.isNull(index)) {
+        index = strings.size();
+        strings.put(value, index);
+      }
+      writeVarInt(out, index + 1);
+    }
+
+    private void writeElements(List<ElementSnapshot> elements) throws IOException {
+      writeVarInt(out, elements.size());
+      for (ElementSnapshot element : elements) {
+        writeString(element.getKind().name());
+        writeString(element.getName());
+        writeString(element.getSimpleName());
+        writeString(element.getType());
+        writeVarInt(out, element.getModifiers().size());
+        for (Modifier modifier : element.getModifiers()) {
+          writeString(modifier.name());
+        }
+        writeVarInt(out, element.getAnnotations().size());
+        for (AnnotationSnapshot annotation : element.getAnnotations()) {
+          writeAnnotation(annotation);
+        }
+        writeElements(element.getParameters());
+        writeElements(element.getEnclosedElements());
+        writeStrings(element.getSupertypes());
+        writeStrings(element.getTypeParameters());
+        writeStrings(element.getThrownTypes());
+      }
+    }
+
+    private void writeStrings(List<String> values) throws IOException {
+      writeVarInt(out, values.size());
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+
+    private void writeAnnotation(AnnotationSnapshot annotation) throws IOException {
+      writeString(annotation.getAnnotationName());
+      writeVarInt(out, annotation.getValues().size());
+      for (Map.Entry<String, Object> entry : annotation.getValues().entrySet()) {
+        writeString(entry.getKey());
+        writeValue(entry.getValue());
+      }
+    }
+
+    private void writeValue(Object value) throws IOException {
+      if (value instanceof String) {
+        out.writeByte('S');
+        writeString((String) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte('Z');
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Byte) {
+        out.writeByte('B');
+        out.writeByte((Byte) value);
+      } else if (value instanceof Character) {
+        out.writeByte('C');
+        out.writeChar((Character) value);
+      } else if (value instanceof Short) {
+        out.writeByte('H');
+        out.writeShort((Short) value);
+      } else if (value instanceof Integer) {
+        out.writeByte('I');
+        out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        out.writeByte('J');
+        out.writeLong((Long) value);
+      } else if (value instanceof Float) {
+        out.writeByte('F');
+        out.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        out.writeByte('D');
+        out.writeDouble((Double) value);
+      } else if (value instanceof AnnotationSnapshot.EnumConstant) {
+        out.writeByte('E');
+        writeString(((AnnotationSnapshot.EnumConstant) value).getEnumType());
+        writeString(((AnnotationSnapshot.EnumConstant) value).getName());
+      } else if (value instanceof AnnotationSnapshot.ClassReference) {
+        out.writeByte('T');
+        writeString(((AnnotationSnapshot.ClassReference) value).getTypeName());
+      } else if (value instanceof AnnotationSnapshot) {
+        out.writeByte('@');
+        writeAnnotation((AnnotationSnapshot) value);
+      } else if (value instanceof List) {
+        List<?> items = (List<?>) value;
+        out.writeByte('[');
+        writeVarInt(out, items.size());
+        for (Object item : items) {
+          writeValue(item);
+        }
+      } else {
+        throw new IOException("Unsupported annotation value [" + value + "]");
+      }
+    }
+  }
+
+  private static class Decoder {
+    private final DataInputStream in;
+    private final String[] strings;
+    private final Map<String, ElementKind> kinds = new HashMap<>();
+
+    private Decoder(DataInputStream in, String[] strings) {
+      this.in = in;
+      this.strings = strings;
+    }
+
+    private String readString() throws IOException {
+      int index = readVarInt(in);
+      return index == 0 ? null : strings[index - 1];
+    }
+
+    private List<ElementSnapshot> readElements() throws IOException {
+      int count = readVarInt(in);
+      List<ElementSnapshot> elements = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        ElementKind kind = kinds.computeIfAbsent(readString(), ElementKind::valueOf);
+        String name = readString();
+        String simpleName = readString();
+        String type = readString();
+        int modifiersCount = readVarInt(in);
+        List<Modifier> modifiers = new ArrayList<>(modifiersCount);
+        for (int m = 0; m < modifiersCount; m++) {
+          modifiers.add(Modifier.valueOf(readString()));
+        }
+        int annotationsCount = readVarInt(in);
+        List<AnnotationSnapshot> annotations = new ArrayList<>(annotationsCount);
+        for (int a = 0; a < annotationsCount; a++) {
+          annotations.add(readAnnotation());
+        }
+        List<ElementSnapshot> parameters = readElements();
+        List<ElementSnapshot> enclosed = readElements();
+        elements.add(
+            new ElementSnapshot(
+                kind,
+                name,
+                simpleName,
+                type,
+                modifiers,
+                annotations,
+                parameters,
+                enclosed,
+                readStrings(),
+                readStrings(),
+                readStrings()));
+      }
+      return elements;
+    }
+
+    private List<String> readStrings() throws IOException {
+      int count = readVarInt(in);
+      List<String> values = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(readString());
+      }
+      return values;
+    }
+
+    private AnnotationSnapshot readAnnotation() throws IOException {
+      String annotationName = readString();
+      int count = readVarInt(in);
+      Map<String, Object> values = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        String member = readString();
+        values.put(member, readValue());
+      }
+      return new AnnotationSnapshot(annotationName, values);
+    }
+
+    private Object readValue() throws IOException {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 'S':
+          return readString();
+        case 'Z':
+          return in.readBoolean();
+        case 'B':
+          return in.readByte();
+        case 'C':
+          return in.readChar();
+        case 'H':
+          return in.readShort();
+        case 'I':
+          return in.readInt();
+        case 'J':
+          return in.readLong();
+        case 'F':
+          return in.readFloat();
+        case 'D':
+          return in.readDouble();
+        case 'E':
+          return new AnnotationSnapshot.EnumConstant(readString(), readString());
+        case 'T':
+          return new AnnotationSnapshot.ClassReference(readString());
+        case '@':
+          return readAnnotation();
+        case '[':
+          int count = readVarInt(in);
+          List<Object> items = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            items.add(readValue());
+          }
+          return items;
+        default:
+          throw new IOException("Corrupted model snapshot, unknown value tag [" + tag + "]");
+      }
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.ModuleElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.util.Elements;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * A per module index of registered entries, written as the resource {@code <marker>.index} with one
+ * entry per line.
+ *
+ * <p>Each library module adds its entries while processing, the index is written once when
+ * processing is over through the {@link AggregatingResourceWriter}. Along with the first entry a
+ * marker type named after the registry and the hash of the module name is generated in the package
+ * of the index, so that an aggregating module finds the indexes of all the modules it depends on
+ * from their marker types, and reads each of them with {@link Filer#getResource} in one pass with
+ * {@link #read()}, without looking up any other binary type. The processor class path is never
+ * used.
+ *
+ * <p>The module name is the {@link ProcessorOptions#MODULE_NAME} option, or the class output
+ * directory of the module without the option, the marker names then change with the location of the
+ * build. The marker and the index of a class path module are written to the {@value #INDEX_PACKAGE}
+ * package shared by all the class path modules. When the option is the name of the JPMS named
+ * module being compiled they are written to a package of their own, {@code
+ * org.dominokit.domino.apt.index.<marker>}, as two named modules cannot contain the same package,
+ * and an aggregating named module finds them from the names of the modules it reads. The index of a
+ * named module is not found when the module is on the class path of the aggregating module.
+ *
+ * <p>The marker is a source file, the first entry of a module should not be added in the last round
+ * of processing where generated sources are not compiled without a warning.
+ *
+ * @see AbstractRegisterMethodWriter#writeIndex(Collection, ModuleIndex, IndexCodec)
+ * @see AbstractRegisterMethodWriter#writeMerged(Collection, ModuleIndex, IndexCodec)
+ */
+public class ModuleIndex {
+
+  /**
+   * The package of the index resources and marker types of the module indexes on the class path,
+   * and the parent package of the module indexes of the modules with a name
+   */
+  public static final String INDEX_PACKAGE = "org.dominokit.domino.apt.index";
+
+  private static final String INDEX_EXTENSION = ".index";
+
+  private static final int HASH_LENGTH = 16;
+  private static final Map<Filer, Map<String, String>> MARKERS = new WeakHashMap<>();
+
+  private final ProcessingEnvironment processingEnv;
+  private final AggregatingResourceWriter aggregatingResources;
+  private final GeneratedFilesRegistry generatedFiles;
+  private final SourceRenderer sourceRenderer;
+  private final String registry;
+
+  /**
+   * Creates an index for a registry that reads the indexes on the compile classpath
+   *
+   * @param processingEnv the processing environment
+   * @param registry the registry name, used as the prefix of the resource name
+   * @throws IllegalArgumentException if the registry name is not a valid java identifier
+   */
+  public ModuleIndex(ProcessingEnvironment processingEnv, String registry) {
+    if (!isIdentifier(registry)) {
+      throw new IllegalArgumentException("Invalid registry name [" + registry + "]");
+    }
+    this.processingEnv = processingEnv;
+    this.aggregatingResources = AggregatingResourceWriter.of(processingEnv);
+    this.generatedFiles = GeneratedFilesRegistry.of(processingEnv);
+    this.sourceRenderer = SourceRenderer.of(processingEnv);
+    this.registry = registry;
+  }
+
+  /** @return the registry name */
+  public String getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Adds an entry to the index of the current module
+   *
+   * @param entry the entry, must be a single line that does not start with {@code #}
+   * @throws FilerException if the index resource or marker is generated by something else
+   */
+  public void add(String entry) throws FilerException {
+    String line = line(entry);
+    String marker = marker();
+    aggregatingResources.append(
+        StandardLocation.CLASS_OUTPUT, indexPackage(marker), marker + INDEX_EXTENSION, line);
+  }
+
+  /**
+   * Adds a list of entries to the index of the current module
+   *
+   * @param entries the entries, each must be a single line
+   * @throws FilerException if the index resource or marker is generated by something else
+   */
+  public void addAll(Collection<String> entries) throws FilerException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    List<String> lines = new ArrayList<>(entries.size());
+    for (String entry : entries) {
+      lines.add(line(entry));
+    }
+    String marker = marker();
+    aggregatingResources.appendAll(
+        StandardLocation.CLASS_OUTPUT, indexPackage(marker), marker + INDEX_EXTENSION, lines);
+  }
+
+  /**
+   * Returns the marker of the current module, generated with the first entry
+   *
+   * @return the simple name of the marker type, also the name of the index resource without its
+   *     extension
+   */
+  private String marker() throws FilerException {
+    Filer filer = processingEnv.getFiler();
+    synchronized (MARKERS) {
+      Map<String, String> markers = MARKERS.computeIfAbsent(filer, key -> new HashMap<>());
+      String marker = markers.get(registry);
+      if (Objects.isNull(marker)) {
+        marker = registry + "_" + hash(moduleName(filer));
+        writeMarker(filer, marker);
+        markers.put(registry, marker);
+      }
+      return marker;
+    }
+  }
+
+  private String moduleName(Filer filer) {
+    Optional<String> moduleName =
+        ProcessorOptions.getValue(processingEnv, ProcessorOptions.MODULE_NAME);
+    if (moduleName.isPresent()) {
+      return moduleName.get();
+    }
+    try {
+      return filer
+          .getResource(StandardLocation.CLASS_OUTPUT, INDEX_PACKAGE, registry + INDEX_EXTENSION)
+          .toUri()
+          .toString();
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Cannot name the module index ["
+              + registry
+              + "], set the "
+              + ProcessorOptions.MODULE_NAME
+              + " option",
+          e);
+    }
+  }
+
+  /** @return the package of the index and marker of the current module */
+  private String indexPackage(String marker) {
+    Optional<String> moduleName =
+        ProcessorOptions.getValue(processingEnv, ProcessorOptions.MODULE_NAME);
+    return moduleName.isPresent()
+            && Objects.nonNull(processingEnv.getElementUtils().getModuleElement(moduleName.get()))
+        ? INDEX_PACKAGE + "." + marker
+        : INDEX_PACKAGE;
+  }
+
+  private void writeMarker(Filer filer, String marker) throws FilerException {
+    String packageName = indexPackage(marker);
+    generatedFiles.claimSource(packageName + "." + marker, "module index [" + registry + "]");
+    try {
+      sourceRenderer.write(
+          filer,
+          JavaFile.builder(
+                  packageName,
+                  TypeSpec.classBuilder(marker)
+                      .addJavadoc("Marks the module index {@code $L$L}\n", marker, INDEX_EXTENSION)
+                      .addModifiers(Modifier.FINAL)
+                      .addMethod(
+                          MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                      .build())
+              .build());
+    } catch (FilerException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write module index marker [" + marker + "]", e);
+    }
+  }
+
+  /**
+   * Reads the entries of all the module indexes of this registry on the compile class path and
+   * module path in one pass, the index of the current module is not read
+   *
+   * @return the entries of all the modules, sorted and de-duplicated
+   * @throws UncheckedIOException if an index cannot be read
+   */
+  public SortedSet<String> read() {
+    SortedSet<String> entries = new TreeSet<>();
+    Elements elements = processingEnv.getElementUtils();
+    PackageElement markers = elements.getPackageElement(INDEX_PACKAGE);
+    if (Objects.nonNull(markers)) {
+      readIndexes(StandardLocation.CLASS_PATH, INDEX_PACKAGE, markers, entries);
+    }
+    for (ModuleElement module : elements.getAllModuleElements()) {
+      if (module.isUnnamed()) {
+        continue;
+      }
+      String moduleName = module.getQualifiedName().toString();
+      String marker = registry + "_" + hash(moduleName);
+      String packageName = INDEX_PACKAGE + "." + marker;
+      if (Objects.nonNull(elements.getPackageElement(module, packageName))) {
+        readIndex(
+            StandardLocation.MODULE_PATH,
+            moduleName + "/" + packageName,
+            marker + INDEX_EXTENSION,
+            entries);
+      }
+      PackageElement sharedMarkers = elements.getPackageElement(module, INDEX_PACKAGE);
+      if (Objects.nonNull(sharedMarkers)) {
+        // an automatic module built on the class path
+        readIndexes(
+            StandardLocation.MODULE_PATH, moduleName + "/" + INDEX_PACKAGE, sharedMarkers, entries);
+      }
+    }
+    return entries;
+  }
+
+  private void readIndexes(
+      StandardLocation location, String packageName, Element markers, SortedSet<String> entries) {
+    String prefix = registry + "_";
+    for (Element marker : markers.getEnclosedElements()) {
+      String markerName = marker.getSimpleName().toString();
+      if (markerName.startsWith(prefix) && isHash(markerName.substring(prefix.length()))) {
+        readIndex(location, packageName, markerName + INDEX_EXTENSION, entries);
+      }
+    }
+  }
+
+  private void readIndex(
+      StandardLocation location,
+      String packageName,
+      String resourceName,
+      SortedSet<String> entries) {
+    try {
+      FileObject resource =
+          processingEnv.getFiler().getResource(location, packageName, resourceName);
+      try (BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(resource.openInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String entry = line.trim();
+          if (!entry.isEmpty() && !entry.startsWith("#")) {
+            entries.add(entry);
+          }
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      // the marker of the current module, its index is not written yet
+    } catch (FilerException e) {
+      // the current named module, it is not on the module path
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read module index [" + resourceName + "]", e);
+    }
+  }
+
+  private static String hash(String entry) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(entry.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < HASH_LENGTH / 2; i++) {
+        sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+            .append(Character.forDigit(digest[i] & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean isHash(String name) {
+    return name.length() == HASH_LENGTH
+        && name.chars().allMatch(c -> Character.digit(c, 16) >= 0 && !Character.isUpperCase(c));
+  }
+
+  private static boolean isIdentifier(String name) {
+    if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+      return false;
+    }
+    return name.chars().allMatch(Character::isJavaIdentifierPart);
+  }
+
+  private static String line(String entry) {
+    if (entry.indexOf('\n') >= 0
+        || entry.indexOf('\r') >= 0
+        || entry.trim().isEmpty()
+        || entry.trim().startsWith("#")) {
+      throw new IllegalArgumentException("Invalid module index entry [" + entry + "]");
+    }
+    return entry.trim();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A collision free hash of a fixed set of string keys, computed at processing time with the hash
+ * and displace method.
+ *
+ * <p>The keys are first distributed in buckets, then every bucket is given a displacement so that
+ * all its keys land in free slots of the table. A lookup is two mixes of {@link String#hashCode()}
+ * and an array read:
+ *
+ * <pre>
+ * int bucket = mix(key.hashCode(), 0) &amp; bucketMask;
+ * int slot = mix(key.hashCode(), displacements[bucket]) &amp; slotMask;
+ * </pre>
+ *
+ * Keys with the same {@link String#hashCode()} cannot be separated, {@link #find(Collection)}
+ * returns {@link Optional#empty()} for such key sets.
+ */
+public class PerfectHash {
+
+  private static final int MAX_DISPLACEMENT = 1 << 16;
+
+  private final int[] displacements;
+  private final String[] slots;
+
+  private PerfectHash(int[] displacements, String[] slots) {
+    this.displacements = displacements;
+    this.slots = slots;
+  }
+
+  /**
+   * Finds a perfect hash for a set of keys
+   *
+   * @param keys the keys, must be distinct
+   * @return the perfect hash if one is found, {@link Optional#empty()} otherwise
+   * @throws IllegalArgumentException if the keys are not distinct
+   */
+  public static Optional<PerfectHash> find(Collection<String> keys) {
+    Set<String> distinctKeys = new HashSet<>(keys);
+    if (distinctKeys.size() != keys.size()) {
+      throw new IllegalArgumentException("Perfect hash keys must be distinct");
+    }
+    Set<Integer> hashCodes = new HashSet<>();
+    for (String key : keys) {
+      if (!hashCodes.add(key.hashCode())) {
+        return Optional.empty();
+      }
+    }
+    int slotCount = powerOfTwo(Math.max(2, keys.size() * 2));
+    int bucketCount = powerOfTwo(Math.max(1, keys.size() / 2));
+
+    List<List<String>> buckets = new ArrayList<>(bucketCount);
+    for (int i = 0; i < bucketCount; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    for (String key : keys) {
+      buckets.get(mix(key.hashCode(), 0) & (bucketCount - 1)).add(key);
+    }
+    Integer[] order = new Integer[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+    int[] displacements = new int[bucketCount];
+    String[] slots = new String[slotCount];
+    int[] candidates = new int[keys.size()];
+    for (int bucket : order) {
+      List<String> bucketKeys = buckets.get(bucket);
+      if (bucketKeys.isEmpty()) {
+        break;
+      }
+      int displacement = place(bucketKeys, slots, candidates);
+      if (displacement == 0) {
+        return Optional.empty();
+      }
+      displacements[bucket] = displacement;
+    }
+    return Optional.of(new PerfectHash(displacements, slots));
+  }
+
+  private static int place(List<String> bucketKeys, String[] slots, int[] candidates) {
+    int slotMask = slots.length - 1;
+    for (int displacement = 1; displacement < MAX_DISPLACEMENT; displacement++) {
+      int placed = 0;
+      for (String key : bucketKeys) {
+        int slot = mix(key.hashCode(), displacement) & slotMask;
+        if (slots[slot] != null || contains(candidates, placed, slot)) {
+          break;
+        }
+        candidates[placed++] = slot;
+      }
+      if (placed == bucketKeys.size()) {
+        for (int i = 0; i < placed; i++) {
+          slots[candidates[i]] = bucketKeys.get(i);
+        }
+        return displacement;
+      }
+    }
+    return 0;
+  }
+
+  private static boolean contains(int[] values, int length, int value) {
+    for (int i = 0; i < length; i++) {
+      if (values[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int powerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  /**
+   * The mix function of the hash, the generated lookups must use the same function
+   *
+   * @param hashCode the key hash code
+   * @param seed the seed, {@code 0} for the bucket and the bucket displacement for the slot
+   * @return the mixed hash
+   */
+  public static int mix(int hashCode, int seed) {
+    int x = (hashCode ^ seed) * 0x9E3779B1;
+    return x ^ (x >>> 15);
+  }
+
+  /**
+   * @param key the key
+   * @return the slot of the key, a key that is not in the set can return any slot
+   */
+  public int slot(String key) {
+    int hashCode = key.hashCode();
+    int displacement = displacements[mix(hashCode, 0) & (displacements.length - 1)];
+    return mix(hashCode, displacement) & (slots.length - 1);
+  }
+
+  /** @return the displacement of every bucket */
+  public int[] getDisplacements() {
+    return displacements.clone();
+  }
+
+  /** @return the keys by their slot, empty slots are {@code null} */
+  public String[] getSlots() {
+    return slots.clone();
+  }
+
+  /** @return the number of slots, always a power of two */
+  public int getSlotCount() {
+    return slots.length;
+  }
+}
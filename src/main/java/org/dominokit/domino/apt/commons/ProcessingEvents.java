@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JDK Flight Recorder events of the annotation processing phases, recorded when javac runs with
+ * {@code -J-XX:StartFlightRecording}. The events cost nothing when they are not enabled in the
+ * recording settings.
+ *
+ * <ul>
+ *   <li>{@link RoundEvent} a processing round, see {@link BaseProcessor#beginRound}
+ *   <li>{@link StepEvent} a {@link BaseProcessor.ProcessingStep}, see {@link BaseProcessor#runStep}
+ *   <li>{@link WriteSourceEvent} a source written by {@link AbstractProcessingStep#writeSource}
+ *   <li>{@link TypeResolutionEvent} a {@link ProcessorUtil} type resolution above 1 ms by default
+ * </ul>
+ */
+public final class ProcessingEvents {
+
+  private static final String CATEGORY = "Domino";
+  private static final String SUB_CATEGORY = "Annotation Processing";
+
+  private ProcessingEvents() {}
+
+  /** A processing round of a processor */
+  @Name("org.dominokit.domino.apt.Round")
+  @Label("Processing Round")
+  @Category({CATEGORY, SUB_CATEGORY})
+  @StackTrace(false)
+  static final class RoundEvent extends Event {
+    @Label("Processor")
+    String processor;
+
+    @Label("Round")
+    int round;
+
+    @Label("Root Elements")
+    int rootElements;
+
+    @Label("Processing Over")
+    boolean processingOver;
+  }
+
+  /** A processing step invocation */
+  @Name("org.dominokit.domino.apt.Step")
+  @Label("Processing Step")
+  @Category({CATEGORY, SUB_CATEGORY})
+  @StackTrace(false)
+  static final class StepEvent extends Event {
+    @Label("Step")
+    String step;
+
+    @Label("Annotation")
+    String annotation;
+
+    @Label("Element Count")
+    int elementCount;
+  }
+
+  /** A generated source written to the filer */
+  @Name("org.dominokit.domino.apt.WriteSource")
+  @Label("Write Source")
+  @Category({CATEGORY, SUB_CATEGORY})
+  @StackTrace(false)
+  static final class WriteSourceEvent extends Event {
+    @Label("Step")
+    String step;
+
+    @Label("File Name")
+    String fileName;
+
+    @Label("Rendered Length")
+    @Description("The number of characters of the rendered source")
+    int renderedLength;
+  }
+
+  /** A slow type resolution in {@link ProcessorUtil} */
+  @Name("org.dominokit.domino.apt.TypeResolution")
+  @Label("Type Resolution")
+  @Category({CATEGORY, SUB_CATEGORY})
+  @Threshold("1 ms")
+  static final class TypeResolutionEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Type")
+    String type;
+
+    @Label("Target")
+    String target;
+  }
+}
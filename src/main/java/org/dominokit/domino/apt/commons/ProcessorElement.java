@@ -16,9 +16,10 @@
 package org.dominokit.domino.apt.commons;
 
 import java.lang.annotation.Annotation;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Stream;
 import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
@@ -30,19 +31,39 @@ import javax.lang.model.util.Types;
 /** Utility methods for operating on elements. */
 public class ProcessorElement {
 
-  private final Element element;
+  private final ElementHandle handle;
   private final Elements elementUtils;
   private final Types typeUtils;
   private final Messager messager;
+  private Element element;
 
   public ProcessorElement(
       Element element, Elements elementUtils, Types typeUtils, Messager messager) {
+    this.handle = null;
     this.element = element;
     this.elementUtils = elementUtils;
     this.typeUtils = typeUtils;
     this.messager = messager;
   }
 
+  /**
+   * Creates a processor element from an {@link ElementHandle}, the handle is resolved against the
+   * element utils on first use. Handles can be kept across rounds instead of elements, create a new
+   * processor element from the handle in every round.
+   *
+   * @param handle the element handle
+   * @param elementUtils the element utils of the current round
+   * @param typeUtils the type utils of the current round
+   * @param messager the messager
+   */
+  public ProcessorElement(
+      ElementHandle handle, Elements elementUtils, Types typeUtils, Messager messager) {
+    this.handle = handle;
+    this.elementUtils = elementUtils;
+    this.typeUtils = typeUtils;
+    this.messager = messager;
+  }
+
   /**
    * Creates new processor element for different element
    *
@@ -55,17 +76,17 @@ public class ProcessorElement {
 
   /** @return the element package */
   public String elementPackage() {
-    return elementUtils.getPackageOf(element).getQualifiedName().toString();
+    return elementUtils.getPackageOf(getElement()).getQualifiedName().toString();
   }
 
   /** @return the element as a {@link TypeElement} */
   public TypeElement asTypeElement() {
-    return (TypeElement) element;
+    return (TypeElement) getElement();
   }
 
   /** @return the simple name of the element */
   public String simpleName() {
-    return element.getSimpleName().toString();
+    return getElement().getSimpleName().toString();
   }
 
   /** @return the full qualified name for the element */
@@ -81,7 +102,28 @@ public class ProcessorElement {
    * @return the annotation if exists, null otherwise
    */
   public <A extends Annotation> A getAnnotation(Class<A> annotation) {
-    return element.getAnnotation(annotation);
+    return getElement().getAnnotation(annotation);
+  }
+
+  /**
+   * Checks if the element is annotated with an annotation, unlike {@link #getAnnotation(Class)}
+   * this does not create an instance of the annotation.
+   *
+   * @param annotation the annotation class
+   * @return true if the element is annotated, false otherwise
+   */
+  public boolean hasAnnotation(Class<? extends Annotation> annotation) {
+    return AnnotationUtil.isAnnotationPresent(getElement(), annotation);
+  }
+
+  /**
+   * Returns the annotation mirror of an annotation if exist in the element
+   *
+   * @param annotation the annotation class
+   * @return the annotation mirror if exists, {@link Optional#empty()} otherwise
+   */
+  public Optional<AnnotationMirror> getAnnotationMirror(Class<? extends Annotation> annotation) {
+    return AnnotationUtil.findAnnotationMirror(getElement(), annotation);
   }
 
   /**
@@ -90,7 +132,7 @@ public class ProcessorElement {
    * @return the fields stream
    */
   public Stream<Element> fieldsStream() {
-    return element.getEnclosedElements().stream()
+    return getElement().getEnclosedElements().stream()
         .filter(e -> e.getKind() == ElementKind.FIELD)
         .map(e -> (Element) e);
   }
@@ -101,7 +143,7 @@ public class ProcessorElement {
    * @return the methods stream
    */
   public Stream<ExecutableElement> methodsStream() {
-    return element.getEnclosedElements().stream()
+    return getElement().getEnclosedElements().stream()
         .filter(e -> e.getKind() == ElementKind.METHOD)
         .map(e -> (ExecutableElement) e);
   }
@@ -113,22 +155,13 @@ public class ProcessorElement {
    */
   public <A extends Annotation> Stream<Element> fieldsAnnotatedWithStream(
       Class<A> annotationClass) {
-    return element.getEnclosedElements().stream()
+    String annotationName = annotationClass.getCanonicalName();
+    return getElement().getEnclosedElements().stream()
         .filter(e -> e.getKind() == ElementKind.FIELD)
-        .filter(e -> fieldAnnotatedWith(e, annotationClass))
+        .filter(e -> AnnotationUtil.isAnnotationPresent(e, annotationName))
         .map(ele -> (Element) ele);
   }
 
-  /**
-   * Checks if the element is annotated with an annotation
-   *
-   * @return true if the element is annotated, false otherwise
-   */
-  private <A extends Annotation> boolean fieldAnnotatedWith(
-      Element element, Class<A> annotationClass) {
-    return Objects.nonNull(element.getAnnotation(annotationClass));
-  }
-
   /**
    * Checks if the element is assignable of the target class (i.e. if it's a derivative type of it)
    *
@@ -137,7 +170,7 @@ public class ProcessorElement {
    */
   public boolean isAssignableFrom(Class<?> targetClass) {
     return typeUtils.isAssignable(
-        element.asType(),
+        getElement().asType(),
         typeUtils.getDeclaredType(elementUtils.getTypeElement(targetClass.getName())));
   }
 
@@ -188,18 +221,37 @@ public class ProcessorElement {
    * @param kind the kind to check
    * @return true if the element is of the same kind, throws exception otherwise
    * @throws ProcessingException if the element is not of the same kind
+   * @see ElementValidator for collecting all the violations without exceptions
    */
   public boolean validateElementKind(ElementKind kind) {
-    if (element.getKind() != kind)
-      throw new ProcessingException(element, "Only " + kind + " can be annotated with @%s");
+    if (getElement().getKind() != kind)
+      throw new ProcessingException(getElement(), "Only " + kind + " can be annotated with @%s");
     return true;
   }
 
-  /** @return the element */
+  /**
+   * @return the element
+   * @throws IllegalStateException if the element handle cannot be resolved in the current round
+   */
   public Element getElement() {
+    if (element == null) {
+      element =
+          handle
+              .resolve(elementUtils, typeUtils)
+              .orElseThrow(
+                  () -> new IllegalStateException("Element [" + handle + "] cannot be resolved"));
+    }
     return element;
   }
 
+  /**
+   * @return a handle to the element that can be kept instead of this processor element across
+   *     rounds
+   */
+  public ElementHandle toHandle() {
+    return handle != null ? handle : ElementHandle.of(element, typeUtils);
+  }
+
   /** @return the messager */
   public Messager getMessager() {
     return messager;
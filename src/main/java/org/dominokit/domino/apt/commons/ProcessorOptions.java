@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+
+/**
+ * The processor options supported by every {@link BaseProcessor}, passed to javac as {@code
+ * -A<option>=<value>}
+ */
+public class ProcessorOptions {
+
+  /**
+   * Generates sources without javadoc, indentation and blank lines, the generated type only keeps a
+   * single generated marker comment.
+   */
+  public static final String COMPACT_OUTPUT = "domino.apt.compactOutput";
+
+  /**
+   * A directory where the steps record the {@link ModelSnapshot} of the elements they generate
+   * from, see {@link AbstractProcessingStep#generate(String, java.util.Collection,
+   * SnapshotGenerator)}
+   */
+  public static final String SNAPSHOT_DIR = "domino.apt.snapshotDir";
+
+  /**
+   * A directory where the generated sources are cached between builds, see {@link GenerationCache}
+   */
+  public static final String CACHE_DIR = "domino.apt.cacheDir";
+
+  /** Reports generated methods and types over the JIT budgets, see {@link BytecodeBudget} */
+  public static final String BYTECODE_ANALYSIS = "domino.apt.bytecodeAnalysis";
+
+  /** The max inline size in bytes, methods over it are only reported when this option is set */
+  public static final String MAX_INLINE_SIZE = "domino.apt.maxInlineSize";
+
+  /** The frequent inline size in bytes, defaults to 325 */
+  public static final String FREQ_INLINE_SIZE = "domino.apt.freqInlineSize";
+
+  /** The huge method limit in bytes, defaults to 8000 */
+  public static final String HUGE_METHOD_LIMIT = "domino.apt.hugeMethodLimit";
+
+  /** The constant pool entries limit of a generated type, defaults to 60000 */
+  public static final String CONSTANT_POOL_LIMIT = "domino.apt.constantPoolLimit";
+
+  /**
+   * Reports the generated functional shapes that box a primitive type, see {@link
+   * ProcessorUtil#functionShape(javax.lang.model.type.TypeMirror, javax.lang.model.type.TypeMirror,
+   * javax.lang.model.element.Element)}
+   */
+  public static final String REPORT_BOXING = "domino.apt.reportBoxing";
+
+  /**
+   * Generates the same output for the same input regardless of the iteration order of the round
+   * elements, the elements of a step are sorted by a stable key, see {@link
+   * ProcessorUtil#stableOrder(java.util.Collection)}, and the entries of an {@link
+   * AbstractRegisterMethodWriter} created with the processing environment are sorted by the code
+   * that registers them
+   */
+  public static final String DETERMINISTIC = "domino.apt.deterministic";
+
+  /**
+   * Generates the sources of each generation a second time and reports the sources that differ
+   * between the two runs, see {@link AbstractProcessingStep#cached(String, java.util.Collection,
+   * Runnable)}
+   */
+  public static final String VERIFY_DETERMINISM = "domino.apt.verifyDeterminism";
+
+  /**
+   * Keeps the metadata of the jar and JDK types in a JVM wide cache between compilations, for
+   * compilations in a long lived daemon, see {@link ClasspathMetadataCache}
+   */
+  public static final String CLASSPATH_CACHE = "domino.apt.classpathCache";
+
+  /**
+   * The name of the module being compiled, names the {@link ModuleIndex} of the module and puts it
+   * in a package of its own, required for JPMS named modules
+   */
+  public static final String MODULE_NAME = "domino.apt.moduleName";
+
+  private static final Set<String> SUPPORTED_OPTIONS =
+      Collections.unmodifiableSet(
+          new LinkedHashSet<>(
+              Arrays.asList(
+                  COMPACT_OUTPUT,
+                  SNAPSHOT_DIR,
+                  CACHE_DIR,
+                  BYTECODE_ANALYSIS,
+                  MAX_INLINE_SIZE,
+                  FREQ_INLINE_SIZE,
+                  HUGE_METHOD_LIMIT,
+                  CONSTANT_POOL_LIMIT,
+                  REPORT_BOXING,
+                  DETERMINISTIC,
+                  VERIFY_DETERMINISM,
+                  CLASSPATH_CACHE,
+                  MODULE_NAME)));
+
+  private ProcessorOptions() {}
+
+  /** @return the names of all the options supported by the library */
+  public static Set<String> supportedOptions() {
+    return SUPPORTED_OPTIONS;
+  }
+
+  /**
+   * Returns the value of an option
+   *
+   * @param processingEnv the processing environment
+   * @param option the option name
+   * @return the option value if exists and not empty, {@link Optional#empty()} otherwise
+   */
+  public static Optional<String> getValue(ProcessingEnvironment processingEnv, String option) {
+    String value = processingEnv.getOptions().get(option);
+    return value == null || value.trim().isEmpty() ? Optional.empty() : Optional.of(value.trim());
+  }
+
+  /**
+   * Returns the value of an integer option
+   *
+   * @param processingEnv the processing environment
+   * @param option the option name
+   * @param defaultValue the value to use if the option is not set
+   * @return the option value if exists, the default value otherwise
+   * @throws IllegalArgumentException if the option value is not an integer
+   */
+  public static int getIntValue(
+      ProcessingEnvironment processingEnv, String option, int defaultValue) {
+    Optional<String> value = getValue(processingEnv, option);
+    if (!value.isPresent()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.get());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "Option [" + option + "] must be an integer but was [" + value.get() + "]", e);
+    }
+  }
+
+  /**
+   * Checks if a boolean option is enabled, an option passed without a value is considered enabled.
+   *
+   * @param processingEnv the processing environment
+   * @param option the option name
+   * @return {@code true} if the option is enabled, {@code false} otherwise
+   */
+  public static boolean isEnabled(ProcessingEnvironment processingEnv, String option) {
+    Map<String, String> options = processingEnv.getOptions();
+    if (!options.containsKey(option)) {
+      return false;
+    }
+    String value = options.get(option);
+    return value == null || value.isEmpty() || Boolean.parseBoolean(value);
+  }
+}
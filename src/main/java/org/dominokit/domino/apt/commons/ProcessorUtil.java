@@ -33,6 +33,7 @@ import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
 
 /** Utility methods for operating on elements. */
 public class ProcessorUtil {
@@ -44,6 +45,10 @@ public class ProcessorUtil {
   protected final Types types;
   protected final Elements elements;
   protected final ProcessingEnvironment processingEnv;
+  protected final AnnotationValueReader annotationValueReader = new AnnotationValueReader();
+  protected final TypeMemo typeMemo;
+  private final ClasspathMetadataCache classpathCache;
+  private SupertypeMatcher containerMatcher;
 
   public ProcessorUtil(ProcessingEnvironment processingEnv) {
     this.messager = processingEnv.getMessager();
@@ -51,6 +56,8 @@ public class ProcessorUtil {
     this.types = processingEnv.getTypeUtils();
     this.elements = processingEnv.getElementUtils();
     this.processingEnv = processingEnv;
+    this.typeMemo = TypeMemo.of(processingEnv);
+    this.classpathCache = ClasspathMetadataCache.of(processingEnv).orElse(null);
   }
 
   /** @return {@link Messager} to print messages */
@@ -68,6 +75,24 @@ public class ProcessorUtil {
     return elements;
   }
 
+  /** @return {@link AnnotationValueReader} for reading annotations values */
+  public AnnotationValueReader getAnnotationValueReader() {
+    return annotationValueReader;
+  }
+
+  /**
+   * Reads all the values of an annotation including the default values.
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return The annotation values if the element has the annotation, {@link Optional#empty()}
+   *     otherwise
+   */
+  public Optional<AnnotationValues> readAnnotation(
+      Element element, Class<? extends Annotation> annotation) {
+    return annotationValueReader.read(element, annotation);
+  }
+
   /**
    * Returns all methods annotated with an annotation
    *
@@ -122,6 +147,11 @@ public class ProcessorUtil {
       TypeElement typeElement,
       Class<? extends Annotation> annotation,
       Function<Element, Boolean> filter) {
+    return getAnnotatedElements(typeElement, annotation.getCanonicalName(), filter);
+  }
+
+  private List<Element> getAnnotatedElements(
+      TypeElement typeElement, String annotationName, Function<Element, Boolean> filter) {
     TypeMirror superclass = typeElement.getSuperclass();
     if (superclass.getKind().equals(TypeKind.NONE)) {
       return new ArrayList<>();
@@ -130,11 +160,11 @@ public class ProcessorUtil {
     List<Element> methods =
         typeElement.getEnclosedElements().stream()
             .filter(filter::apply)
-            .filter(element -> nonNull(element.getAnnotation(annotation)))
+            .filter(element -> AnnotationUtil.isAnnotationPresent(element, annotationName))
             .collect(Collectors.toList());
 
     methods.addAll(
-        getAnnotatedElements((TypeElement) types.asElement(superclass), annotation, filter));
+        getAnnotatedElements((TypeElement) types.asElement(superclass), annotationName, filter));
     return methods;
   }
 
@@ -178,6 +208,65 @@ public class ProcessorUtil {
     return findTypeArgument(typeElement.getSuperclass(), targetClass);
   }
 
+  /**
+   * Returns the erased supertype closure of a declared type, the direct supertypes of jar and JDK
+   * types are read from the {@link ClasspathMetadataCache} when {@link
+   * ProcessorOptions#CLASSPATH_CACHE} is enabled.
+   *
+   * @param typeMirror the type
+   * @return the qualified names of the type and all its super classes and interfaces, an empty set
+   *     if the type is not a declared type
+   */
+  public Set<String> supertypeNames(TypeMirror typeMirror) {
+    if (typeMirror.getKind() != TypeKind.DECLARED) {
+      return Collections.emptySet();
+    }
+    return supertypeNames((TypeElement) types.asElement(typeMirror));
+  }
+
+  private Set<String> supertypeNames(TypeElement typeElement) {
+    return supertypeNames(typeElement, new boolean[] {true});
+  }
+
+  /**
+   * Computes the closure of a type, a closure that includes an erroneous supertype is not memoized
+   * and marks the closures of its subtypes as incomplete so that they are not memoized either.
+   */
+  private Set<String> supertypeNames(TypeElement typeElement, boolean[] complete) {
+    String qualifiedName = typeElement.getQualifiedName().toString();
+    Optional<Set<String>> memoized = typeMemo.getSupertypeNames(qualifiedName);
+    if (memoized.isPresent()) {
+      return memoized.get();
+    }
+    Set<String> names = new LinkedHashSet<>();
+    names.add(qualifiedName);
+    boolean[] ownComplete = {true};
+    if (nonNull(classpathCache)) {
+      for (String supertype : classpathCache.directSupertypes(typeElement)) {
+        TypeElement supertypeElement = elements.getTypeElement(supertype);
+        if (nonNull(supertypeElement)) {
+          names.addAll(supertypeNames(supertypeElement, ownComplete));
+        } else {
+          names.add(supertype);
+          ownComplete[0] = false;
+        }
+      }
+    } else {
+      for (TypeMirror supertype : types.directSupertypes(typeElement.asType())) {
+        if (supertype.getKind() == TypeKind.DECLARED) {
+          names.addAll(supertypeNames((TypeElement) types.asElement(supertype), ownComplete));
+        } else if (supertype.getKind() == TypeKind.ERROR) {
+          ownComplete[0] = false;
+        }
+      }
+    }
+    if (ownComplete[0]) {
+      return typeMemo.putSupertypeNames(qualifiedName, names);
+    }
+    complete[0] = false;
+    return Collections.unmodifiableSet(names);
+  }
+
   /**
    * Capitalize the first letter of a {@link String}
    *
@@ -220,13 +309,48 @@ public class ProcessorUtil {
    * Checks if the type mirror is assignable of the target class (i.e. if it's a derivative type of
    * it)
    *
+   * <p>The target class stands for its raw type, a declared type is assignable to a raw type when
+   * the erasure of the raw type is one of its supertypes. When {@link
+   * ProcessorOptions#CLASSPATH_CACHE} is enabled a declared type is therefore checked against its
+   * erased {@link #supertypeNames(TypeMirror)}, other types and types with an erroneous supertype
+   * are checked with {@link Types#isAssignable(TypeMirror, TypeMirror)}.
+   *
    * @param typeMirror the type mirror
    * @param targetClass the target class
    * @return true if the type mirror is assignable from the target class, false otherwise
    */
   public boolean isAssignableFrom(TypeMirror typeMirror, Class<?> targetClass) {
-    return types.isAssignable(
-        typeMirror, types.getDeclaredType(elements.getTypeElement(targetClass.getCanonicalName())));
+    ProcessingEvents.TypeResolutionEvent event = new ProcessingEvents.TypeResolutionEvent();
+    event.begin();
+    boolean assignable;
+    boolean[] complete = {true};
+    Set<String> supertypeNames =
+        nonNull(classpathCache) && typeMirror.getKind() == TypeKind.DECLARED
+            ? supertypeNames((TypeElement) types.asElement(typeMirror), complete)
+            : null;
+    if (nonNull(supertypeNames) && complete[0]) {
+      assignable = supertypeNames.contains(targetClass.getCanonicalName());
+    } else {
+      assignable =
+          types.isAssignable(
+              typeMirror,
+              types.getDeclaredType(elements.getTypeElement(targetClass.getCanonicalName())));
+    }
+    commit(event, "isAssignableFrom", typeMirror, targetClass);
+    return assignable;
+  }
+
+  private static void commit(
+      ProcessingEvents.TypeResolutionEvent event,
+      String operation,
+      TypeMirror typeMirror,
+      Class<?> targetClass) {
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.type = typeMirror.toString();
+      event.target = targetClass.getCanonicalName();
+      event.commit();
+    }
   }
 
   /**
@@ -239,16 +363,59 @@ public class ProcessorUtil {
    *     otherwise
    */
   public <A extends Annotation> A findClassAnnotation(Element element, Class<A> annotation) {
-    A result = element.getAnnotation(annotation);
-    if (nonNull(result)) {
-      return result;
-    }
-    TypeMirror superclass = ((TypeElement) element).getSuperclass();
-    if (superclass.getKind().equals(TypeKind.NONE)) {
-      return null;
-    } else {
-      return findClassAnnotation(types.asElement(superclass), annotation);
+    return findAnnotatedClass(element, annotation)
+        .map(annotatedClass -> annotatedClass.getAnnotation(annotation))
+        .orElse(null);
+  }
+
+  /**
+   * Searches for the first class in the hierarchy of an element that is annotated with a specific
+   * annotation, starting from the element itself. The check is done using the annotation qualified
+   * name and does not create an annotation instance.
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return The element or the first super class annotated with the annotation, {@link
+   *     Optional#empty()} otherwise
+   */
+  public Optional<Element> findAnnotatedClass(
+      Element element, Class<? extends Annotation> annotation) {
+    String annotationName = annotation.getCanonicalName();
+    Element current = element;
+    while (nonNull(current)) {
+      if (AnnotationUtil.isAnnotationPresent(current, annotationName)) {
+        return Optional.of(current);
+      }
+      TypeMirror superclass = ((TypeElement) current).getSuperclass();
+      current = superclass.getKind().equals(TypeKind.NONE) ? null : types.asElement(superclass);
     }
+    return Optional.empty();
+  }
+
+  /**
+   * Searches for the annotation mirror of an annotation in an element and its super classes.
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return The annotation mirror if the element or any of its super classes has it, {@link
+   *     Optional#empty()} otherwise
+   */
+  public Optional<AnnotationMirror> findClassAnnotationMirror(
+      Element element, Class<? extends Annotation> annotation) {
+    return findAnnotatedClass(element, annotation)
+        .flatMap(annotatedClass -> AnnotationUtil.findAnnotationMirror(annotatedClass, annotation));
+  }
+
+  /**
+   * Checks if an element is annotated with a specific annotation without creating an annotation
+   * instance.
+   *
+   * @param element the element
+   * @param annotation the annotation class
+   * @return {@code true} if the element has the annotation, {@code false} otherwise
+   */
+  public boolean hasAnnotation(Element element, Class<? extends Annotation> annotation) {
+    return AnnotationUtil.isAnnotationPresent(element, annotation);
   }
 
   /**
@@ -295,20 +462,9 @@ public class ProcessorUtil {
    */
   public Optional<TypeMirror> getClassValueFromAnnotation(
       Element element, Class<? extends Annotation> annotation, String paramName) {
-    for (AnnotationMirror am : element.getAnnotationMirrors()) {
-      if (types.isSameType(
-          am.getAnnotationType(),
-          elements.getTypeElement(annotation.getCanonicalName()).asType())) {
-        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
-            am.getElementValues().entrySet()) {
-          if (paramName.equals(entry.getKey().getSimpleName().toString())) {
-            AnnotationValue annotationValue = entry.getValue();
-            return Optional.of((DeclaredType) annotationValue.getValue());
-          }
-        }
-      }
-    }
-    return Optional.empty();
+    return AnnotationUtil.findAnnotationMirror(element, annotation)
+        .flatMap(am -> AnnotationUtil.getExplicitValue(am, paramName))
+        .flatMap(AnnotationUtil::asTypeMirror);
   }
 
   /**
@@ -331,29 +487,11 @@ public class ProcessorUtil {
    */
   public List<TypeMirror> getClassArrayValueFromAnnotation(
       Element element, Class<? extends Annotation> annotation, String paramName) {
-
-    List<TypeMirror> values = new ArrayList<>();
-
-    for (AnnotationMirror am : element.getAnnotationMirrors()) {
-      if (types.isSameType(
-          am.getAnnotationType(),
-          elements.getTypeElement(annotation.getCanonicalName()).asType())) {
-        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
-            am.getElementValues().entrySet()) {
-          if (paramName.equals(entry.getKey().getSimpleName().toString())) {
-            List<AnnotationValue> classesTypes =
-                (List<AnnotationValue>) entry.getValue().getValue();
-            Iterator<? extends AnnotationValue> iterator = classesTypes.iterator();
-
-            while (iterator.hasNext()) {
-              AnnotationValue next = iterator.next();
-              values.add((TypeMirror) next.getValue());
-            }
-          }
-        }
-      }
-    }
-    return values;
+    return AnnotationUtil.findAnnotationMirror(element, annotation)
+        .flatMap(am -> AnnotationUtil.getExplicitValue(am, paramName))
+        .map(AnnotationUtil::asTypeMirrors)
+        .map(ArrayList::new)
+        .orElseGet(ArrayList::new);
   }
 
   /**
@@ -376,14 +514,19 @@ public class ProcessorUtil {
    * @return {@code true} if the type mirror is a {@link String}, {@code false} otherwise
    */
   public boolean isStringType(TypeMirror typeMirror) {
+    ProcessingEvents.TypeResolutionEvent event = new ProcessingEvents.TypeResolutionEvent();
+    event.begin();
     TypeMirror stringType = elements.getTypeElement("java.lang.String").asType();
-    return types.isAssignable(stringType, typeMirror);
+    boolean assignable = types.isAssignable(stringType, typeMirror);
+    commit(event, "isStringType", typeMirror, String.class);
+    return assignable;
   }
 
   /**
    * Returns the type name of the type mirror.
    *
    * <p>If the type is a primitive type, then the type name of its wrapper type will be returned.
+   * Prefer {@link #valueType(TypeMirror, boolean)} where the value is never {@code null}.
    *
    * @param type the type mirror.
    * @return The type name.
@@ -410,7 +553,118 @@ public class ProcessorUtil {
         return TypeName.get(Void.class);
       }
     } else {
-      return TypeName.get(type);
+      return typeName(type);
+    }
+  }
+
+  /**
+   * Returns the type name of the type mirror, memoized by {@link TypeMemo}
+   *
+   * @param type the type mirror
+   * @return the type name
+   */
+  public TypeName typeName(TypeMirror type) {
+    return typeMemo.typeName(type);
+  }
+
+  /**
+   * Returns the erasure of the type mirror
+   *
+   * @param type the type mirror
+   * @return the erasure of the type
+   */
+  public TypeMirror erasure(TypeMirror type) {
+    return types.erasure(type);
+  }
+
+  /**
+   * Returns the type name of the type mirror for a value of that type.
+   *
+   * <p>A value that is never {@code null} is declared with the primitive type, unboxing the wrapper
+   * types, e.g {@code Integer} becomes {@code int}. A nullable value is declared with the wrapper
+   * type, see {@link #wrapperType(TypeMirror)}.
+   *
+   * @param type the type mirror
+   * @param nullable {@code true} if the value can be {@code null}
+   * @return the type name
+   */
+  public TypeName valueType(TypeMirror type, boolean nullable) {
+    if (nullable) {
+      return wrapperType(type);
+    }
+    TypeName typeName = typeName(type);
+    return typeName.isBoxedPrimitive() ? typeName.unbox() : typeName;
+  }
+
+  /**
+   * Returns the supplier shape for a type, e.g {@code IntSupplier} for {@code int}
+   *
+   * @param valueType the supplied type
+   * @param element the element the supplier is generated for, boxing is reported on it when {@link
+   *     ProcessorOptions#REPORT_BOXING} is enabled
+   * @return the supplier shape
+   */
+  public FunctionalShape supplierShape(TypeMirror valueType, Element element) {
+    return reportBoxing(FunctionalShape.supplier(typeName(valueType)), element);
+  }
+
+  /**
+   * Returns the function shape between two types, e.g {@code ToLongFunction<T>} for a function from
+   * {@code T} to {@code long}
+   *
+   * @param inputType the input type
+   * @param outputType the output type
+   * @param element the element the function is generated for, boxing is reported on it when {@link
+   *     ProcessorOptions#REPORT_BOXING} is enabled
+   * @return the function shape
+   */
+  public FunctionalShape functionShape(
+      TypeMirror inputType, TypeMirror outputType, Element element) {
+    return reportBoxing(
+        FunctionalShape.function(typeName(inputType), typeName(outputType)), element);
+  }
+
+  private FunctionalShape reportBoxing(FunctionalShape shape, Element element) {
+    if (shape.isBoxing()
+        && ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.REPORT_BOXING)) {
+      new ValidationDiagnostic(
+              Diagnostic.Kind.NOTE,
+              element,
+              null,
+              "Generated " + shape.getType() + " boxes " + shape.getBoxedPrimitives())
+          .printTo(messager);
+    }
+    return shape;
+  }
+
+  /**
+   * Returns the elements sorted by a key that does not change between compilations, e.g {@code
+   * p.A#m(java.lang.String)} for a method, see {@link ElementHandle}
+   *
+   * @param elements the elements
+   * @param <T> the type of the elements
+   * @return the sorted elements
+   */
+  public <T extends Element> List<T> stableOrder(Collection<T> elements) {
+    Map<T, String> keys = new HashMap<>();
+    elements.forEach(element -> keys.put(element, stableKey(element)));
+    List<T> sorted = new ArrayList<>(elements);
+    sorted.sort(Comparator.comparing(keys::get));
+    return sorted;
+  }
+
+  /**
+   * @param element the element
+   * @return a key of the element that does not change between compilations
+   */
+  public String stableKey(Element element) {
+    try {
+      return ElementHandle.of(element, types).toString();
+    } catch (IllegalArgumentException e) {
+      // local and anonymous types have no qualified name
+      Element enclosing = element.getEnclosingElement();
+      String prefix = isNull(enclosing) ? "" : stableKey(enclosing);
+      return prefix + "$" + element.getKind() + ":" + element.getSimpleName();
     }
   }
 
@@ -474,8 +728,13 @@ public class ProcessorUtil {
    * @return {@code true} if the type is same type as the target class, {@code false} otherwise
    */
   public boolean isSameType(TypeMirror typeMirror, Class<?> targetClass) {
-    return types.isSameType(
-        typeMirror, elements.getTypeElement(targetClass.getCanonicalName()).asType());
+    ProcessingEvents.TypeResolutionEvent event = new ProcessingEvents.TypeResolutionEvent();
+    event.begin();
+    boolean sameType =
+        types.isSameType(
+            typeMirror, elements.getTypeElement(targetClass.getCanonicalName()).asType());
+    commit(event, "isSameType", typeMirror, targetClass);
+    return sameType;
   }
 
   /**
@@ -532,7 +791,7 @@ public class ProcessorUtil {
    *     otherwise.
    */
   public boolean isCollection(TypeMirror typeMirror) {
-    return !isPrimitive(typeMirror) && isAssignableFrom(typeMirror, Collection.class);
+    return containerMatcher().matches(typeMirror, Collection.class);
   }
 
   /**
@@ -543,7 +802,7 @@ public class ProcessorUtil {
    *     otherwise.
    */
   public boolean isIterable(TypeMirror typeMirror) {
-    return !isPrimitive(typeMirror) && isAssignableFrom(typeMirror, Iterable.class);
+    return containerMatcher().matches(typeMirror, Iterable.class);
   }
 
   /**
@@ -553,7 +812,14 @@ public class ProcessorUtil {
    * @return {@code true} if the type is a {@link Map} or assignable from, {@code false} otherwise.
    */
   public boolean isMap(TypeMirror typeMirror) {
-    return !isPrimitive(typeMirror) && isAssignableFrom(typeMirror, Map.class);
+    return containerMatcher().matches(typeMirror, Map.class);
+  }
+
+  private SupertypeMatcher containerMatcher() {
+    if (isNull(containerMatcher)) {
+      containerMatcher = new SupertypeMatcher(this, Collection.class, Map.class, Iterable.class);
+    }
+    return containerMatcher;
   }
 
   /**
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Parameterizable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.SimpleAnnotationValueVisitor9;
+import javax.lang.model.util.SimpleTypeVisitor9;
+
+/**
+ * Collects the declarations of the types referenced by a set of elements, from their annotations,
+ * super types, type parameters, fields, methods parameters, return types and thrown types, so that
+ * a change in any of those declarations is part of the {@link GenerationCache} key of a generation.
+ *
+ * <p>Only the types directly referenced are collected, types of the {@code java.*} packages and the
+ * elements themselves and their nested types are not.
+ */
+class ReferencedTypes {
+
+  private final Set<String> own = new HashSet<>();
+  private final Map<String, TypeElement> referenced = new TreeMap<>();
+
+  private ReferencedTypes() {}
+
+  /**
+   * @param elements the elements of a generation
+   * @return the referenced types sorted by their qualified name
+   */
+  static List<TypeElement> of(Collection<? extends Element> elements) {
+    ReferencedTypes referencedTypes = new ReferencedTypes();
+    elements.forEach(referencedTypes::own);
+    elements.forEach(referencedTypes::visitElement);
+    return new ArrayList<>(referencedTypes.referenced.values());
+  }
+
+  private void own(Element element) {
+    if (element instanceof TypeElement) {
+      own.add(((TypeElement) element).getQualifiedName().toString());
+      element.getEnclosedElements().forEach(this::own);
+    }
+  }
+
+  private void visitElement(Element element) {
+    element.getAnnotationMirrors().forEach(this::visitAnnotation);
+    if (element instanceof Parameterizable) {
+      for (TypeParameterElement typeParameter : ((Parameterizable) element).getTypeParameters()) {
+        typeParameter.getBounds().forEach(this::visitType);
+      }
+    }
+    if (element instanceof TypeElement) {
+      TypeElement typeElement = (TypeElement) element;
+      visitType(typeElement.getSuperclass());
+      typeElement.getInterfaces().forEach(this::visitType);
+      typeElement.getEnclosedElements().forEach(this::visitElement);
+    } else if (element instanceof ExecutableElement) {
+      ExecutableElement executable = (ExecutableElement) element;
+      visitType(executable.getReturnType());
+      executable.getParameters().forEach(this::visitElement);
+      executable.getThrownTypes().forEach(this::visitType);
+    } else {
+      visitType(element.asType());
+    }
+  }
+
+  private void visitAnnotation(AnnotationMirror annotation) {
+    visitType(annotation.getAnnotationType());
+    annotation.getElementValues().values().forEach(this::visitValue);
+  }
+
+  private void visitValue(AnnotationValue value) {
+    value.accept(
+        new SimpleAnnotationValueVisitor9<Void, Void>() {
+          @Override
+          public Void visitType(TypeMirror type, Void unused) {
+            ReferencedTypes.this.visitType(type);
+            return null;
+          }
+
+          @Override
+          public Void visitAnnotation(AnnotationMirror annotation, Void unused) {
+            ReferencedTypes.this.visitAnnotation(annotation);
+            return null;
+          }
+
+          @Override
+          public Void visitArray(List<? extends AnnotationValue> values, Void unused) {
+            values.forEach(ReferencedTypes.this::visitValue);
+            return null;
+          }
+        },
+        null);
+  }
+
+  private void visitType(TypeMirror type) {
+    type.accept(
+        new SimpleTypeVisitor9<Void, Void>() {
+          @Override
+          public Void visitDeclared(DeclaredType declaredType, Void unused) {
+            TypeElement typeElement = (TypeElement) declaredType.asElement();
+            String qualifiedName = typeElement.getQualifiedName().toString();
+            if (!qualifiedName.startsWith("java.") && !own.contains(qualifiedName)) {
+              referenced.putIfAbsent(qualifiedName, typeElement);
+            }
+            declaredType.getEnclosingType().accept(this, null);
+            declaredType.getTypeArguments().forEach(argument -> argument.accept(this, null));
+            return null;
+          }
+
+          @Override
+          public Void visitArray(ArrayType arrayType, Void unused) {
+            return arrayType.getComponentType().accept(this, null);
+          }
+
+          @Override
+          public Void visitWildcard(WildcardType wildcardType, Void unused) {
+            if (wildcardType.getExtendsBound() != null) {
+              wildcardType.getExtendsBound().accept(this, null);
+            }
+            if (wildcardType.getSuperBound() != null) {
+              wildcardType.getSuperBound().accept(this, null);
+            }
+            return null;
+          }
+
+          @Override
+          public Void visitIntersection(IntersectionType intersectionType, Void unused) {
+            intersectionType.getBounds().forEach(bound -> bound.accept(this, null));
+            return null;
+          }
+        },
+        null);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Indexes the elements of a round by annotation in a single traversal of the root elements.
+ *
+ * <p>Every element is bucketed under all the indexed annotations it is annotated with, directly,
+ * through an {@link Inherited} annotation of a super class, or through a meta-annotation, e.g. an
+ * element annotated with {@code @Route} where {@code @Route} is annotated with {@code @Component}
+ * is also found under {@code @Component}. Unlike {@link RoundEnvironment#getElementsAnnotatedWith},
+ * the cost of a round does not grow with the number of indexed annotations.
+ */
+public class RoundElementIndex {
+
+  private static final String ALL_ANNOTATIONS = "*";
+
+  private final Set<String> annotationNames;
+  private final boolean indexAll;
+  private final Map<String, Set<String>> indexedNamesByAnnotation = new HashMap<>();
+  private final Map<String, Set<Element>> elementsByAnnotation = new HashMap<>();
+  private RoundEnvironment indexedRound;
+
+  /**
+   * @param annotationNames the qualified names of the annotations to index, {@code *} indexes all
+   *     the annotations
+   */
+  public RoundElementIndex(Collection<String> annotationNames) {
+    this.annotationNames = new HashSet<>();
+    for (String annotationName : annotationNames) {
+      // supported annotation types can be prefixed with a module name
+      this.annotationNames.add(annotationName.substring(annotationName.indexOf('/') + 1));
+    }
+    this.indexAll = this.annotationNames.contains(ALL_ANNOTATIONS);
+  }
+
+  /**
+   * @param annotationName the qualified name of the annotation
+   * @return {@code true} if the annotation is indexed, {@code false} otherwise
+   */
+  public boolean isIndexed(String annotationName) {
+    return indexAll || annotationNames.contains(annotationName);
+  }
+
+  /**
+   * Indexes the root elements of a round, a round that is already indexed is not indexed again. The
+   * meta-annotations of the annotation types are looked up again in every round, an annotation type
+   * that is erroneous in a round can be generated with its meta-annotations in a later one.
+   *
+   * @param roundEnv the round environment
+   * @return same index instance
+   */
+  public RoundElementIndex index(RoundEnvironment roundEnv) {
+    if (indexedRound != roundEnv) {
+      elementsByAnnotation.clear();
+      indexedNamesByAnnotation.clear();
+      for (Element rootElement : roundEnv.getRootElements()) {
+        scan(rootElement);
+      }
+      indexedRound = roundEnv;
+    }
+    return this;
+  }
+
+  /**
+   * @param annotation the annotation
+   * @return the elements of the indexed round annotated with the annotation
+   * @throws IllegalArgumentException if the annotation is not indexed
+   */
+  public Set<Element> getElementsAnnotatedWith(Class<? extends Annotation> annotation) {
+    return getElementsAnnotatedWith(annotation.getCanonicalName());
+  }
+
+  /**
+   * @param annotationName the qualified name of the annotation
+   * @return the elements of the indexed round annotated with the annotation
+   * @throws IllegalArgumentException if the annotation is not indexed
+   */
+  public Set<Element> getElementsAnnotatedWith(String annotationName) {
+    if (!isIndexed(annotationName)) {
+      throw new IllegalArgumentException("Annotation [" + annotationName + "] is not indexed");
+    }
+    Set<Element> elements = elementsByAnnotation.get(annotationName);
+    return elements == null ? Collections.emptySet() : Collections.unmodifiableSet(elements);
+  }
+
+  private void scan(Element element) {
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      bucket(element, annotationMirror);
+    }
+    if (element instanceof TypeElement) {
+      scanInherited((TypeElement) element);
+    }
+    if (element.getKind() == ElementKind.PACKAGE || element.getKind() == ElementKind.MODULE) {
+      return;
+    }
+    for (Element enclosed : element.getEnclosedElements()) {
+      scan(enclosed);
+    }
+    if (element instanceof ExecutableElement) {
+      for (Element parameter : ((ExecutableElement) element).getParameters()) {
+        scan(parameter);
+      }
+      for (TypeParameterElement typeParameter : ((ExecutableElement) element).getTypeParameters()) {
+        scan(typeParameter);
+      }
+    } else if (element instanceof TypeElement) {
+      for (TypeParameterElement typeParameter : ((TypeElement) element).getTypeParameters()) {
+        scan(typeParameter);
+      }
+    }
+  }
+
+  private void scanInherited(TypeElement typeElement) {
+    Set<String> present = new HashSet<>();
+    for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+      present.add(AnnotationUtil.annotationName(annotationMirror));
+    }
+    TypeMirror superclass = typeElement.getSuperclass();
+    while (superclass.getKind() == TypeKind.DECLARED) {
+      TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+      for (AnnotationMirror annotationMirror : superElement.getAnnotationMirrors()) {
+        String annotationName = AnnotationUtil.annotationName(annotationMirror);
+        if (AnnotationUtil.isAnnotationPresent(
+                annotationMirror.getAnnotationType().asElement(), Inherited.class)
+            && present.add(annotationName)) {
+          bucket(typeElement, annotationMirror);
+        }
+      }
+      superclass = superElement.getSuperclass();
+    }
+  }
+
+  private void bucket(Element element, AnnotationMirror annotationMirror) {
+    for (String indexedName : indexedNames(annotationMirror.getAnnotationType().asElement())) {
+      elementsByAnnotation.computeIfAbsent(indexedName, name -> new LinkedHashSet<>()).add(element);
+    }
+  }
+
+  /** The indexed annotations an annotation type stands for, itself and its meta-annotations */
+  private Set<String> indexedNames(Element annotationType) {
+    String annotationName = ((TypeElement) annotationType).getQualifiedName().toString();
+    Set<String> names = indexedNamesByAnnotation.get(annotationName);
+    if (names == null) {
+      names = new LinkedHashSet<>();
+      List<Element> pending = new ArrayList<>();
+      Set<String> visited = new HashSet<>();
+      pending.add(annotationType);
+      while (!pending.isEmpty()) {
+        TypeElement current = (TypeElement) pending.remove(pending.size() - 1);
+        String currentName = current.getQualifiedName().toString();
+        if (!visited.add(currentName)) {
+          continue;
+        }
+        if (isIndexed(currentName)) {
+          names.add(currentName);
+        }
+        if (!currentName.startsWith("java.lang.annotation.")) {
+          for (AnnotationMirror meta : current.getAnnotationMirrors()) {
+            pending.add(meta.getAnnotationType().asElement());
+          }
+        }
+      }
+      indexedNamesByAnnotation.put(annotationName, names);
+    }
+    return names;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.JavaFile;
+import java.util.List;
+
+/**
+ * A generator that produces sources from a {@link ModelSnapshot} instead of the live compiler
+ * model, so that the same generator can run inside a processing step and be replayed by {@link
+ * SnapshotRunner} without javac.
+ *
+ * <p>Implementations used with {@link SnapshotRunner} must have a public no-args constructor.
+ */
+@FunctionalInterface
+public interface SnapshotGenerator {
+
+  /**
+   * Generates the sources for a snapshot
+   *
+   * @param snapshot the model snapshot
+   * @return the generated java files
+   */
+  List<JavaFile> generate(ModelSnapshot snapshot);
+}
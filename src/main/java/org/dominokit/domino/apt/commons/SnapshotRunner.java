@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.JavaFile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Replays a {@link ModelSnapshot} file recorded by a processing step against a {@link
+ * SnapshotGenerator} and writes the generated sources, without starting javac.
+ *
+ * <pre>
+ * java -cp ... org.dominokit.domino.apt.commons.SnapshotRunner &lt;snapshot-file&gt; &lt;generator-class&gt; &lt;output-dir&gt;
+ * </pre>
+ */
+public class SnapshotRunner {
+
+  private final SnapshotGenerator generator;
+  private final SourceRenderer renderer;
+
+  public SnapshotRunner(SnapshotGenerator generator, SourceRenderer renderer) {
+    this.generator = generator;
+    this.renderer = renderer;
+  }
+
+  /**
+   * Generates the sources of a snapshot file and writes them to a directory
+   *
+   * @param snapshotFile the snapshot file
+   * @param outputDirectory the output directory
+   * @return the generated java files
+   * @throws IOException if the snapshot cannot be read or a source cannot be written
+   */
+  public List<JavaFile> run(Path snapshotFile, Path outputDirectory) throws IOException {
+    List<JavaFile> javaFiles = generator.generate(ModelSnapshot.readFrom(snapshotFile));
+    for (JavaFile javaFile : javaFiles) {
+      Path packageDirectory = outputDirectory;
+      if (!javaFile.packageName.isEmpty()) {
+        packageDirectory = outputDirectory.resolve(javaFile.packageName.replace('.', '/'));
+      }
+      Files.createDirectories(packageDirectory);
+      Files.write(
+          packageDirectory.resolve(javaFile.typeSpec.name + ".java"),
+          renderer.render(javaFile).getBytes(StandardCharsets.UTF_8));
+    }
+    return javaFiles;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 3) {
+      System.err.println(
+          "Usage: SnapshotRunner <snapshot-file> <generator-class> <output-dir> [compact]");
+      System.exit(1);
+    }
+    SnapshotGenerator generator =
+        (SnapshotGenerator) Class.forName(args[1]).getDeclaredConstructor().newInstance();
+    boolean compact = args.length > 3 && Boolean.parseBoolean(args[3]);
+    long start = System.nanoTime();
+    List<JavaFile> javaFiles =
+        new SnapshotRunner(generator, new SourceRenderer(compact))
+            .run(Paths.get(args[0]), Paths.get(args[2]));
+    System.out.println(
+        "Generated "
+            + javaFiles.size()
+            + " files in "
+            + (System.nanoTime() - start) / 1_000_000
+            + " ms");
+  }
+}
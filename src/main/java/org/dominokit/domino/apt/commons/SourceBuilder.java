@@ -17,10 +17,23 @@ package org.dominokit.domino.apt.commons;
 
 import com.squareup.javapoet.TypeSpec;
 import java.util.List;
+import java.util.stream.Stream;
 
 /** Interface for all source builders */
 public interface SourceBuilder {
 
   /** @return the type spec of the source */
   List<TypeSpec.Builder> asTypeBuilder();
+
+  /**
+   * Returns the type specs of the source as a stream, builders that generate many types should
+   * override this to create each type spec only when it is consumed, so that a type spec can be
+   * written and released before the next one is created, see {@link
+   * AbstractProcessingStep#writeSource(Stream, String, int)}
+   *
+   * @return the type specs of the source
+   */
+  default Stream<TypeSpec.Builder> typeBuilders() {
+    return asTypeBuilder().stream();
+  }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.JavaFile;
+import java.io.IOException;
+import java.io.Writer;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+
+/**
+ * Renders {@link JavaFile}s and writes them to the {@link Filer}.
+ *
+ * <p>When {@link ProcessorOptions#COMPACT_OUTPUT} is enabled the rendered source is stripped from
+ * all non-semantic content, javadoc comments, indentation and blank lines are removed and a single
+ * generated marker comment is added instead.
+ */
+public class SourceRenderer {
+
+  static final String GENERATED_MARKER = "// This is a generated class, please don't modify";
+
+  private final boolean compact;
+
+  public SourceRenderer(boolean compact) {
+    this.compact = compact;
+  }
+
+  /**
+   * Creates a renderer configured from the processor options
+   *
+   * @param processingEnv the processing environment
+   * @return a new renderer
+   */
+  public static SourceRenderer of(ProcessingEnvironment processingEnv) {
+    return new SourceRenderer(
+        ProcessorOptions.isEnabled(processingEnv, ProcessorOptions.COMPACT_OUTPUT));
+  }
+
+  /** @return {@code true} if the renderer produces compact sources, {@code false} otherwise */
+  public boolean isCompact() {
+    return compact;
+  }
+
+  /**
+   * Renders the java file as a string
+   *
+   * @param javaFile the java file
+   * @return the rendered source
+   */
+  public String render(JavaFile javaFile) {
+    if (!compact) {
+      return javaFile.toString();
+    }
+    return GENERATED_MARKER + "\n" + compact(javaFile.toBuilder().indent("").build().toString());
+  }
+
+  /**
+   * Renders the java file and writes it to the filer
+   *
+   * @param filer the filer
+   * @param javaFile the java file
+   * @throws IOException if the file cannot be written
+   */
+  public void write(Filer filer, JavaFile javaFile) throws IOException {
+    if (!compact) {
+      javaFile.writeTo(filer);
+      return;
+    }
+    String qualifiedName =
+        javaFile.packageName.isEmpty()
+            ? javaFile.typeSpec.name
+            : javaFile.packageName + "." + javaFile.typeSpec.name;
+    write(
+        filer,
+        qualifiedName,
+        render(javaFile),
+        javaFile.typeSpec.originatingElements.toArray(new Element[0]));
+  }
+
+  /**
+   * Writes an already rendered source to the {@link Filer}
+   *
+   * @param filer the filer
+   * @param qualifiedName the qualified name of the generated type
+   * @param source the rendered source
+   * @param originatingElements the elements the source is generated from
+   * @throws IOException if the source cannot be written
+   */
+  public void write(
+      Filer filer, String qualifiedName, String source, Element... originatingElements)
+      throws IOException {
+    JavaFileObject sourceFile = filer.createSourceFile(qualifiedName, originatingElements);
+    try (Writer writer = sourceFile.openWriter()) {
+      writer.write(source);
+    }
+  }
+
+  /**
+   * Removes javadoc comments, leading white spaces and blank lines from a java source, string and
+   * character literals are kept as is.
+   *
+   * @param source the java source
+   * @return the compact source
+   */
+  static String compact(String source) {
+    StringBuilder result = new StringBuilder(source.length());
+    int length = source.length();
+    boolean lineStart = true;
+    int i = 0;
+    while (i < length) {
+      char c = source.charAt(i);
+      if (lineStart && (c == ' ' || c == '\t' || c == '\n' || c == '\r')) {
+        i++;
+      } else if (c == '\n') {
+        result.append(c);
+        lineStart = true;
+        i++;
+      } else if (c == '"' || c == '\'') {
+        int end = literalEnd(source, i, c);
+        result.append(source, i, end);
+        lineStart = false;
+        i = end;
+      } else if (source.startsWith("/**", i) && !source.startsWith("/**/", i)) {
+        int end = source.indexOf("*/", i + 3);
+        i = end < 0 ? length : end + 2;
+      } else if (source.startsWith("/*", i)) {
+        int end = source.indexOf("*/", i + 2);
+        end = end < 0 ? length : end + 2;
+        result.append(source, i, end);
+        lineStart = false;
+        i = end;
+      } else if (source.startsWith("//", i)) {
+        int end = source.indexOf('\n', i);
+        end = end < 0 ? length : end;
+        result.append(source, i, end);
+        lineStart = false;
+        i = end;
+      } else {
+        result.append(c);
+        lineStart = false;
+        i++;
+      }
+    }
+    return result.toString();
+  }
+
+  private static int literalEnd(String source, int start, char quote) {
+    int i = start + 1;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return source.length();
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+
+/**
+ * A text template for generated java sources, compiled once and rendered many times, a lighter
+ * alternative to JavaPoet for highly repetitive files written by a {@link JavaSourceWriter}.
+ *
+ * <ul>
+ *   <li>{@code {{name}}} the value of {@code name} in the model
+ *   <li>{@code {{type:name}}} the value of {@code name} as a class name, e.g {@code
+ *       java.util.List<org.example.View>}, rendered with simple names and added to the imports, see
+ *       {@link FullClassName}. A class with the same simple name as the rendered type or as an
+ *       already imported class is rendered with its qualified name
+ *   <li>{@code {{#each name}}...{{/each}}} repeats the content for every item of the {@link
+ *       Iterable} value of {@code name}, the keys of an item that is a {@link Map} are added to the
+ *       model and the item itself is {@code {{this}}}
+ *   <li>{@code {{imports}}} the import statements of all the rendered types, sorted, classes of
+ *       {@code java.lang} and of the package of the source are not imported
+ * </ul>
+ *
+ * <pre>
+ * SourceTemplate template = SourceTemplate.compile(
+ *     "package {{package}};\n\n{{imports}}\npublic class {{name}} {\n"
+ *         + "{{#each fields}}  private {{type:type}} {{field}};\n{{/each}}}\n");
+ * String source = template.render("org.example", "Views", model);
+ * </pre>
+ */
+public final class SourceTemplate {
+
+  private static final String OPEN = "{{";
+  private static final String CLOSE = "}}";
+  private static final String EACH = "#each ";
+  private static final String END_EACH = "/each";
+  private static final String TYPE = "type:";
+  private static final String IMPORTS = "imports";
+  private static final String THIS = "this";
+
+  private final List<Node> nodes;
+  private final Map<String, ParsedName> parsedNames = new HashMap<>();
+  private int expectedLength = 256;
+
+  private SourceTemplate(List<Node> nodes) {
+    this.nodes = nodes;
+  }
+
+  /**
+   * Compiles a template
+   *
+   * @param template the template text
+   * @return the compiled template
+   * @throws IllegalArgumentException if the template is not valid
+   */
+  public static SourceTemplate compile(String template) {
+    List<List<Node>> scopes = new ArrayList<>();
+    List<String> loops = new ArrayList<>();
+    scopes.add(new ArrayList<>());
+    int position = 0;
+    while (position < template.length()) {
+      int open = template.indexOf(OPEN, position);
+      if (open < 0) {
+        current(scopes).add(new Text(template.substring(position)));
+        break;
+      }
+      if (open > position) {
+        current(scopes).add(new Text(template.substring(position, open)));
+      }
+      int close = template.indexOf(CLOSE, open + OPEN.length());
+      if (close < 0) {
+        throw new IllegalArgumentException("Unclosed placeholder at " + open);
+      }
+      String tag = template.substring(open + OPEN.length(), close).trim();
+      if (tag.startsWith(EACH)) {
+        loops.add(tag.substring(EACH.length()).trim());
+        scopes.add(new ArrayList<>());
+      } else if (tag.equals(END_EACH)) {
+        if (loops.isEmpty()) {
+          throw new IllegalArgumentException("Unexpected {{/each}} at " + open);
+        }
+        List<Node> body = scopes.remove(scopes.size() - 1);
+        current(scopes).add(new Each(loops.remove(loops.size() - 1), body));
+      } else if (tag.equals(IMPORTS)) {
+        current(scopes).add(new Imports());
+      } else if (tag.startsWith(TYPE)) {
+        current(scopes).add(new Type(tag.substring(TYPE.length()).trim()));
+      } else if (!tag.isEmpty()) {
+        current(scopes).add(new Value(tag));
+      } else {
+        throw new IllegalArgumentException("Empty placeholder at " + open);
+      }
+      position = close + CLOSE.length();
+    }
+    if (!loops.isEmpty()) {
+      throw new IllegalArgumentException("Unclosed {{#each " + loops.get(0) + "}}");
+    }
+    return new SourceTemplate(scopes.get(0));
+  }
+
+  private static List<Node> current(List<List<Node>> scopes) {
+    return scopes.get(scopes.size() - 1);
+  }
+
+  /**
+   * Renders the template
+   *
+   * @param packageName the package of the rendered source, classes of this package are not imported
+   * @param simpleName the simple name of the type declared by the rendered source, other classes
+   *     with the same simple name are not imported
+   * @param model the values of the placeholders
+   * @return the rendered source
+   * @throws IllegalArgumentException if a value is missing or a loop value is not iterable
+   */
+  public String render(String packageName, String simpleName, Map<String, ?> model) {
+    Rendering rendering = new Rendering(packageName, parsedNames, expectedLength);
+    rendering.importedNames.put(
+        simpleName, packageName.isEmpty() ? simpleName : packageName + "." + simpleName);
+    render(nodes, new Scope(null, model, null), rendering);
+    String source = rendering.finish();
+    // the next rendering of a similar file starts with a buffer that fits
+    expectedLength = Math.max(expectedLength, source.length());
+    return source;
+  }
+
+  private static void render(List<Node> nodes, Scope scope, Rendering rendering) {
+    for (Node node : nodes) {
+      node.render(scope, rendering);
+    }
+  }
+
+  private interface Node {
+    void render(Scope scope, Rendering rendering);
+  }
+
+  private static final class Text implements Node {
+    private final String text;
+
+    private Text(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public void render(Scope scope, Rendering rendering) {
+      rendering.source.append(text);
+    }
+  }
+
+  private static final class Value implements Node {
+    private final String name;
+
+    private Value(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void render(Scope scope, Rendering rendering) {
+      rendering.source.append(scope.get(name));
+    }
+  }
+
+  private static final class Type implements Node {
+    private final String name;
+
+    private Type(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void render(Scope scope, Rendering rendering) {
+      Object value = scope.get(name);
+      String className =
+          value instanceof Class ? ((Class<?>) value).getCanonicalName() : value.toString();
+      rendering.appendType(className);
+    }
+  }
+
+  private static final class Each implements Node {
+    private final String name;
+    private final List<Node> body;
+
+    private Each(String name, List<Node> body) {
+      this.name = name;
+      this.body = body;
+    }
+
+    @Override
+    public void render(Scope scope, Rendering rendering) {
+      Object value = scope.get(name);
+      if (!(value instanceof Iterable)) {
+        throw new IllegalArgumentException("Value of [" + name + "] is not iterable");
+      }
+      for (Object item : (Iterable<?>) value) {
+        Map<?, ?> values = item instanceof Map ? (Map<?, ?>) item : Collections.emptyMap();
+        SourceTemplate.render(body, new Scope(scope, values, item), rendering);
+      }
+    }
+  }
+
+  private static final class Imports implements Node {
+    @Override
+    public void render(Scope scope, Rendering rendering) {
+      rendering.importsPosition = rendering.source.length();
+    }
+  }
+
+  private static final class Scope {
+    private final Scope parent;
+    private final Map<?, ?> values;
+    private final Object item;
+
+    private Scope(Scope parent, Map<?, ?> values, Object item) {
+      this.parent = parent;
+      this.values = values;
+      this.item = item;
+    }
+
+    private Object get(String name) {
+      for (Scope scope = this; scope != null; scope = scope.parent) {
+        if (THIS.equals(name) && scope.item != null) {
+          return scope.item;
+        }
+        Object value = scope.values.get(name);
+        if (value != null) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("No value for [" + name + "]");
+    }
+  }
+
+  /** A qualified class name parsed once by {@link FullClassName} */
+  private static final class ParsedName {
+    private static final ParsedName NOT_A_CLASS = new ParsedName(null, null, null, null);
+
+    private final String topLevelSimpleName;
+    private final String topLevelName;
+    private final String packageName;
+    private final String simpleNames;
+
+    private ParsedName(
+        String topLevelSimpleName, String topLevelName, String packageName, String simpleNames) {
+      this.topLevelSimpleName = topLevelSimpleName;
+      this.topLevelName = topLevelName;
+      this.packageName = packageName;
+      this.simpleNames = simpleNames;
+    }
+
+    private static ParsedName parse(String qualifiedName) {
+      TypeName typeName = new FullClassName(qualifiedName).asTypeName();
+      if (!(typeName instanceof ClassName)) {
+        return NOT_A_CLASS;
+      }
+      ClassName className = (ClassName) typeName;
+      ClassName topLevel = className.topLevelClassName();
+      return new ParsedName(
+          topLevel.simpleName(),
+          topLevel.canonicalName(),
+          topLevel.packageName(),
+          String.join(".", className.simpleNames()));
+    }
+  }
+
+  private static final class Rendering {
+    private final String packageName;
+    private final Map<String, ParsedName> parsedNames;
+    private final StringBuilder source;
+    private final Map<String, String> importedNames = new HashMap<>();
+    private final TreeSet<String> imports = new TreeSet<>();
+    private int importsPosition = -1;
+
+    private Rendering(String packageName, Map<String, ParsedName> parsedNames, int expectedLength) {
+      this.packageName = packageName;
+      this.parsedNames = parsedNames;
+      this.source = new StringBuilder(expectedLength);
+    }
+
+    private void appendType(String className) {
+      StringTokenizer tokens = new StringTokenizer(className, "<>,[]?& ", true);
+      while (tokens.hasMoreTokens()) {
+        String token = tokens.nextToken();
+        source.append(token.indexOf('.') < 0 ? token : simpleName(token));
+      }
+    }
+
+    /** Imports the class if its simple name is not used by another class */
+    private String simpleName(String qualifiedName) {
+      ParsedName name = parsedNames.computeIfAbsent(qualifiedName, ParsedName::parse);
+      if (name == ParsedName.NOT_A_CLASS) {
+        return qualifiedName;
+      }
+      String imported = importedNames.putIfAbsent(name.topLevelSimpleName, name.topLevelName);
+      if (imported != null && !imported.equals(name.topLevelName)) {
+        return qualifiedName;
+      }
+      if (!name.packageName.isEmpty()
+          && !name.packageName.equals("java.lang")
+          && !name.packageName.equals(packageName)) {
+        imports.add(name.topLevelName);
+      }
+      return name.simpleNames;
+    }
+
+    private String finish() {
+      if (importsPosition >= 0 && !imports.isEmpty()) {
+        StringBuilder section = new StringBuilder(imports.size() * 40);
+        for (String imported : imports) {
+          section.append("import ").append(imported).append(";\n");
+        }
+        source.insert(importsPosition, section);
+      }
+      return source.toString();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Matches types against a fixed list of target types in a single call.
+ *
+ * <p>Each target is assigned a bit by its position in the list. The match of a declared type is
+ * computed from its erased supertype closure, see {@link ProcessorUtil#supertypeNames(TypeMirror)},
+ * and is kept as a {@link BitSet} of the targets the type is assignable to for as long as the
+ * {@link TypeMemo} keeps the same closure, so a match is never kept for a type with an erroneous
+ * supertype, which may be generated in a later round. Other types, such as type variables and
+ * arrays, are checked against every target with {@link
+ * javax.lang.model.util.Types#isAssignable(TypeMirror, TypeMirror)}.
+ *
+ * <pre>
+ * SupertypeMatcher matcher = new SupertypeMatcher(processorUtil, Collection.class, Map.class);
+ * BitSet match = matcher.match(field.asType());
+ * if (match.get(matcher.indexOf(Collection.class))) { ... }
+ * </pre>
+ */
+public class SupertypeMatcher {
+
+  private final ProcessorUtil processorUtil;
+  private final List<String> targets;
+  private final Map<String, Integer> indexes = new HashMap<>();
+  private final Map<String, Match> matches = new HashMap<>();
+
+  /**
+   * @param processorUtil the processor util of the current processing environment
+   * @param targets the target types
+   */
+  public SupertypeMatcher(ProcessorUtil processorUtil, Class<?>... targets) {
+    this(processorUtil, canonicalNames(targets));
+  }
+
+  /**
+   * @param processorUtil the processor util of the current processing environment
+   * @param targets the qualified names of the target types
+   * @throws IllegalArgumentException if a target is listed twice
+   */
+  public SupertypeMatcher(ProcessorUtil processorUtil, Collection<String> targets) {
+    this.processorUtil = processorUtil;
+    this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
+    for (int i = 0; i < this.targets.size(); i++) {
+      if (indexes.putIfAbsent(this.targets.get(i), i) != null) {
+        throw new IllegalArgumentException("Duplicate target [" + this.targets.get(i) + "]");
+      }
+    }
+  }
+
+  private static List<String> canonicalNames(Class<?>[] targets) {
+    List<String> names = new ArrayList<>(targets.length);
+    for (Class<?> target : targets) {
+      names.add(target.getCanonicalName());
+    }
+    return names;
+  }
+
+  /** @return the qualified names of the targets, in the order of their bits */
+  public List<String> getTargets() {
+    return targets;
+  }
+
+  /**
+   * @param target the target type
+   * @return the bit of the target
+   * @throws IllegalArgumentException if the type is not a target of this matcher
+   */
+  public int indexOf(Class<?> target) {
+    return indexOf(target.getCanonicalName());
+  }
+
+  /**
+   * @param target the qualified name of the target type
+   * @return the bit of the target
+   * @throws IllegalArgumentException if the type is not a target of this matcher
+   */
+  public int indexOf(String target) {
+    Integer index = indexes.get(target);
+    if (index == null) {
+      throw new IllegalArgumentException("[" + target + "] is not a target");
+    }
+    return index;
+  }
+
+  /**
+   * Returns the targets the type is assignable to
+   *
+   * @param typeMirror the type
+   * @return a bit set where the bit of every target the type is assignable to is set, the returned
+   *     set must not be modified
+   */
+  public BitSet match(TypeMirror typeMirror) {
+    if (typeMirror.getKind().isPrimitive()) {
+      return new BitSet();
+    }
+    if (typeMirror.getKind() != TypeKind.DECLARED) {
+      return matchEach(typeMirror);
+    }
+    TypeElement typeElement = (TypeElement) processorUtil.getTypes().asElement(typeMirror);
+    Set<String> supertypeNames = processorUtil.supertypeNames(typeMirror);
+    String qualifiedName = typeElement.getQualifiedName().toString();
+    Match match = matches.get(qualifiedName);
+    if (match == null || match.supertypeNames != supertypeNames) {
+      BitSet bits = new BitSet(targets.size());
+      for (int i = 0; i < targets.size(); i++) {
+        if (supertypeNames.contains(targets.get(i))) {
+          bits.set(i);
+        }
+      }
+      match = new Match(supertypeNames, bits);
+      matches.put(qualifiedName, match);
+    }
+    return match.bits;
+  }
+
+  /**
+   * @param typeMirror the type
+   * @param target the target type
+   * @return {@code true} if the type is assignable to the target, {@code false} otherwise
+   * @throws IllegalArgumentException if the type is not a target of this matcher
+   */
+  public boolean matches(TypeMirror typeMirror, Class<?> target) {
+    return match(typeMirror).get(indexOf(target));
+  }
+
+  private BitSet matchEach(TypeMirror typeMirror) {
+    BitSet match = new BitSet(targets.size());
+    for (int i = 0; i < targets.size(); i++) {
+      TypeElement target = processorUtil.getElements().getTypeElement(targets.get(i));
+      if (target != null
+          && processorUtil
+              .getTypes()
+              .isAssignable(typeMirror, processorUtil.getTypes().erasure(target.asType()))) {
+        match.set(i);
+      }
+    }
+    return match;
+  }
+
+  /** A match is valid as long as the memoized closure it was computed from is the same instance */
+  private static class Match {
+    private final Set<String> supertypeNames;
+    private final BitSet bits;
+
+    private Match(Set<String> supertypeNames, BitSet bits) {
+      this.supertypeNames = supertypeNames;
+      this.bits = bits;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import com.squareup.javapoet.TypeName;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Memoizes the {@link TypeName} of declared types without type arguments, and the supertype closure
+ * of types, by qualified name, so that converting the same type again does not visit it again.
+ *
+ * <p>Parameterized, array, wildcard and type variable types are converted every time, building a
+ * key that identifies them costs about as much as converting them, and erasures are not memoized,
+ * {@link javax.lang.model.util.Types#erasure(TypeMirror)} is cheap and returns a mirror that is
+ * only valid for the current round. Only strings and JavaPoet type names are kept, which do not
+ * change between rounds, so the memo is shared by all the processors of a processing environment
+ * for the whole compilation and does not hold any element or type mirror.
+ */
+public class TypeMemo {
+
+  private static final Map<Filer, TypeMemo> MEMOS = new WeakHashMap<>();
+
+  private final Map<String, TypeName> typeNames = new HashMap<>();
+  private final Map<String, Set<String>> supertypeNames = new HashMap<>();
+
+  TypeMemo() {}
+
+  /**
+   * Returns the memo shared by all processors of the processing environment
+   *
+   * @param processingEnv the processing environment
+   * @return the shared memo
+   */
+  public static TypeMemo of(ProcessingEnvironment processingEnv) {
+    synchronized (MEMOS) {
+      return MEMOS.computeIfAbsent(processingEnv.getFiler(), filer -> new TypeMemo());
+    }
+  }
+
+  /**
+   * @param type the type mirror
+   * @return the JavaPoet type name of the type
+   */
+  public TypeName typeName(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return TypeName.get(type);
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    if (!declaredType.getTypeArguments().isEmpty()
+        || declaredType.getEnclosingType().getKind() != TypeKind.NONE) {
+      return TypeName.get(type);
+    }
+    String qualifiedName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+    synchronized (this) {
+      TypeName typeName = typeNames.get(qualifiedName);
+      if (typeName == null) {
+        typeName = TypeName.get(type);
+        typeNames.put(qualifiedName, typeName);
+      }
+      return typeName;
+    }
+  }
+
+  /**
+   * @param qualifiedName the qualified name of the type
+   * @return the memoized erased supertype closure of the type, see {@link
+   *     ProcessorUtil#supertypeNames(TypeMirror)}
+   */
+  public synchronized Optional<Set<String>> getSupertypeNames(String qualifiedName) {
+    return Optional.ofNullable(supertypeNames.get(qualifiedName));
+  }
+
+  /**
+   * Memoizes the erased supertype closure of a type, a closure that includes an erroneous type must
+   * not be memoized as the type may be generated in a later round
+   *
+   * @param qualifiedName the qualified name of the type
+   * @param names the erased supertype closure of the type
+   * @return the memoized closure, the one already memoized if any
+   */
+  public synchronized Set<String> putSupertypeNames(String qualifiedName, Set<String> names) {
+    Set<String> existing =
+        supertypeNames.putIfAbsent(qualifiedName, Collections.unmodifiableSet(names));
+    return existing == null ? supertypeNames.get(qualifiedName) : existing;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static java.util.Objects.nonNull;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+
+/** A single violation found by an {@link ElementValidator} */
+public class ValidationDiagnostic {
+
+  private final Diagnostic.Kind kind;
+  private final Element element;
+  private final AnnotationMirror annotationMirror;
+  private final String message;
+
+  public ValidationDiagnostic(
+      Diagnostic.Kind kind, Element element, AnnotationMirror annotationMirror, String message) {
+    this.kind = kind;
+    this.element = element;
+    this.annotationMirror = annotationMirror;
+    this.message = message;
+  }
+
+  /** @return the diagnostic kind */
+  public Diagnostic.Kind getKind() {
+    return kind;
+  }
+
+  /** @return the element that violates the rule */
+  public Element getElement() {
+    return element;
+  }
+
+  /** @return the annotation mirror the diagnostic is reported on, or {@code null} */
+  public AnnotationMirror getAnnotationMirror() {
+    return annotationMirror;
+  }
+
+  /** @return the diagnostic message */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Prints the diagnostic using a messager
+   *
+   * @param messager the messager
+   */
+  public void printTo(Messager messager) {
+    if (nonNull(annotationMirror)) {
+      messager.printMessage(kind, message, element, annotationMirror);
+    } else {
+      messager.printMessage(kind, message, element);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return kind + ": " + message + " [" + element + "]";
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AbstractProcessingStepTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void cachedGeneration_shouldBeReplayedOnTheNextBuild() throws Exception {
+    File cacheDir = temporaryFolder.newFolder("cache");
+    StepProcessor cold = compile(cacheDir, false);
+    StepProcessor warm = compile(cacheDir, false);
+
+    assertEquals(1, cold.generations);
+    assertEquals(0, warm.generations);
+    assertTrue(new File(warm.sourceOutput, "test/Circle_Generated.java").isFile());
+  }
+
+  @Test
+  public void cachedGenerationWithSideEffects_shouldRunOnEveryBuild() throws Exception {
+    File cacheDir = temporaryFolder.newFolder("cache");
+    StepProcessor cold = compile(cacheDir, true);
+    StepProcessor warm = compile(cacheDir, true);
+
+    assertEquals(1, cold.generations);
+    assertEquals(1, warm.generations);
+    assertTrue(new File(warm.sourceOutput, "test/Circle_Generated.java").isFile());
+    assertTrue(new File(warm.classOutput, "test/names.txt").isFile());
+  }
+
+  @Test
+  public void cacheVersion_shouldHashTheStepClassFile() throws Exception {
+    StepProcessor processor = compile(temporaryFolder.newFolder("cache"), false);
+
+    byte[] classFile;
+    try (InputStream input =
+        GeneratingStep.class.getResourceAsStream(
+            "AbstractProcessingStepTest$GeneratingStep.class")) {
+      classFile = input.readAllBytes();
+    }
+    assertEquals("@" + GenerationCache.key(classFile), processor.cacheVersion);
+  }
+
+  @Test
+  public void eachBatch_shouldBeWrittenBeforeTheNextTypeIsCreated() throws Exception {
+    BatchProcessor processor = new BatchProcessor("Type0", "Type1", "Type2", "Type3", "Type4");
+    DiagnosticCollector<JavaFileObject> diagnostics = compileBatches(processor);
+
+    assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+    assertEquals(
+        Arrays.asList(
+            "create Type0",
+            "create Type1",
+            "write test.Type0",
+            "write test.Type1",
+            "create Type2",
+            "create Type3",
+            "write test.Type2",
+            "write test.Type3",
+            "create Type4",
+            "write test.Type4"),
+        processor.events);
+  }
+
+  @Test
+  public void typesOfASourceBuilder_shouldBeWrittenOneByOne() throws Exception {
+    BatchProcessor processor = new BatchProcessor("Type0", "Type1", "Type2");
+    processor.sourceBuilder = true;
+    compileBatches(processor);
+
+    assertEquals(
+        Arrays.asList(
+            "create Type0",
+            "write test.Type0",
+            "create Type1",
+            "write test.Type1",
+            "create Type2",
+            "write test.Type2"),
+        processor.events);
+  }
+
+  @Test
+  public void failuresInABatch_shouldBeReportedAndTheRestOfTheBatchWritten() throws Exception {
+    BatchProcessor processor = new BatchProcessor("Type0", "Type0", "Type1");
+    DiagnosticCollector<JavaFileObject> diagnostics = compileBatches(processor);
+
+    assertEquals(1, diagnostics.getDiagnostics().size());
+    assertEquals(Diagnostic.Kind.ERROR, diagnostics.getDiagnostics().get(0).getKind());
+    assertTrue(new File(processor.sourceOutput, "test/Type0.java").isFile());
+    assertTrue(new File(processor.sourceOutput, "test/Type1.java").isFile());
+  }
+
+  private DiagnosticCollector<JavaFileObject> compileBatches(BatchProcessor processor)
+      throws IOException {
+    processor.sourceOutput = temporaryFolder.newFolder();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    javax.tools.JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostics,
+                Arrays.asList("-proc:only", "-s", processor.sourceOutput.getAbsolutePath()),
+                null,
+                Collections.singletonList(
+                    new StringSource("test.Circle", "package test; class Circle {}")));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    return diagnostics;
+  }
+
+  private StepProcessor compile(File cacheDir, boolean appendToResource) throws IOException {
+    StepProcessor processor =
+        new StepProcessor(
+            temporaryFolder.newFolder(), temporaryFolder.newFolder(), appendToResource);
+    javax.tools.JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only",
+                    "-A" + ProcessorOptions.CACHE_DIR + "=" + cacheDir.getAbsolutePath(),
+                    "-s",
+                    processor.sourceOutput.getAbsolutePath(),
+                    "-d",
+                    processor.classOutput.getAbsolutePath()),
+                null,
+                Collections.singletonList(
+                    new StringSource("test.Circle", "package test; @Deprecated class Circle {}")));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+    return processor;
+  }
+
+  /** Generates a type for every deprecated type, and optionally appends its name to a resource */
+  private static class StepProcessor extends BaseProcessor {
+    private final File sourceOutput;
+    private final File classOutput;
+    private final boolean appendToResource;
+    private int generations;
+    private String cacheVersion;
+
+    private StepProcessor(File sourceOutput, File classOutput, boolean appendToResource) {
+      this.sourceOutput = sourceOutput;
+      this.classOutput = classOutput;
+      this.appendToResource = appendToResource;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton(Deprecated.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      runStep(new GeneratingStep(processingEnv, this), roundEnv, Deprecated.class);
+      flushAggregatedResources(roundEnv);
+      return false;
+    }
+  }
+
+  private static class GeneratingStep extends AbstractProcessingStep {
+    private final StepProcessor processor;
+
+    private GeneratingStep(ProcessingEnvironment processingEnv, StepProcessor processor) {
+      super(processingEnv);
+      this.processor = processor;
+    }
+
+    @Override
+    public void process(Set<? extends Element> elementsByAnnotation) {
+      processor.cacheVersion = cacheVersion();
+      for (Element element : elementsByAnnotation) {
+        cached(
+            "generated",
+            Collections.singletonList(element),
+            () -> {
+              processor.generations++;
+              String name = element.getSimpleName() + "_Generated";
+              writeSource(
+                  JavaFile.builder(
+                          "test",
+                          TypeSpec.classBuilder(name).addOriginatingElement(element).build())
+                      .build());
+              if (processor.appendToResource) {
+                try {
+                  aggregatingResources.append(
+                      StandardLocation.CLASS_OUTPUT, "test", "names.txt", name);
+                } catch (IOException e) {
+                  throw new IllegalStateException(e);
+                }
+              }
+            });
+      }
+    }
+  }
+
+  /**
+   * Writes a stream of types in batches of two, or the types of a source builder, in the first
+   * round, recording when each type is created and written
+   */
+  private static class BatchProcessor extends BaseProcessor {
+    private final List<String> names;
+    private final List<String> events = new ArrayList<>();
+    private File sourceOutput;
+    private boolean sourceBuilder;
+
+    private BatchProcessor(String... names) {
+      this.names = Arrays.asList(names);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (!roundEnv.processingOver() && events.isEmpty()) {
+        BatchStep step = new BatchStep(processingEnv, events);
+        if (sourceBuilder) {
+          step.writeSource(
+              new SourceBuilder() {
+                @Override
+                public List<TypeSpec.Builder> asTypeBuilder() {
+                  return typeBuilders().collect(Collectors.toList());
+                }
+
+                @Override
+                public Stream<TypeSpec.Builder> typeBuilders() {
+                  return types();
+                }
+              },
+              "test");
+        } else {
+          step.writeSource(types(), "test", 2);
+        }
+      }
+      return false;
+    }
+
+    private Stream<TypeSpec.Builder> types() {
+      return names.stream()
+          .map(
+              name -> {
+                events.add("create " + name);
+                return TypeSpec.classBuilder(name);
+              });
+    }
+  }
+
+  private static class BatchStep extends AbstractProcessingStep {
+    private final List<String> events;
+
+    private BatchStep(ProcessingEnvironment processingEnv, List<String> events) {
+      super(processingEnv);
+      this.events = events;
+    }
+
+    @Override
+    protected void tryWriteSource(JavaFile sourceFile) throws IOException {
+      events.add("write " + sourceFile.packageName + "." + sourceFile.typeSpec.name);
+      super.tryWriteSource(sourceFile);
+    }
+
+    @Override
+    public void process(Set<? extends Element> elementsByAnnotation) {}
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccumulatingRegisterMethodWriterTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void itemsOfAllRounds_shouldBeRegisteredOnceInTheFirstRoundWithoutNewItems() {
+    NamesWriter writer = new NamesWriter();
+    writer.add(Arrays.asList("home", "about"));
+    assertFalse(writer.writeIfComplete(round(false)).isPresent());
+    writer.add(Arrays.asList("about", "settings"));
+    assertFalse(writer.writeIfComplete(round(false)).isPresent());
+    assertEquals(3, writer.getEntryCount());
+
+    writer.add(Collections.singletonList("about"));
+    Optional<JavaFile> javaFile = writer.writeIfComplete(round(false));
+    assertTrue(javaFile.isPresent());
+    String source = javaFile.get().toString();
+    assertEquals(1, source.split("register\\(\"about\"\\)", -1).length - 1);
+    assertTrue(source.contains("register(\"settings\")"));
+
+    writer.add(Collections.singletonList("home"));
+    assertFalse(writer.writeIfComplete(round(false)).isPresent());
+    assertFalse(writer.writeIfComplete(round(true)).isPresent());
+  }
+
+  @Test
+  public void roundsWithoutAnyItem_shouldWaitForProcessingToBeOver() {
+    NamesWriter writer = new NamesWriter();
+    writer.add(Collections.emptyList());
+    assertFalse(writer.writeIfComplete(round(false)).isPresent());
+    assertTrue(writer.writeIfComplete(round(true)).isPresent());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void addingNewItemsAfterWrite_shouldBeRejected() {
+    NamesWriter writer = new NamesWriter();
+    writer.writeIfComplete(round(true));
+    writer.add(Collections.singletonList("late"));
+  }
+
+  @Test
+  public void typeWrittenByAProcessor_shouldNotBeReportedAsCreatedInTheLastRound()
+      throws Exception {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostics,
+                Arrays.asList(
+                    "-proc:only",
+                    "-Xlint:all",
+                    "-Werror",
+                    "-s",
+                    temporaryFolder.newFolder("generated").getAbsolutePath()),
+                null,
+                Arrays.asList(
+                    new StringSource("test.HomePage", "package test; public class HomePage {}"),
+                    new StringSource("test.AboutPage", "package test; public class AboutPage {}")));
+    task.setProcessors(Collections.singletonList(new PagesProcessor()));
+
+    assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+    assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+  }
+
+  @Test
+  public void entries_shouldBeSortedByTheirRegistrationCodeWhenDeterministic() throws Exception {
+    assertEquals(Arrays.asList("ZPage", "APage", "MPage"), registeredPages(false));
+    assertEquals(Arrays.asList("APage", "MPage", "ZPage"), registeredPages(true));
+  }
+
+  private List<String> registeredPages(boolean deterministic) throws IOException {
+    List<String> options = new ArrayList<>();
+    options.add("-proc:only");
+    if (deterministic) {
+      options.add("-A" + ProcessorOptions.DETERMINISTIC);
+    }
+    options.add("-s");
+    options.add(temporaryFolder.newFolder().getAbsolutePath());
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                options,
+                null,
+                Arrays.asList(
+                    new StringSource("test.ZPage", "package test; public class ZPage {}"),
+                    new StringSource("test.APage", "package test; public class APage {}"),
+                    new StringSource("test.MPage", "package test; public class MPage {}")));
+    SortingProcessor processor = new SortingProcessor();
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+
+    List<String> pages = new ArrayList<>();
+    Matcher registration = Pattern.compile("register\\(\"(\\w+)\"\\)").matcher(processor.source);
+    while (registration.find()) {
+      pages.add(registration.group(1));
+    }
+    return pages;
+  }
+
+  private static RoundEnvironment round(boolean processingOver) {
+    return new RoundEnvironment() {
+      @Override
+      public boolean processingOver() {
+        return processingOver;
+      }
+
+      @Override
+      public boolean errorRaised() {
+        return false;
+      }
+
+      @Override
+      public Set<? extends Element> getRootElements() {
+        return Collections.emptySet();
+      }
+
+      @Override
+      public Set<? extends Element> getElementsAnnotatedWith(TypeElement a) {
+        return Collections.emptySet();
+      }
+
+      @Override
+      public Set<? extends Element> getElementsAnnotatedWith(Class<? extends Annotation> a) {
+        return Collections.emptySet();
+      }
+    };
+  }
+
+  /**
+   * Registers the types whose names end with {@code Page} and generates a {@code _Factory} for each
+   * of them, the way a processor generates a source per item and one aggregating type
+   */
+  private static class PagesProcessor extends AbstractProcessor {
+    private NamesWriter writer;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+      super.init(processingEnv);
+      writer = new NamesWriter();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      try {
+        List<String> pages = new ArrayList<>();
+        for (Element element : roundEnv.getRootElements()) {
+          String name = element.getSimpleName().toString();
+          if (name.endsWith("Page")) {
+            pages.add(name);
+            JavaFile.builder("test", TypeSpec.classBuilder(name + "_Factory").build())
+                .build()
+                .writeTo(processingEnv.getFiler());
+          }
+        }
+        writer.add(pages);
+        Optional<JavaFile> javaFile = writer.writeIfComplete(roundEnv);
+        if (javaFile.isPresent()) {
+          javaFile.get().writeTo(processingEnv.getFiler());
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return false;
+    }
+  }
+
+  /** Registers the root types with a writer created from the processing environment */
+  private static class SortingProcessor extends AbstractProcessor {
+    private NamesWriter writer;
+    private String source;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+      super.init(processingEnv);
+      writer = new NamesWriter(processingEnv);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return ProcessorOptions.supportedOptions();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      List<String> pages = new ArrayList<>();
+      roundEnv.getRootElements().forEach(element -> pages.add(element.getSimpleName().toString()));
+      writer.add(pages);
+      writer.writeIfComplete(roundEnv).ifPresent(javaFile -> source = javaFile.toString());
+      return false;
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+
+  private static class NameEntry implements AbstractRegisterMethodWriter.ItemEntry {
+    private final String name;
+
+    private NameEntry(String name) {
+      this.name = name;
+    }
+  }
+
+  private static class NamesWriter extends AccumulatingRegisterMethodWriter<NameEntry, String> {
+
+    private NamesWriter() {
+      super("org.example", TypeSpec.classBuilder("NamesModule"));
+    }
+
+    private NamesWriter(ProcessingEnvironment processingEnv) {
+      super("org.example", TypeSpec.classBuilder("NamesModule"), processingEnv);
+    }
+
+    @Override
+    protected String methodName() {
+      return "registerNames";
+    }
+
+    @Override
+    protected Class<?> registryClass() {
+      return null;
+    }
+
+    @Override
+    protected void registerItem(NameEntry entry, MethodSpec.Builder methodBuilder) {
+      methodBuilder.addStatement("register($S)", entry.name);
+    }
+
+    @Override
+    protected NameEntry parseEntry(String item) {
+      return new NameEntry(item);
+    }
+
+    @Override
+    protected String indexEntry(NameEntry entry) {
+      return entry.name;
+    }
+
+    @Override
+    protected NameEntry parseIndexEntry(String indexEntry) {
+      return new NameEntry(indexEntry);
+    }
+  }
+}
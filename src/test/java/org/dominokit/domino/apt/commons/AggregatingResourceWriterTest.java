@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AggregatingResourceWriterTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void entriesOfAllProcessors_shouldBeWrittenOnceTheLastOneIsDone() throws Exception {
+    File classes = temporaryFolder.newFolder("classes");
+    DiagnosticCollector<JavaFileObject> diagnostics =
+        compile(
+            classes,
+            Collections.emptyList(),
+            new NamesProcessor("second", true),
+            new NamesProcessor("first", true),
+            new NamesProcessor("first", true));
+
+    assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+    assertEquals(
+        Arrays.asList(
+            "second:false",
+            "first:false",
+            "first:false",
+            "second:true",
+            "first:true",
+            "first:true"),
+        names(classes));
+  }
+
+  @Test
+  public void entries_shouldBeSortedWhenDeterministic() throws Exception {
+    File classes = temporaryFolder.newFolder("classes");
+    compile(
+        classes,
+        Collections.singletonList("-A" + ProcessorOptions.DETERMINISTIC),
+        new NamesProcessor("second", true),
+        new NamesProcessor("first", true));
+
+    assertEquals(
+        Arrays.asList("first:false", "first:true", "second:false", "second:true"), names(classes));
+  }
+
+  @Test
+  public void entriesAppendedAfterTheResourceIsWritten_shouldBeReportedAsAnError()
+      throws Exception {
+    File classes = temporaryFolder.newFolder("classes");
+    DiagnosticCollector<JavaFileObject> diagnostics =
+        compile(
+            classes,
+            Collections.emptyList(),
+            new NamesProcessor("first", true),
+            new NamesProcessor("late", false));
+
+    assertEquals(1, diagnostics.getDiagnostics().size());
+    Diagnostic<? extends JavaFileObject> diagnostic = diagnostics.getDiagnostics().get(0);
+    assertEquals(Diagnostic.Kind.ERROR, diagnostic.getKind());
+    assertTrue(diagnostic.getMessage(null).contains("[late:true]"));
+    assertEquals(Arrays.asList("first:false", "first:true"), names(classes));
+  }
+
+  private DiagnosticCollector<JavaFileObject> compile(
+      File classes, List<String> options, NamesProcessor... processors) {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    List<String> allOptions = new ArrayList<>(options);
+    allOptions.addAll(Arrays.asList("-proc:only", "-d", classes.getAbsolutePath()));
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostics,
+                allOptions,
+                null,
+                Collections.singletonList(
+                    new StringSource("test.Home", "package test; class Home {}")));
+    task.setProcessors(Arrays.asList(processors));
+    task.call();
+    return diagnostics;
+  }
+
+  private static List<String> names(File classes) throws IOException {
+    return Files.readAllLines(classes.toPath().resolve("test/names.txt"), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Appends its name to a shared resource in every round, including the last one, or only in the
+   * last one without flushing the resources before it
+   */
+  private static class NamesProcessor extends BaseProcessor {
+    private final String name;
+    private final boolean everyRound;
+
+    private NamesProcessor(String name, boolean everyRound) {
+      this.name = name;
+      this.everyRound = everyRound;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return ProcessorOptions.supportedOptions();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (!everyRound && !roundEnv.processingOver()) {
+        return false;
+      }
+      try {
+        appendToResource(
+            StandardLocation.CLASS_OUTPUT,
+            "test",
+            "names.txt",
+            name + ":" + roundEnv.processingOver());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      flushAggregatedResources(roundEnv);
+      return false;
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+
+public class AnnotationUtilTest {
+
+  /** The annotation read from the compiled source */
+  @Retention(RetentionPolicy.RUNTIME)
+  public @interface Classes {
+    Class<?> type() default Object.class;
+
+    Class<?>[] types() default {Object.class};
+
+    String name() default "";
+  }
+
+  @Test
+  public void classValues_shouldBeReadFromExplicitValuesOnly() throws Exception {
+    Map<String, String> values = readValues();
+
+    assertEquals("java.lang.String", values.get("Explicit.type"));
+    assertEquals("int", values.get("Single.type"));
+    assertEquals("", values.get("Defaults.type"));
+    assertEquals("", values.get("None.type"));
+    assertEquals("", values.get("Explicit.name"));
+    assertEquals("", values.get("Child.type"));
+    assertEquals("java.lang.String", values.get("Child.type from super class"));
+    assertEquals("int", values.get("Single.type from super class"));
+    assertEquals("java.lang.Integer", values.get("Defaults.type from super class"));
+  }
+
+  @Test
+  public void classArrayValues_shouldBeReadFromExplicitValuesOnly() throws Exception {
+    Map<String, String> values = readValues();
+
+    assertEquals("[java.lang.Integer, java.lang.Long]", values.get("Explicit.types"));
+    assertEquals("[java.lang.String]", values.get("Single.types"));
+    assertEquals("[]", values.get("Empty.types"));
+    assertEquals("[]", values.get("Defaults.types"));
+    assertEquals("[]", values.get("None.types"));
+    assertEquals("[]", values.get("Explicit.name[]"));
+    assertEquals("[]", values.get("Child.types"));
+    assertEquals("true", values.get("Explicit.types mutable"));
+  }
+
+  private Map<String, String> readValues() throws Exception {
+    String source =
+        "package test;\n"
+            + "import org.dominokit.domino.apt.commons.AnnotationUtilTest.Classes;\n"
+            + "@Classes(type = String.class, types = {Integer.class, Long.class}, name = \"x\")\n"
+            + "class Explicit {}\n"
+            + "@Classes class Defaults extends Base {}\n"
+            + "@Classes(type = int.class, types = String.class) class Single extends Base {}\n"
+            + "@Classes(type = Integer.class) class Base {}\n"
+            + "@Classes(types = {}) class Empty {}\n"
+            + "class Child extends Explicit {}\n"
+            + "class None {}\n";
+    File testClasses =
+        new File(
+            AnnotationUtilTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    ValuesProcessor processor = new ValuesProcessor();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                null,
+                Arrays.asList("-proc:only", "-classpath", testClasses.getAbsolutePath()),
+                null,
+                Collections.singletonList(new StringSource("test.Explicit", source)));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+    return processor.values;
+  }
+
+  /** Reads the class values of {@code @Classes} from every type of the compiled source */
+  private static class ValuesProcessor extends AbstractProcessor {
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      ProcessorUtil processorUtil = new ProcessorUtil(processingEnv);
+      for (String name :
+          Arrays.asList("Explicit", "Defaults", "Single", "Empty", "Child", "None")) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement("test." + name);
+        values.put(
+            name + ".type",
+            processorUtil
+                .getClassValueFromAnnotation(type, Classes.class, "type")
+                .map(TypeMirror::toString)
+                .orElse(""));
+        values.put(
+            name + ".type from super class",
+            processorUtil
+                .findClassValueFromClassAnnotation(type, Classes.class, "type")
+                .map(TypeMirror::toString)
+                .orElse(""));
+        values.put(
+            name + ".types",
+            names(processorUtil.getClassArrayValueFromAnnotation(type, Classes.class, "types")));
+        values.put(
+            name + ".name",
+            processorUtil
+                .getClassValueFromAnnotation(type, Classes.class, "name")
+                .map(TypeMirror::toString)
+                .orElse(""));
+        values.put(
+            name + ".name[]",
+            names(processorUtil.getClassArrayValueFromAnnotation(type, Classes.class, "name")));
+      }
+      List<TypeMirror> types =
+          processorUtil.getClassArrayValueFromAnnotation(
+              processingEnv.getElementUtils().getTypeElement("test.Explicit"),
+              Classes.class,
+              "types");
+      types.clear();
+      values.put("Explicit.types mutable", String.valueOf(types.isEmpty()));
+      return false;
+    }
+
+    private static String names(List<TypeMirror> types) {
+      return types.stream().map(TypeMirror::toString).collect(Collectors.toList()).toString();
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
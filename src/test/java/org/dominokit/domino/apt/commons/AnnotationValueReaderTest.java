@@ -0,0 +1,304 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+
+public class AnnotationValueReaderTest {
+
+  private static final String SOURCE =
+      "package test;\n"
+          + "enum Level { LOW, HIGH }\n"
+          + "@interface Nested {\n"
+          + "  String value() default \"nested\";\n"
+          + "  int[] numbers() default {};\n"
+          + "}\n"
+          + "@interface Values {\n"
+          + "  String string() default \"default\";\n"
+          + "  boolean flag() default false;\n"
+          + "  byte b() default 1;\n"
+          + "  short s() default 2;\n"
+          + "  char c() default 'c';\n"
+          + "  int i() default 3;\n"
+          + "  long l() default 4L;\n"
+          + "  float f() default 5f;\n"
+          + "  double d() default 6d;\n"
+          + "  Class<?> type() default Object.class;\n"
+          + "  Level level() default Level.LOW;\n"
+          + "  Nested nested() default @Nested;\n"
+          + "  String[] strings() default {\"a\", \"b\"};\n"
+          + "  boolean[] flags() default {true};\n"
+          + "  byte[] bytes() default {1, 2};\n"
+          + "  short[] shorts() default {3};\n"
+          + "  char[] chars() default {'x', 'y'};\n"
+          + "  int[] ints() default {};\n"
+          + "  long[] longs() default {7L};\n"
+          + "  float[] floats() default {1.5f};\n"
+          + "  double[] doubles() default {2.5d};\n"
+          + "  Class<?>[] types() default {};\n"
+          + "  Level[] levels() default {};\n"
+          + "  Nested[] nesteds() default {};\n"
+          + "  int required();\n"
+          + "}\n"
+          + "@Values(required = 0) class Defaults {}\n"
+          + "@Values(string = \"explicit\", flag = true, b = 10, s = 20, c = 'z', i = 30, l = 40L,\n"
+          + "    f = 50f, d = 60d, type = String.class, level = Level.HIGH,\n"
+          + "    nested = @Nested(value = \"inner\", numbers = {1, 2}), strings = \"single\",\n"
+          + "    flags = {false, true}, bytes = 9, shorts = {8, 7}, chars = 'q', ints = {1, 2, 3},\n"
+          + "    longs = {}, floats = {0.5f, 2f}, doubles = 3.5d,\n"
+          + "    types = {String.class, Integer.class}, levels = Level.HIGH,\n"
+          + "    nesteds = {@Nested, @Nested(\"second\")}, required = 1)\n"
+          + "class Explicit {}\n"
+          + "class Missing {}\n";
+
+  @Test
+  public void membersThatAreNotSet_shouldHaveTheirDefaultValues() {
+    check(
+        (defaults, explicit) -> {
+          assertTrue(defaults.isDefault("string"));
+          assertEquals("default", defaults.getString("string"));
+          assertFalse(defaults.getBoolean("flag"));
+          assertEquals(1, defaults.getByte("b"));
+          assertEquals(2, defaults.getShort("s"));
+          assertEquals('c', defaults.getChar("c"));
+          assertEquals(3, defaults.getInt("i"));
+          assertEquals(4L, defaults.getLong("l"));
+          assertEquals(5f, defaults.getFloat("f"), 0);
+          assertEquals(6d, defaults.getDouble("d"), 0);
+          assertEquals("java.lang.Object", defaults.getType("type").toString());
+          assertEquals(Level.LOW, defaults.getEnum("level", Level.class));
+          assertEquals(Arrays.asList("a", "b"), defaults.getStringArray("strings"));
+          assertArrayEquals(new boolean[] {true}, defaults.getBooleanArray("flags"));
+          assertArrayEquals(new byte[] {1, 2}, defaults.getByteArray("bytes"));
+          assertArrayEquals(new short[] {3}, defaults.getShortArray("shorts"));
+          assertArrayEquals(new char[] {'x', 'y'}, defaults.getCharArray("chars"));
+          assertArrayEquals(new int[] {}, defaults.getIntArray("ints"));
+          assertArrayEquals(new long[] {7L}, defaults.getLongArray("longs"));
+          assertArrayEquals(new float[] {1.5f}, defaults.getFloatArray("floats"), 0);
+          assertArrayEquals(new double[] {2.5d}, defaults.getDoubleArray("doubles"), 0);
+          assertEquals(Collections.emptyList(), defaults.getTypeArray("types"));
+          assertEquals(Collections.emptyList(), defaults.getEnumArray("levels", Level.class));
+          assertEquals(Collections.emptyList(), defaults.getAnnotationArray("nesteds"));
+          assertFalse(defaults.isDefault("required"));
+          assertEquals(0, defaults.getInt("required"));
+        });
+  }
+
+  @Test
+  public void explicitValues_shouldBeRead() {
+    check(
+        (defaults, explicit) -> {
+          assertFalse(explicit.isDefault("string"));
+          assertEquals("explicit", explicit.getString("string"));
+          assertTrue(explicit.getBoolean("flag"));
+          assertEquals(10, explicit.getByte("b"));
+          assertEquals(20, explicit.getShort("s"));
+          assertEquals('z', explicit.getChar("c"));
+          assertEquals(30, explicit.getInt("i"));
+          assertEquals(40L, explicit.getLong("l"));
+          assertEquals(50f, explicit.getFloat("f"), 0);
+          assertEquals(60d, explicit.getDouble("d"), 0);
+          assertEquals("java.lang.String", explicit.getType("type").toString());
+          assertEquals("HIGH", explicit.getEnumName("level"));
+          assertArrayEquals(new boolean[] {false, true}, explicit.getBooleanArray("flags"));
+          assertArrayEquals(new short[] {8, 7}, explicit.getShortArray("shorts"));
+          assertArrayEquals(new int[] {1, 2, 3}, explicit.getIntArray("ints"));
+          assertArrayEquals(new long[] {}, explicit.getLongArray("longs"));
+          assertArrayEquals(new float[] {0.5f, 2f}, explicit.getFloatArray("floats"), 0);
+          assertEquals(
+              Arrays.asList("java.lang.String", "java.lang.Integer"),
+              explicit.getTypeArray("types").stream()
+                  .map(TypeMirror::toString)
+                  .collect(Collectors.toList()));
+        });
+  }
+
+  @Test
+  public void singleValuesOfArrayMembers_shouldBeReadAsArraysOfOneItem() {
+    check(
+        (defaults, explicit) -> {
+          assertEquals(Collections.singletonList("single"), explicit.getStringArray("strings"));
+          assertArrayEquals(new byte[] {9}, explicit.getByteArray("bytes"));
+          assertArrayEquals(new char[] {'q'}, explicit.getCharArray("chars"));
+          assertArrayEquals(new double[] {3.5d}, explicit.getDoubleArray("doubles"), 0);
+          assertEquals(
+              Collections.singletonList(Level.HIGH), explicit.getEnumArray("levels", Level.class));
+        });
+  }
+
+  @Test
+  public void nestedAnnotations_shouldBeReadWithTheirDefaults() {
+    check(
+        (defaults, explicit) -> {
+          AnnotationValues defaultNested = defaults.getAnnotation("nested");
+          assertTrue(defaults.isDefault("nested"));
+          assertEquals("nested", defaultNested.getString("value"));
+          assertTrue(defaultNested.isDefault("numbers"));
+
+          AnnotationValues nested = explicit.getAnnotation("nested");
+          assertEquals("inner", nested.getString("value"));
+          assertArrayEquals(new int[] {1, 2}, nested.getIntArray("numbers"));
+
+          List<AnnotationValues> nesteds = explicit.getAnnotationArray("nesteds");
+          assertEquals(2, nesteds.size());
+          assertEquals("nested", nesteds.get(0).getString("value"));
+          assertTrue(nesteds.get(0).isDefault("value"));
+          assertEquals("second", nesteds.get(1).getString("value"));
+          assertSame(nested.plan(), nesteds.get(1).plan());
+        });
+  }
+
+  @Test
+  public void plans_shouldBeReusedAcrossMirrorsOfTheSameType() {
+    check(
+        (defaults, explicit) -> {
+          assertSame(defaults.plan(), explicit.plan());
+          assertSame(
+              defaults.getAnnotation("nested").plan(), explicit.getAnnotation("nested").plan());
+        });
+  }
+
+  @Test
+  public void unknownMembersAndMismatchedTypes_shouldBeRejected() {
+    check(
+        (defaults, explicit) -> {
+          try {
+            explicit.getString("unknown");
+            fail();
+          } catch (IllegalArgumentException e) {
+            assertEquals(
+                "Annotation @test.Values does not have a member named [unknown]", e.getMessage());
+          }
+          try {
+            explicit.getInt("string");
+            fail();
+          } catch (IllegalArgumentException e) {
+            assertEquals("Member [string] of @test.Values is not of type Integer", e.getMessage());
+          }
+        });
+  }
+
+  /** Mirrors the {@code test.Level} enum of the compiled source */
+  private enum Level {
+    LOW,
+    HIGH
+  }
+
+  private interface Check {
+    void check(AnnotationValues defaults, AnnotationValues explicit);
+  }
+
+  /** Compiles the source and runs the check with the values of the two annotated classes */
+  private void check(Check check) {
+    ReaderProcessor processor = new ReaderProcessor(check);
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                null,
+                Collections.singletonList("-proc:only"),
+                null,
+                Collections.singletonList(new StringSource("test.Values", SOURCE)));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+    if (processor.error != null) {
+      throw processor.error;
+    }
+    assertTrue(processor.checked);
+  }
+
+  private static class ReaderProcessor extends AbstractProcessor {
+    private final Check check;
+    private final AnnotationValueReader reader = new AnnotationValueReader();
+    private AssertionError error;
+    private boolean checked;
+
+    private ReaderProcessor(Check check) {
+      this.check = check;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      AnnotationValues defaults = read("test.Defaults");
+      AnnotationValues explicit = read("test.Explicit");
+      assertFalse(reader.read(type("test.Missing"), "test.Values").isPresent());
+      try {
+        check.check(defaults, explicit);
+      } catch (AssertionError e) {
+        error = e;
+      }
+      checked = true;
+      return false;
+    }
+
+    private AnnotationValues read(String typeName) {
+      return reader.read(type(typeName), "test.Values").get();
+    }
+
+    private TypeElement type(String typeName) {
+      return processingEnv.getElementUtils().getTypeElement(typeName);
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
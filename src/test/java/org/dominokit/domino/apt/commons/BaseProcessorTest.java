@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BaseProcessorTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /** No flight recording runs with the tests, so the step events are disabled */
+  @Test
+  public void runStep_shouldProcessTheAnnotatedElementsWhenEventsAreDisabled() throws Exception {
+    StepProcessor processor = new StepProcessor();
+    javax.tools.JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only", "-s", temporaryFolder.newFolder("generated").getAbsolutePath()),
+                null,
+                Collections.singletonList(
+                    new StringSource(
+                        "test.Circle",
+                        "package test;\n"
+                            + "@Deprecated class Circle {}\n"
+                            + "class Square {}\n")));
+    task.setProcessors(Collections.singletonList(processor));
+
+    assertTrue(task.call());
+    assertEquals(Collections.singletonList("test.Circle"), processor.processed);
+  }
+
+  /** Runs a step for the deprecated elements of every round */
+  private static class StepProcessor extends BaseProcessor {
+    private final List<String> processed = new ArrayList<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton(Deprecated.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      runStep(new RecordingStep(processingEnv, processed), roundEnv, Deprecated.class);
+      return false;
+    }
+  }
+
+  private static class RecordingStep extends AbstractProcessingStep {
+    private final List<String> processed;
+
+    private RecordingStep(ProcessingEnvironment processingEnv, List<String> processed) {
+      super(processingEnv);
+      this.processed = processed;
+    }
+
+    @Override
+    public void process(Set<? extends Element> elementsByAnnotation) {
+      elementsByAnnotation.forEach(element -> processed.add(element.toString()));
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.util.List;
+import javax.lang.model.element.Modifier;
+import javax.tools.Diagnostic;
+import org.junit.Test;
+
+public class BytecodeSizeEstimatorTest {
+
+  @Test
+  public void simpleStatements_shouldBeEstimatedFromTheirInstructions() {
+    // aload, aload, invokeinterface, pop
+    assertEquals(5, BytecodeSizeEstimator.estimate("registry.register(item);"));
+    // new, dup, ldc, invokespecial
+    assertEquals(9, BytecodeSizeEstimator.estimate("new Foo(\"bar\");"));
+    // type arguments and package names have no bytecode
+    assertEquals(
+        BytecodeSizeEstimator.estimate("java.util.List<String> list = new ArrayList<>();"),
+        BytecodeSizeEstimator.estimate("List list = new ArrayList();"));
+  }
+
+  @Test
+  public void largeRegisterMethod_shouldBeReportedOverTheBudget() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("register")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ClassName.get("org.example", "Registry"), "registry");
+    for (int i = 0; i < 1000; i++) {
+      method.addStatement("registry.register(new $T($S))", ClassName.get(List.class), "item" + i);
+    }
+    MethodSpec small = MethodSpec.methodBuilder("small").addStatement("run()").build();
+    TypeSpec type =
+        TypeSpec.classBuilder("Module").addMethod(method.build()).addMethod(small).build();
+
+    assertTrue(BytecodeSizeEstimator.estimate(method.build()) > 8000);
+    List<ValidationDiagnostic> diagnostics = new BytecodeBudget(35, 325, 8000, 60000).analyze(type);
+    assertEquals(1, diagnostics.size());
+    assertEquals(Diagnostic.Kind.WARNING, diagnostics.get(0).getKind());
+    assertTrue(diagnostics.get(0).getMessage().contains("Module.register"));
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathMetadataCacheTest {
+
+  private static final StringSource BASE =
+      new StringSource(
+          "lib.Base", "package lib; public class Base extends java.util.ArrayList<String> {}");
+  private static final StringSource MISSING =
+      new StringSource("lib.Missing", "package lib; public class Missing {}");
+  private static final StringSource BROKEN =
+      new StringSource("lib.Broken", "package lib; public class Broken extends Missing {}");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void supertypesOfJarTypes_shouldBeCachedUntilTheJarChanges() throws Exception {
+    Path jar = temporaryFolder.getRoot().toPath().resolve("lib.jar");
+    jar(jar, "lib.Child", "package lib; public class Child extends Base {}");
+
+    Map<String, List<String>> first = supertypes(jar);
+    Map<String, List<String>> second = supertypes(jar);
+    assertEquals(Collections.singletonList("lib.Base"), first.get("lib.Child"));
+    assertSame(first.get("lib.Child"), second.get("lib.Child"));
+    assertSame(first.get("java.util.ArrayList"), second.get("java.util.ArrayList"));
+
+    jar(
+        jar,
+        "lib.Child",
+        "package lib; public class Child extends Base implements java.io.Serializable {}");
+    Files.setLastModifiedTime(
+        jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000));
+
+    Map<String, List<String>> changed = supertypes(jar);
+    assertEquals(Arrays.asList("lib.Base", "java.io.Serializable"), changed.get("lib.Child"));
+    assertSame(first.get("java.util.ArrayList"), changed.get("java.util.ArrayList"));
+  }
+
+  @Test
+  public void typesWithAnErroneousSupertype_shouldNotBeCached() throws Exception {
+    Path jar = temporaryFolder.getRoot().toPath().resolve("broken.jar");
+    jar(jar, "lib.Child", "package lib; public class Child extends Base {}");
+
+    Map<String, List<String>> first = supertypes(jar);
+    Map<String, List<String>> second = supertypes(jar);
+    assertEquals(Collections.singletonList("lib.Missing"), first.get("lib.Broken"));
+    assertEquals(first.get("lib.Broken"), second.get("lib.Broken"));
+    assertNotSame(first.get("lib.Broken"), second.get("lib.Broken"));
+  }
+
+  @Test
+  public void assignability_shouldBeTheOneOfTypesWhenTheCacheIsEnabled() throws Exception {
+    Path jar = temporaryFolder.getRoot().toPath().resolve("assignable.jar");
+    jar(jar, "lib.Child", "package lib; public class Child extends Base {}");
+
+    CacheProcessor processor = compile(jar);
+    assertEquals(processor.typesAssignable, processor.assignable);
+    assertTrue(processor.assignable.get("lib.Child -> java.util.List"));
+    assertFalse(processor.assignable.get("lib.Child -> java.util.Map"));
+  }
+
+  private Map<String, List<String>> supertypes(Path jar) throws IOException {
+    return compile(jar).supertypes;
+  }
+
+  private CacheProcessor compile(Path jar) throws IOException {
+    CacheProcessor processor = new CacheProcessor();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only",
+                    "-classpath",
+                    jar.toString(),
+                    "-A" + ProcessorOptions.CLASSPATH_CACHE + "=true"),
+                null,
+                Collections.singletonList(
+                    new StringSource("test.Home", "package test; class Home {}")));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    return processor;
+  }
+
+  /** Compiles the library types into a jar, leaving {@code lib.Missing} out of it */
+  private void jar(Path jar, String typeName, String source) throws IOException {
+    File classes = temporaryFolder.newFolder();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                null,
+                Arrays.asList("-d", classes.getAbsolutePath()),
+                null,
+                Arrays.asList(BASE, MISSING, BROKEN, new StringSource(typeName, source)));
+    assertTrue(task.call());
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (String name : Arrays.asList("Base", "Broken", typeName.substring(4))) {
+        out.putNextEntry(new JarEntry("lib/" + name + ".class"));
+        Files.copy(classes.toPath().resolve("lib").resolve(name + ".class"), (OutputStream) out);
+        out.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Records the cached supertypes of the library types and of {@code java.util.ArrayList}, and the
+   * assignability of the library types from {@link ProcessorUtil} and from {@link Types}
+   */
+  private static class CacheProcessor extends AbstractProcessor {
+    private final Map<String, List<String>> supertypes = new LinkedHashMap<>();
+    private final Map<String, Boolean> assignable = new LinkedHashMap<>();
+    private final Map<String, Boolean> typesAssignable = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return ProcessorOptions.supportedOptions();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      ClasspathMetadataCache cache = ClasspathMetadataCache.of(processingEnv).get();
+      ProcessorUtil processorUtil = new ProcessorUtil(processingEnv);
+      Types types = processingEnv.getTypeUtils();
+      for (String typeName :
+          Arrays.asList("lib.Child", "lib.Base", "lib.Broken", "java.util.ArrayList")) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(typeName);
+        supertypes.put(typeName, cache.directSupertypes(type));
+        for (Class<?> target :
+            Arrays.asList(List.class, Map.class, ArrayList.class, Object.class)) {
+          String key = typeName + " -> " + target.getCanonicalName();
+          TypeMirror targetType =
+              types.getDeclaredType(
+                  processingEnv.getElementUtils().getTypeElement(target.getCanonicalName()));
+          assignable.put(key, processorUtil.isAssignableFrom(type.asType(), target));
+          typesAssignable.put(key, types.isAssignable(type.asType(), targetType));
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import java.util.List;
+import org.junit.Test;
+
+public class CodeTemplateTest {
+
+  private static final ClassName VIEW = ClassName.get("org.example", "View");
+
+  @Test
+  public void appliedTemplate_shouldBeSameAsCodeBlock() {
+    assertSame("registry.register($S, new $T())", "home", VIEW);
+    assertSame("$T<$T> views = $N", List.class, VIEW, "views");
+    assertSame("$2T.of($1S, $1S)", "key", VIEW);
+    assertSame("price is $$$L", 10);
+    assertSame("if (a) {\n$>b();\n$<}\n", new Object[0]);
+  }
+
+  @Test
+  public void statement_shouldBeSameAsAddStatement() {
+    CodeTemplate template = CodeTemplate.of("registry.register($S, new $T())");
+    MethodSpec.Builder expected = MethodSpec.methodBuilder("register");
+    MethodSpec.Builder actual = MethodSpec.methodBuilder("register");
+    for (int i = 0; i < 3; i++) {
+      expected.addStatement("registry.register($S, new $T())", "view" + i, VIEW);
+      template.addStatement(actual, "view" + i, VIEW);
+    }
+    assertEquals(expected.build().toString(), actual.build().toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void missingArguments_shouldBeRejected() {
+    CodeTemplate.of("new $T($S)").apply(VIEW);
+  }
+
+  private static void assertSame(String format, Object... arguments) {
+    assertEquals(
+        CodeBlock.of(format, arguments).toString(),
+        CodeTemplate.of(format).apply(arguments).toString());
+  }
+}
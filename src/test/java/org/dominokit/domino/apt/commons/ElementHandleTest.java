@@ -0,0 +1,335 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Types;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ElementHandleTest {
+
+  private static final String SOURCE =
+      "package test;\n"
+          + "import java.lang.annotation.*;\n"
+          + "import java.util.List;\n"
+          + "@Target(ElementType.TYPE_USE) @interface TypeUse {}\n"
+          + "enum Level { LOW, HIGH }\n"
+          + "public class Members<T extends Number> {\n"
+          + "  String name;\n"
+          + "  Members() {}\n"
+          + "  Members(String name, int... values) {}\n"
+          + "  void set(String value) {}\n"
+          + "  void set(int value) {}\n"
+          + "  void set(List<String> values) {}\n"
+          + "  void set(T value) {}\n"
+          + "  void set(String[] values, Members<T>.Inner inner) {}\n"
+          + "  <V extends Comparable<V>> void set(@TypeUse String value, @TypeUse V other) {}\n"
+          + "  void set(@TypeUse String @TypeUse [] values) {}\n"
+          + "  class Inner {\n"
+          + "    void set(String value) {}\n"
+          + "  }\n"
+          + "  void locals() {\n"
+          + "    class Local { void set(String value) {} }\n"
+          + "    new Object() { void set(String value) {} };\n"
+          + "  }\n"
+          + "}\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void handles_shouldResolveToTheirElementInTheSameCompilation() throws Exception {
+    HandleProcessor processor = new HandleProcessor(null);
+    compile(processor, "-proc:only");
+
+    assertTrue(processor.handles.keySet().containsAll(expectedHandles()));
+    assertEquals(processor.handles.keySet(), processor.resolved.keySet());
+    for (Map.Entry<ElementHandle, String> handle : processor.handles.entrySet()) {
+      assertEquals(handle.getValue(), processor.resolved.get(handle.getKey()));
+    }
+  }
+
+  @Test
+  public void handlesOfSourceElements_shouldResolveAgainstTheirClassFiles() throws Exception {
+    File classes = temporaryFolder.newFolder("classes");
+    HandleProcessor source = new HandleProcessor(null);
+    compile(source, "-d", classes.getAbsolutePath());
+
+    HandleProcessor binary = new HandleProcessor(source.handles);
+    compile(binary, "-proc:only", "-classpath", classes.getAbsolutePath());
+
+    assertEquals(source.handles.size(), binary.resolved.size());
+    for (Map.Entry<ElementHandle, String> handle : source.handles.entrySet()) {
+      assertEquals(
+          handle.getKey().toString(),
+          handle.getKey().getKind(),
+          ElementKind.valueOf(binary.resolved.get(handle.getKey()).split(" ")[0]));
+    }
+  }
+
+  @Test
+  public void localAndAnonymousTypes_shouldNotHaveHandles() throws Exception {
+    HandleProcessor processor = new HandleProcessor(null);
+    compile(processor, "-proc:only");
+
+    assertEquals(Arrays.asList("Local", "Local#set", "", "#set"), processor.rejected);
+  }
+
+  @Test
+  public void membersThatAreGone_shouldNotBeResolved() throws Exception {
+    Map<ElementHandle, String> gone = new LinkedHashMap<>();
+    gone.put(
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Collections.singletonList("java.lang.Integer"),
+            -1),
+        "");
+    gone.put(
+        ElementHandle.of(ElementKind.FIELD, "test.Members", "missing", Collections.emptyList(), -1),
+        "");
+    gone.put(
+        ElementHandle.of(ElementKind.CLASS, "test.Missing", null, Collections.emptyList(), -1), "");
+    HandleProcessor processor = new HandleProcessor(gone);
+    compile(processor, "-proc:only");
+
+    assertTrue(processor.resolved.isEmpty());
+  }
+
+  private static List<ElementHandle> expectedHandles() {
+    return Arrays.asList(
+        ElementHandle.of(ElementKind.PACKAGE, "test", null, Collections.emptyList(), -1),
+        ElementHandle.of(ElementKind.CLASS, "test.Members", null, Collections.emptyList(), -1),
+        ElementHandle.of(
+            ElementKind.CLASS, "test.Members.Inner", null, Collections.emptyList(), -1),
+        ElementHandle.of(
+            ElementKind.ENUM_CONSTANT, "test.Level", "HIGH", Collections.emptyList(), -1),
+        ElementHandle.of(ElementKind.FIELD, "test.Members", "name", Collections.emptyList(), -1),
+        ElementHandle.of(
+            ElementKind.CONSTRUCTOR, "test.Members", "<init>", Collections.emptyList(), -1),
+        ElementHandle.of(
+            ElementKind.PARAMETER,
+            "test.Members",
+            "<init>",
+            Arrays.asList("java.lang.String", "int[]"),
+            1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Collections.singletonList("java.lang.String"),
+            -1),
+        ElementHandle.of(
+            ElementKind.METHOD, "test.Members", "set", Collections.singletonList("int"), -1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Collections.singletonList("java.util.List"),
+            -1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Collections.singletonList("java.lang.Number"),
+            -1),
+        ElementHandle.of(
+            ElementKind.PARAMETER,
+            "test.Members",
+            "set",
+            Arrays.asList("java.lang.String[]", "test.Members.Inner"),
+            1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Arrays.asList("java.lang.String", "java.lang.Comparable"),
+            -1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members",
+            "set",
+            Collections.singletonList("java.lang.String[]"),
+            -1),
+        ElementHandle.of(
+            ElementKind.METHOD,
+            "test.Members.Inner",
+            "set",
+            Collections.singletonList("java.lang.String"),
+            -1));
+  }
+
+  private void compile(HandleProcessor processor, String... options) {
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                null,
+                Arrays.asList(options),
+                null,
+                Collections.singletonList(new StringSource("test.Members", SOURCE)));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(task.call());
+  }
+
+  /**
+   * Creates a handle for every element of the compiled source, or takes the given handles, and
+   * resolves them. The local and anonymous types of the source, and their members, are reached
+   * through the trees and must be rejected.
+   */
+  private static class HandleProcessor extends AbstractProcessor {
+    private final Map<ElementHandle, String> handles;
+    private final boolean createHandles;
+    private final Map<ElementHandle, String> resolved = new LinkedHashMap<>();
+    private final List<String> rejected = new ArrayList<>();
+
+    private HandleProcessor(Map<ElementHandle, String> handles) {
+      this.createHandles = handles == null;
+      this.handles = createHandles ? new LinkedHashMap<>() : handles;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      Types types = processingEnv.getTypeUtils();
+      if (createHandles) {
+        TypeElement members = processingEnv.getElementUtils().getTypeElement("test.Members");
+        add(members.getEnclosingElement());
+        add(members);
+        add(processingEnv.getElementUtils().getTypeElement("test.Level"));
+        rejectLocals(members);
+      }
+      for (ElementHandle handle : handles.keySet()) {
+        handle
+            .resolve(processingEnv.getElementUtils(), types)
+            .ifPresent(element -> resolved.put(handle, describe(element)));
+      }
+      return false;
+    }
+
+    private void add(Element element) {
+      handles.put(ElementHandle.of(element, processingEnv.getTypeUtils()), describe(element));
+      if (element.getKind() == ElementKind.PACKAGE) {
+        return;
+      }
+      for (Element enclosed : element.getEnclosedElements()) {
+        add(enclosed);
+      }
+      if (element instanceof ExecutableElement) {
+        for (Element parameter : ((ExecutableElement) element).getParameters()) {
+          add(parameter);
+        }
+      }
+    }
+
+    private void rejectLocals(TypeElement members) {
+      Trees trees = Trees.instance(processingEnv);
+      new TreePathScanner<Void, Void>() {
+        @Override
+        public Void visitClass(ClassTree classTree, Void unused) {
+          Element type = trees.getElement(getCurrentPath());
+          if (type.getEnclosingElement() instanceof ExecutableElement) {
+            reject(type);
+            for (Element enclosed : type.getEnclosedElements()) {
+              if (enclosed.getKind() == ElementKind.METHOD) {
+                reject(enclosed);
+              }
+            }
+          }
+          return super.visitClass(classTree, unused);
+        }
+      }.scan(trees.getPath(members), null);
+    }
+
+    private void reject(Element element) {
+      try {
+        ElementHandle.of(element, processingEnv.getTypeUtils());
+        fail("A handle was created for " + element);
+      } catch (IllegalArgumentException e) {
+        rejected.add(
+            element.getKind() == ElementKind.METHOD
+                ? element.getEnclosingElement().getSimpleName() + "#" + element.getSimpleName()
+                : element.getSimpleName().toString());
+      }
+    }
+
+    /** The kind and the owner qualified name, simple name and parameters of an element */
+    private static String describe(Element element) {
+      Element owner = element.getEnclosingElement();
+      return element.getKind()
+          + " "
+          + (owner == null ? "" : owner + "#")
+          + element
+          + (element.getKind() == ElementKind.PARAMETER
+              ? " of " + owner.getEnclosingElement()
+              : "");
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ElementValidatorTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void allViolations_shouldBeCollectedInASinglePass() throws Exception {
+    List<String> messages =
+        validate(
+            validator ->
+                validator.requireKind(ElementKind.CLASS).forbidModifiers(Modifier.ABSTRACT));
+
+    assertEquals(
+        Arrays.asList(
+            "test.Shape: Elements with modifiers abstract cannot be annotated with"
+                + " @java.lang.Deprecated",
+            "test.Named: Only CLASS can be annotated with @java.lang.Deprecated",
+            "test.Named: Elements with modifiers abstract cannot be annotated with"
+                + " @java.lang.Deprecated"),
+        messages);
+  }
+
+  @Test
+  public void requiredAnnotations_shouldBeNamedByTheirQualifiedName() throws Exception {
+    List<String> messages =
+        validate(validator -> validator.requireAnnotation(SuppressWarnings.class));
+
+    assertEquals(
+        Arrays.asList(
+            "test.Shape: Element must be annotated with @java.lang.SuppressWarnings",
+            "test.Named: Element must be annotated with @java.lang.SuppressWarnings"),
+        messages);
+  }
+
+  @Test
+  public void validElements_shouldHaveNoViolation() throws Exception {
+    assertTrue(
+        validate(validator -> validator.requireKind(ElementKind.CLASS, ElementKind.INTERFACE))
+            .isEmpty());
+  }
+
+  @Test
+  public void requiringNoKind_shouldBeRejected() throws Exception {
+    ElementValidator[] validator = new ElementValidator[1];
+    validate(created -> validator[0] = created);
+    try {
+      validator[0].requireKind();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("At least one element kind is required", e.getMessage());
+    }
+  }
+
+  /** Validates the deprecated types of a source with the rules, in a javac processing round */
+  private List<String> validate(Rules rules) throws IOException {
+    List<String> messages = new ArrayList<>();
+    AbstractProcessor processor =
+        new AbstractProcessor() {
+          @Override
+          public Set<String> getSupportedAnnotationTypes() {
+            return Collections.singleton("*");
+          }
+
+          @Override
+          public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+          }
+
+          @Override
+          public boolean process(
+              Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (!roundEnv.processingOver()) {
+              ElementValidator validator = new ElementValidator(processingEnv, Deprecated.class);
+              rules.register(validator);
+              for (ValidationDiagnostic diagnostic :
+                  validator.validate(roundEnv.getElementsAnnotatedWith(Deprecated.class))) {
+                messages.add(diagnostic.getElement() + ": " + diagnostic.getMessage());
+              }
+            }
+            return false;
+          }
+        };
+    String source =
+        "package test;\n"
+            + "@Deprecated @SuppressWarnings(\"all\") class Circle {}\n"
+            + "@Deprecated abstract class Shape {}\n"
+            + "@Deprecated interface Named {}\n";
+    javax.tools.JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only", "-s", temporaryFolder.newFolder("generated").getAbsolutePath()),
+                null,
+                Collections.singletonList(new StringSource("test.Circle", source)));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    return messages;
+  }
+
+  private interface Rules {
+    void register(ElementValidator validator);
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
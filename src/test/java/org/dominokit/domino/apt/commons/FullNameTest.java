@@ -16,7 +16,13 @@
 package org.dominokit.domino.apt.commons;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
 import java.util.List;
 import org.junit.Test;
 
@@ -170,6 +176,56 @@ public class FullNameTest {
             new FullClassName("Test<ddd.eee.fff.A,ggg.hhh.iii.B,ggg.hhh.iii.B>").allImports()));
   }
 
+  @Test
+  public void gettingTypeNameFromClassFullName() throws Exception {
+    assertEquals(
+        ClassName.get("aaa.bbb.ccc", "Test"), new FullClassName("aaa.bbb.ccc.Test").asTypeName());
+    assertEquals(ClassName.get("", "Test"), new FullClassName("Test").asTypeName());
+    assertEquals(
+        ClassName.get("aaa.bbb", "Outer", "Inner"),
+        new FullClassName("aaa.bbb.Outer.Inner").asTypeName());
+    assertEquals(TypeName.INT, new FullClassName("int").asTypeName());
+  }
+
+  @Test
+  public void gettingTypeNameFromClassFullNameWithGenericsArraysAndWildcards() throws Exception {
+    TypeName expected =
+        ParameterizedTypeName.get(
+            ClassName.get("java.util", "Map"),
+            ClassName.get("java.lang", "String"),
+            ParameterizedTypeName.get(
+                ClassName.get("java.util", "List"),
+                WildcardTypeName.subtypeOf(ClassName.get("aaa.bbb", "A"))));
+    assertEquals(
+        expected,
+        new FullClassName("java.util.Map<java.lang.String, java.util.List<? extends aaa.bbb.A>>")
+            .asTypeName());
+
+    assertEquals(
+        ArrayTypeName.of(ArrayTypeName.of(TypeName.INT)),
+        new FullClassName("int[][]").asTypeName());
+    assertEquals(
+        ParameterizedTypeName.get(
+            ClassName.get("java.util", "List"),
+            WildcardTypeName.supertypeOf(ArrayTypeName.of(ClassName.get("aaa", "B")))),
+        new FullClassName("java.util.List<? super aaa.B[]>").asTypeName());
+    assertEquals(
+        ParameterizedTypeName.get(
+            ClassName.get("java.util", "List"), WildcardTypeName.subtypeOf(Object.class)),
+        new FullClassName("java.util.List<?>").asTypeName());
+  }
+
+  @Test
+  public void gettingTypeNameFromClassFullName_shouldBeCached() throws Exception {
+    FullClassName fullClassName = new FullClassName("aaa.bbb.ccc.Test<ddd.eee.fff.A>");
+    assertSame(fullClassName.asTypeName(), fullClassName.asTypeName());
+  }
+
+  @Test(expected = FullClassName.InvalidClassName.class)
+  public void gettingTypeNameFromInvalidClassFullName_shouldThrowException() throws Exception {
+    new FullClassName("aaa.bbb.Test<A").asTypeName();
+  }
+
   private String importsAsOneString(List<String> imports) {
     StringBuilder sb = new StringBuilder();
     imports.forEach(s -> sb.append(s).append("\n"));
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import org.junit.Test;
+
+public class FunctionalShapeTest {
+
+  private static final ClassName STRING = ClassName.get(String.class);
+
+  @Test
+  public void specializedPrimitives_shouldNotBeBoxed() {
+    FunctionalShape toLong = FunctionalShape.function(STRING, TypeName.LONG);
+    assertEquals(
+        ParameterizedTypeName.get(ClassName.get(ToLongFunction.class), STRING), toLong.getType());
+    assertEquals("applyAsLong", toLong.getMethodName());
+    assertFalse(toLong.isBoxing());
+
+    assertEquals(
+        ParameterizedTypeName.get(ClassName.get(IntFunction.class), STRING),
+        FunctionalShape.function(TypeName.INT, STRING).getType());
+    assertEquals(
+        ClassName.get(IntToLongFunction.class),
+        FunctionalShape.function(TypeName.INT, TypeName.LONG).getType());
+    assertEquals("getAsInt", FunctionalShape.supplier(TypeName.INT).getMethodName());
+  }
+
+  @Test
+  public void unspecializedPrimitives_shouldBeBoxedAndReported() {
+    FunctionalShape supplier = FunctionalShape.supplier(TypeName.BYTE);
+    assertEquals(
+        ParameterizedTypeName.get(ClassName.get(Supplier.class), TypeName.BYTE.box()),
+        supplier.getType());
+    assertEquals(Collections.singletonList(TypeName.BYTE), supplier.getBoxedPrimitives());
+
+    FunctionalShape function = FunctionalShape.function(TypeName.FLOAT, STRING);
+    assertEquals(
+        ParameterizedTypeName.get(ClassName.get(Function.class), TypeName.FLOAT.box(), STRING),
+        function.getType());
+    assertTrue(function.isBoxing());
+  }
+}
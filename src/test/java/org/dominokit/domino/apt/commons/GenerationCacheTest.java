@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.ElementKind;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GenerationCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void storedSources_shouldBeFoundByTheirKey() throws Exception {
+    GenerationCache cache = GenerationCache.open(temporaryFolder.getRoot().toPath());
+    String key = GenerationCache.key("snapshot".getBytes(StandardCharsets.UTF_8));
+    assertFalse(cache.get(key).isPresent());
+
+    Map<String, String> sources = new LinkedHashMap<>();
+    sources.put("org.example.First", "class First {}");
+    sources.put("org.example.Second", "class First {}");
+    cache.put(key, sources);
+
+    List<GenerationCache.CachedSource> cached = cache.get(key).get();
+    assertEquals(2, cached.size());
+    assertEquals("org.example.First", cached.get(0).getQualifiedName());
+    assertEquals("class First {}", cached.get(1).readContent());
+    assertEquals(cached.get(0).getContentHash(), cached.get(1).getContentHash());
+    assertTrue(temporaryFolder.getRoot().toPath().resolve("index").toFile().length() > 4);
+  }
+
+  @Test
+  public void originatingElements_shouldBeReadBackFromTheIndex() throws Exception {
+    Path directory = temporaryFolder.newFolder("first").toPath();
+    GenerationCache cache = GenerationCache.open(directory);
+    String key = GenerationCache.key("snapshot".getBytes(StandardCharsets.UTF_8));
+    ElementHandle type =
+        ElementHandle.of(ElementKind.CLASS, "org.example.Model", null, Collections.emptyList(), -1);
+    ElementHandle parameter =
+        ElementHandle.of(
+            ElementKind.PARAMETER,
+            "org.example.Model",
+            "setName",
+            Collections.singletonList("java.lang.String"),
+            0);
+    cache.put(
+        key,
+        Collections.singletonMap("org.example.Model_Generated", "class Model_Generated {}"),
+        Collections.singletonMap("org.example.Model_Generated", Arrays.asList(type, parameter)));
+
+    List<GenerationCache.CachedSource> cached =
+        GenerationCache.open(copy(directory)).get(key).get();
+    assertEquals(Arrays.asList(type, parameter), cached.get(0).getOriginatingElements());
+  }
+
+  @Test
+  public void indexOfAnotherVersion_shouldBeReplaced() throws Exception {
+    Path directory = temporaryFolder.newFolder("previous").toPath();
+    Files.write(directory.resolve("index"), new byte[] {0x44, 0x47, 0x43, 0x31, 1, 2, 3});
+    GenerationCache cache = GenerationCache.open(directory);
+    String key = GenerationCache.key("snapshot".getBytes(StandardCharsets.UTF_8));
+    assertFalse(cache.get(key).isPresent());
+
+    cache.put(key, Collections.singletonMap("org.example.First", "class First {}"));
+
+    byte[] index = Files.readAllBytes(directory.resolve("index"));
+    assertEquals(0x33, index[3]);
+    assertTrue(cache.get(key).isPresent());
+  }
+
+  @Test
+  public void damagedRecords_shouldBeMissesAndDropped() throws Exception {
+    Path directory = temporaryFolder.newFolder("damaged").toPath();
+    GenerationCache cache = GenerationCache.open(directory);
+    String first = GenerationCache.key("first".getBytes(StandardCharsets.UTF_8));
+    String second = GenerationCache.key("second".getBytes(StandardCharsets.UTF_8));
+    cache.put(first, Collections.singletonMap("org.example.First", "class First {}"));
+    long firstLength = Files.size(directory.resolve("index"));
+    ElementHandle type =
+        ElementHandle.of(ElementKind.CLASS, "org.example.Model", null, Collections.emptyList(), -1);
+    cache.put(
+        second,
+        Collections.singletonMap("org.example.Second", "class Second {}"),
+        Collections.singletonMap("org.example.Second", Collections.singletonList(type)));
+
+    // the source count after the key, and the first letter of the originating element kind name
+    long indexLength = Files.size(directory.resolve("index"));
+    for (long position : new long[] {firstLength + 32, indexLength - 36}) {
+      for (int damaged : new int[] {0xFF, 0x80, 0x01}) {
+        assertDamageIsDropped(directory, (int) position, damaged, first, second, firstLength);
+      }
+    }
+  }
+
+  private void assertDamageIsDropped(
+      Path directory, int position, int damaged, String first, String second, long firstLength)
+      throws IOException {
+    Path copy = copy(directory);
+    byte[] index = Files.readAllBytes(copy.resolve("index"));
+    index[position] ^= (byte) damaged;
+    Files.write(copy.resolve("index"), index);
+
+    GenerationCache reopened = GenerationCache.open(copy);
+    assertTrue(reopened.get(first).isPresent());
+    assertFalse(reopened.get(second).isPresent());
+    assertEquals(firstLength, Files.size(copy.resolve("index")));
+
+    reopened.put(second, Collections.singletonMap("org.example.Second", "class Second {}"));
+    assertTrue(GenerationCache.open(copy(copy)).get(second).isPresent());
+  }
+
+  @Test
+  public void leastRecentlyUsedKeys_shouldBeEvicted() throws Exception {
+    Path directory = temporaryFolder.newFolder().toPath();
+    GenerationCache cache = GenerationCache.open(directory, 4);
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String key = GenerationCache.key(("snapshot" + i).getBytes(StandardCharsets.UTF_8));
+      cache.put(key, Collections.singletonMap("org.example.Type" + i, "class Type" + i + " {}"));
+      keys.add(key);
+    }
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory.resolve("blobs"))) {
+      for (Path blob : blobs) {
+        Files.setLastModifiedTime(blob, FileTime.fromMillis(0));
+      }
+    }
+
+    // the oldest key is used again, appending its record once more goes over the bound
+    assertTrue(cache.get(keys.get(0)).isPresent());
+
+    for (GenerationCache reopened : Arrays.asList(cache, GenerationCache.open(copy(directory)))) {
+      assertTrue(reopened.get(keys.get(0)).isPresent());
+      assertFalse(reopened.get(keys.get(1)).isPresent());
+      assertFalse(reopened.get(keys.get(2)).isPresent());
+      assertTrue(reopened.get(keys.get(3)).isPresent());
+    }
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory.resolve("blobs"))) {
+      int count = 0;
+      for (Path ignored : blobs) {
+        count++;
+      }
+      assertEquals(2, count);
+    }
+  }
+
+  @Test
+  public void keyParts_shouldNotBeAmbiguous() {
+    assertNotEquals(
+        GenerationCache.key(
+            "ab".getBytes(StandardCharsets.UTF_8), "c".getBytes(StandardCharsets.UTF_8)),
+        GenerationCache.key(
+            "a".getBytes(StandardCharsets.UTF_8), "bc".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** Copies a cache directory, the cache of a directory is only loaded once per JVM */
+  private Path copy(Path directory) throws IOException {
+    Path copy = temporaryFolder.newFolder().toPath();
+    Files.copy(directory.resolve("index"), copy.resolve("index"));
+    Files.createDirectories(copy.resolve("blobs"));
+    try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory.resolve("blobs"))) {
+      for (Path blob : blobs) {
+        Files.copy(blob, copy.resolve("blobs").resolve(blob.getFileName()));
+      }
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LookupTableWriterTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void largeLookup_shouldCompileAndFindEveryKey() throws Exception {
+    LookupTableWriter writer = new LookupTableWriter("Lookup", ClassName.get(String.class));
+    for (int i = 0; i < 2000; i++) {
+      writer.put("org.example.views.View" + i, CodeBlock.of("$S", "value" + i));
+    }
+
+    Class<?> lookup = compile(JavaFile.builder("org.example", writer.build()).build());
+
+    assertLookup(lookup, 2000);
+  }
+
+  @Test
+  public void largeSwitchLookup_shouldCompileAndFindEveryKey() throws Exception {
+    // "Aa" and "BB" have the same String#hashCode, so no perfect hash is found
+    LookupTableWriter writer =
+        new LookupTableWriter("Lookup", ClassName.get(String.class))
+            .put("Aa", CodeBlock.of("$S", "first"))
+            .put("BB", CodeBlock.of("$S", "second"));
+    for (int i = 0; i < 2000; i++) {
+      writer.put("org.example.views.View" + i, CodeBlock.of("$S", "value" + i));
+    }
+    JavaFile javaFile = JavaFile.builder("org.example", writer.build()).build();
+    assertTrue(javaFile.toString().contains("switch (key)"));
+
+    Class<?> lookup = compile(javaFile);
+
+    assertLookup(lookup, 2002);
+    assertEquals("second", invoke(lookup, "get", "BB"));
+  }
+
+  private static void assertLookup(Class<?> lookup, int size) throws Exception {
+    for (int i = 0; i < 2000; i++) {
+      assertEquals("value" + i, invoke(lookup, "get", "org.example.views.View" + i));
+    }
+    assertNull(invoke(lookup, "get", "org.example.views.Unknown"));
+    assertFalse((Boolean) invoke(lookup, "contains", "unknown"));
+    assertEquals(size, invoke(lookup, "size"));
+  }
+
+  /** The generated lookup type is package private */
+  private static Object invoke(Class<?> lookup, String methodName, String... arguments)
+      throws Exception {
+    Class<?>[] parameterTypes = new Class<?>[arguments.length];
+    Arrays.fill(parameterTypes, String.class);
+    Method method = lookup.getMethod(methodName, parameterTypes);
+    method.setAccessible(true);
+    return method.invoke(null, (Object[]) arguments);
+  }
+
+  private Class<?> compile(JavaFile javaFile) throws Exception {
+    Path sources = temporaryFolder.newFolder("sources").toPath();
+    Path classes = temporaryFolder.newFolder("classes").toPath();
+    javaFile.writeTo(sources);
+    Path source = sources.resolve("org/example/Lookup.java");
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    int result =
+        compiler.run(
+            null, null, null, "-d", classes.toString(), source.toString(), "-encoding", "UTF-8");
+    assertEquals(new String(Files.readAllBytes(source), StandardCharsets.UTF_8), 0, result);
+    URLClassLoader classLoader =
+        new URLClassLoader(new URL[] {classes.toUri().toURL()}, getClass().getClassLoader());
+    return classLoader.loadClass("org.example.Lookup");
+  }
+}
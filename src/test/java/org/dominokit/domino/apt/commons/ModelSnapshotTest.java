@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import org.junit.Test;
+
+public class ModelSnapshotTest {
+
+  @Test
+  public void writingAndReadingSnapshot_shouldProduceTheSameModel() throws Exception {
+    Map<String, Object> nestedValues = new LinkedHashMap<>();
+    nestedValues.put("name", "nested");
+    Map<String, Object> values = new LinkedHashMap<>();
+    values.put("value", "/path");
+    values.put("order", 5);
+    values.put("enabled", true);
+    values.put("ratio", 0.5d);
+    values.put("type", new AnnotationSnapshot.ClassReference("aaa.bbb.Type"));
+    values.put("mode", new AnnotationSnapshot.EnumConstant("aaa.bbb.Mode", "LAZY"));
+    values.put("nested", new AnnotationSnapshot("aaa.bbb.Nested", nestedValues));
+    values.put("names", Arrays.asList("a", "b"));
+    AnnotationSnapshot annotation = new AnnotationSnapshot("aaa.bbb.MyAnnotation", values);
+
+    ElementSnapshot field =
+        new ElementSnapshot(
+            ElementKind.FIELD,
+            "name",
+            "name",
+            "java.lang.String",
+            Arrays.asList(Modifier.PRIVATE, Modifier.FINAL),
+            Collections.emptyList(),
+            Collections.emptyList(),
+            Collections.emptyList());
+    ElementSnapshot type =
+        new ElementSnapshot(
+            ElementKind.CLASS,
+            "aaa.bbb.Test",
+            "Test",
+            "aaa.bbb.Test",
+            Collections.singletonList(Modifier.PUBLIC),
+            Collections.singletonList(annotation),
+            Collections.emptyList(),
+            Collections.singletonList(field),
+            Arrays.asList("aaa.bbb.Base<java.lang.String>", "java.lang.Object"),
+            Collections.singletonList("T extends java.lang.Comparable<T>"),
+            Collections.emptyList());
+    ModelSnapshot snapshot = new ModelSnapshot("step", Collections.singletonList(type));
+
+    ModelSnapshot read = ModelSnapshot.readFrom(new ByteArrayInputStream(snapshot.toBytes()));
+
+    assertEquals("step", read.getName());
+    assertEquals(snapshot.getElements(), read.getElements());
+    assertEquals("aaa.bbb", read.getElements().get(0).getPackageName());
+    assertEquals(
+        "aaa.bbb.Base<java.lang.String>", read.getElements().get(0).getSupertypes().get(0));
+    assertEquals(
+        "aaa.bbb.Type",
+        read.getElements().get(0).getAnnotation("aaa.bbb.MyAnnotation").get().getClassName("type"));
+  }
+
+  @Test(expected = IOException.class)
+  public void readingInvalidSnapshot_shouldThrowException() throws Exception {
+    ModelSnapshot.readFrom(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ModuleIndexTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void indexesOfClassPathModules_shouldBeReadBack() throws Exception {
+    // both modules start with the same entry, one is named by the option and the other is not
+    File first =
+        compileModule(
+            Collections.singletonList("-A" + ProcessorOptions.MODULE_NAME + "=first"),
+            Arrays.asList("shared", "first"),
+            new StringSource("test.First", "package test; public class First {}"));
+    File second =
+        compileModule(
+            Collections.emptyList(),
+            Arrays.asList("shared", "second"),
+            new StringSource("test.Second", "package test; public class Second {}"));
+
+    SortedSet<String> entries =
+        readIndexes(
+            Arrays.asList("-cp", first + File.pathSeparator + second),
+            new StringSource("test.App", "package test; public class App {}"));
+
+    assertEquals(new TreeSet<>(Arrays.asList("first", "second", "shared")), entries);
+  }
+
+  @Test
+  public void indexesOfNamedModules_shouldBeInPackagesOfTheirOwn() throws Exception {
+    File first = compileNamedModule("lib.first", "First", Arrays.asList("shared", "first"));
+    File second = compileNamedModule("lib.second", "Second", Arrays.asList("shared", "second"));
+    assertTrue(new File(first, ModuleIndex.INDEX_PACKAGE.replace('.', '/')).isDirectory());
+    assertEquals(
+        0,
+        new File(first, ModuleIndex.INDEX_PACKAGE.replace('.', '/'))
+            .listFiles(File::isFile)
+            .length);
+
+    SortedSet<String> entries =
+        readIndexes(
+            Arrays.asList("--module-path", first + File.pathSeparator + second),
+            new StringSource(
+                "module-info", "module app { requires lib.first; requires lib.second; }"),
+            new StringSource("app.App", "package app; public class App {}"));
+
+    assertEquals(new TreeSet<>(Arrays.asList("first", "second", "shared")), entries);
+  }
+
+  private File compileNamedModule(String moduleName, String typeName, List<String> entries)
+      throws IOException {
+    return compileModule(
+        Collections.singletonList("-A" + ProcessorOptions.MODULE_NAME + "=" + moduleName),
+        entries,
+        new StringSource("module-info", "module " + moduleName + " {}"),
+        new StringSource(
+            moduleName + "." + typeName,
+            "package " + moduleName + "; public class " + typeName + " {}"));
+  }
+
+  private File compileModule(List<String> options, List<String> entries, StringSource... sources)
+      throws IOException {
+    File classes = temporaryFolder.newFolder();
+    List<String> allOptions = new ArrayList<>(options);
+    allOptions.addAll(Arrays.asList("-d", classes.getAbsolutePath()));
+    compile(allOptions, new IndexingProcessor(entries), sources);
+    return classes;
+  }
+
+  private SortedSet<String> readIndexes(List<String> options, StringSource... sources)
+      throws IOException {
+    List<String> allOptions = new ArrayList<>(options);
+    allOptions.addAll(
+        Arrays.asList("-proc:only", "-d", temporaryFolder.newFolder().getAbsolutePath()));
+    ReadingProcessor processor = new ReadingProcessor();
+    compile(allOptions, processor, sources);
+    return processor.entries;
+  }
+
+  private static void compile(
+      List<String> options, BaseProcessor processor, StringSource... sources) {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(null, null, diagnostics, options, null, Arrays.asList(sources));
+    task.setProcessors(Collections.singletonList(processor));
+    assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+  }
+
+  /** Adds entries to the index of the module in the first round */
+  private static class IndexingProcessor extends BaseProcessor {
+    private final List<String> entries;
+
+    private IndexingProcessor(List<String> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (!roundEnv.processingOver() && !roundEnv.getRootElements().isEmpty()) {
+        try {
+          new ModuleIndex(processingEnv, "pages").addAll(entries);
+        } catch (FilerException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      flushAggregatedResources(roundEnv);
+      return false;
+    }
+  }
+
+  /** Reads the indexes of the other modules in the first round */
+  private static class ReadingProcessor extends BaseProcessor {
+    private SortedSet<String> entries;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (entries == null) {
+        entries = new ModuleIndex(processingEnv, "pages").read();
+      }
+      return false;
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
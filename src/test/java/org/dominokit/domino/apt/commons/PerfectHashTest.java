@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Test;
+
+public class PerfectHashTest {
+
+  @Test
+  public void everyKey_shouldHaveItsOwnSlot() {
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      keys.add("org.example.views.View" + i);
+    }
+    PerfectHash perfectHash = PerfectHash.find(keys).get();
+    String[] slots = perfectHash.getSlots();
+    Set<Integer> used = new HashSet<>();
+    for (String key : keys) {
+      int slot = perfectHash.slot(key);
+      assertTrue(used.add(slot));
+      assertEquals(key, slots[slot]);
+    }
+  }
+
+  @Test
+  public void keysWithSameHashCode_shouldFallbackToSwitch() {
+    // "Aa" and "BB" have the same String#hashCode
+    Optional<PerfectHash> perfectHash = PerfectHash.find(Arrays.asList("Aa", "BB"));
+    assertFalse(perfectHash.isPresent());
+
+    TypeSpec lookup =
+        new LookupTableWriter("Lookup", ClassName.get(String.class))
+            .put("Aa", CodeBlock.of("$S", "first"))
+            .put("BB", CodeBlock.of("$S", "second"))
+            .build();
+    assertTrue(lookup.toString().contains("switch (key)"));
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessorUtilTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void containerTypes_shouldBeMatchedFromTheirSupertypes() throws Exception {
+    ContainerProcessor processor =
+        compile(
+            "test.Fields",
+            "package test;\n"
+                + "import java.util.*;\n"
+                + "public class Fields<T extends List<String>> {\n"
+                + "  List<String> list;\n"
+                + "  ArrayList<String> arrayList;\n"
+                + "  Set<Integer> set;\n"
+                + "  Map<String, String> map;\n"
+                + "  HashMap<String, Integer> hashMap;\n"
+                + "  Properties properties;\n"
+                + "  Iterable<String> iterable;\n"
+                + "  java.nio.file.Path path;\n"
+                + "  T typeVariable;\n"
+                + "  String string;\n"
+                + "  String[] array;\n"
+                + "  int primitive;\n"
+                + "}\n");
+
+    Map<String, String> fields = processor.rounds.get(0);
+    assertEquals("collection iterable", fields.get("list"));
+    assertEquals("collection iterable", fields.get("arrayList"));
+    assertEquals("collection iterable", fields.get("set"));
+    assertEquals("map", fields.get("map"));
+    assertEquals("map", fields.get("hashMap"));
+    assertEquals("map", fields.get("properties"));
+    assertEquals("iterable", fields.get("iterable"));
+    assertEquals("iterable", fields.get("path"));
+    assertEquals("collection iterable", fields.get("typeVariable"));
+    assertEquals("", fields.get("string"));
+    assertEquals("", fields.get("array"));
+    assertEquals("", fields.get("primitive"));
+  }
+
+  @Test
+  public void typeExtendingATypeGeneratedInALaterRound_shouldBeMatchedOnceGenerated()
+      throws Exception {
+    ContainerProcessor processor =
+        compile(
+            "test.Model",
+            "package test;\n"
+                + "public class Model extends Model_Base {\n"
+                + "  Model model;\n"
+                + "}\n");
+
+    assertTrue(processor.rounds.size() > 1);
+    assertEquals("", processor.rounds.get(0).get("model"));
+    assertEquals("collection iterable", processor.rounds.get(1).get("model"));
+  }
+
+  private ContainerProcessor compile(String typeName, String source) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    ContainerProcessor processor = new ContainerProcessor(typeName);
+    JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            Arrays.asList(
+                "-proc:only", "-s", temporaryFolder.newFolder("generated").getAbsolutePath()),
+            null,
+            Collections.singletonList(new StringSource(typeName, source)));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    return processor;
+  }
+
+  /**
+   * Records the containers matched for the fields of a type in every round, with the same {@link
+   * ProcessorUtil} across rounds, and generates the missing {@code Model_Base} in the first round
+   */
+  private static class ContainerProcessor extends AbstractProcessor {
+    private final String typeName;
+    private final List<Map<String, String>> rounds = new ArrayList<>();
+    private ProcessorUtil processorUtil;
+
+    private ContainerProcessor(String typeName) {
+      this.typeName = typeName;
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+      super.init(processingEnv);
+      processorUtil = new ProcessorUtil(processingEnv);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      Map<String, String> fields = new LinkedHashMap<>();
+      TypeElement type = processingEnv.getElementUtils().getTypeElement(typeName);
+      for (Element field : type.getEnclosedElements()) {
+        if (field.getKind() == ElementKind.FIELD) {
+          fields.put(field.getSimpleName().toString(), containers(field.asType()));
+        }
+      }
+      rounds.add(fields);
+      if (rounds.size() == 1 && typeName.equals("test.Model")) {
+        try (Writer writer =
+            processingEnv.getFiler().createSourceFile("test.Model_Base").openWriter()) {
+          writer.write(
+              "package test; public class Model_Base extends java.util.ArrayList<String> {}");
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return false;
+    }
+
+    private String containers(TypeMirror typeMirror) {
+      List<String> containers = new ArrayList<>();
+      if (processorUtil.isCollection(typeMirror)) {
+        containers.add("collection");
+      }
+      if (processorUtil.isMap(typeMirror)) {
+        containers.add("map");
+      }
+      if (processorUtil.isIterable(typeMirror)) {
+        containers.add("iterable");
+      }
+      return String.join(" ", containers);
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
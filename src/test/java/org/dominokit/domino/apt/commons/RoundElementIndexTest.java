@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RoundElementIndexTest {
+
+  private static final String ANNOTATIONS =
+      "package test;\n"
+          + "import java.lang.annotation.*;\n"
+          + "@Retention(RetentionPolicy.RUNTIME) @interface Component {}\n"
+          + "@Component @interface Route {}\n"
+          + "@Route @interface SubRoute {}\n"
+          + "@Inherited @interface Marker {}\n"
+          + "@interface Other {}\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void elements_shouldBeBucketedUnderAllTheirIndexedAnnotations() throws Exception {
+    IndexProcessor processor = new IndexProcessor(false);
+    compile(
+        processor,
+        new StringSource("test.Annotations", ANNOTATIONS),
+        new StringSource(
+            "test.Pages",
+            "package test;\n"
+                + "@Marker @Component class Base {\n"
+                + "  @Route String field;\n"
+                + "  void method(@SubRoute String parameter) {}\n"
+                + "}\n"
+                + "class Page extends Base {}\n"
+                + "class SubPage extends Page {}\n"
+                + "@Marker @Other class Marked {}\n"
+                + "@Other class Unindexed {}\n"));
+
+    assertEquals(
+        Arrays.asList(
+            "test.Component=[Base, Route, SubRoute, field, parameter]",
+            "test.Marker=[Base, Marked, Page, SubPage]"),
+        processor.rounds.get(0));
+  }
+
+  @Test
+  public void metaAnnotationsGeneratedInALaterRound_shouldBeFound() throws Exception {
+    IndexProcessor processor = new IndexProcessor(true);
+    compile(
+        processor,
+        new StringSource(
+            "test.Annotations",
+            "package test;\n" + "@interface Component {}\n" + "@Late @interface Early {}\n"),
+        new StringSource("test.Page", "package test;\n@Early class Page {}\n"));
+
+    // the erroneous @Late is not a meta-annotation of @Early until it is generated
+    assertEquals(Arrays.asList("test.Component=[]", "test.Marker=[]"), processor.rounds.get(0));
+    assertEquals(
+        Arrays.asList("test.Component=[Generated, Late]", "test.Marker=[]"),
+        processor.rounds.get(1));
+  }
+
+  private void compile(IndexProcessor processor, StringSource... sources) throws IOException {
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only", "-s", temporaryFolder.newFolder("generated").getAbsolutePath()),
+                null,
+                Arrays.asList(sources));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+  }
+
+  /**
+   * Records the simple names of the elements indexed under {@code @Component} and {@code @Marker}
+   * in every round, with one index for all the rounds. Generates the {@code @Late} annotation type
+   * and a type annotated with {@code @Early} in the first round when asked to.
+   */
+  private static class IndexProcessor extends AbstractProcessor {
+    private final RoundElementIndex index =
+        new RoundElementIndex(Arrays.asList("test.Component", "test.Marker"));
+    private final boolean generate;
+    private final List<List<String>> rounds = new ArrayList<>();
+
+    private IndexProcessor(boolean generate) {
+      this.generate = generate;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      index.index(roundEnv);
+      List<String> round = new ArrayList<>();
+      for (String annotation : Arrays.asList("test.Component", "test.Marker")) {
+        Set<String> names = new TreeSet<>();
+        for (Element element : index.getElementsAnnotatedWith(annotation)) {
+          names.add(element.getSimpleName().toString());
+        }
+        round.add(annotation + "=" + names);
+      }
+      rounds.add(round);
+      if (generate && rounds.size() == 1) {
+        generate("test.Late", "package test;\n@Component @interface Late {}\n");
+        generate("test.Generated", "package test;\n@Early class Generated {}\n");
+      }
+      return false;
+    }
+
+    private void generate(String typeName, String source) {
+      try (Writer writer = processingEnv.getFiler().createSourceFile(typeName).openWriter()) {
+        writer.write(source);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
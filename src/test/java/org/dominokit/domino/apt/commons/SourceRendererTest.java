@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import javax.lang.model.element.Modifier;
+import org.junit.Test;
+
+public class SourceRendererTest {
+
+  @Test
+  public void compactingSource_shouldRemoveJavadocIndentationAndBlankLines() throws Exception {
+    String source = "/**\n * doc\n */\nclass A {\n\n  /** field */\n  int a;\n\n  void b() {}\n}\n";
+    assertEquals("class A {\nint a;\nvoid b() {}\n}\n", SourceRenderer.compact(source));
+  }
+
+  @Test
+  public void compactingSource_shouldKeepLiteralsAndOtherComments() throws Exception {
+    String source =
+        "class A {\n  // note\n  String a = \"/api/** \\\" /** x */\";\n  char b = '\"';\n}\n";
+    assertEquals(
+        "class A {\n// note\nString a = \"/api/** \\\" /** x */\";\nchar b = '\"';\n}\n",
+        SourceRenderer.compact(source));
+  }
+
+  @Test
+  public void renderingInCompactMode_shouldKeepOnlyTheGeneratedMarker() throws Exception {
+    TypeSpec type =
+        DominoTypeBuilder.classBuilder("Test", null)
+            .addField(
+                FieldSpec.builder(String.class, "path", Modifier.PRIVATE)
+                    .addJavadoc("the path\n")
+                    .initializer("$S", "/a/**")
+                    .build())
+            .addMethod(MethodSpec.methodBuilder("run").addJavadoc("runs\n").build())
+            .build();
+    JavaFile javaFile = JavaFile.builder("aaa.bbb", type).build();
+
+    String rendered = new SourceRenderer(true).render(javaFile);
+
+    assertTrue(rendered.startsWith(SourceRenderer.GENERATED_MARKER + "\npackage aaa.bbb;\n"));
+    assertTrue(rendered.contains("private String path = \"/a/**\";\n"));
+    assertEquals(-1, rendered.indexOf("the path"));
+    assertEquals(-1, rendered.indexOf("runs"));
+    assertEquals(-1, rendered.indexOf("\n\n"));
+    assertEquals(-1, rendered.indexOf("\n "));
+    assertEquals(javaFile.toString(), new SourceRenderer(false).render(javaFile));
+  }
+}
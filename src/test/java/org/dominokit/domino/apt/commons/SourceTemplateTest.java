@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class SourceTemplateTest {
+
+  private static final SourceTemplate TEMPLATE =
+      SourceTemplate.compile(
+          "package {{package}};\n\n"
+              + "{{imports}}\n"
+              + "public class {{name}} {\n"
+              + "{{#each fields}}"
+              + "  private {{type:type}} {{field}};\n"
+              + "{{/each}}"
+              + "}\n");
+
+  @Test
+  public void typesAndLoops_shouldBeRenderedWithImports() {
+    Map<String, Object> model = new HashMap<>();
+    model.put("package", "org.example");
+    model.put("name", "Views");
+    model.put(
+        "fields",
+        Arrays.asList(
+            field("views", "java.util.List<org.example.ui.View>"),
+            field("entries", "java.util.Map.Entry<java.lang.String, org.example.Home>"),
+            field("otherView", "org.other.View"),
+            field("count", "int")));
+
+    assertEquals(
+        "package org.example;\n\n"
+            + "import java.util.List;\n"
+            + "import java.util.Map;\n"
+            + "import org.example.ui.View;\n"
+            + "\n"
+            + "public class Views {\n"
+            + "  private List<View> views;\n"
+            + "  private Map.Entry<String, Home> entries;\n"
+            + "  private org.other.View otherView;\n"
+            + "  private int count;\n"
+            + "}\n",
+        TEMPLATE.render("org.example", "Views", model));
+  }
+
+  @Test
+  public void classesWithTheSimpleNameOfTheRenderedType_shouldNotBeImported() {
+    Map<String, Object> model = new HashMap<>();
+    model.put("package", "org.example");
+    model.put("name", "String");
+    model.put(
+        "fields",
+        Arrays.asList(
+            field("value", "java.lang.String"),
+            field("other", "org.other.String"),
+            field("self", "org.example.String")));
+
+    assertEquals(
+        "package org.example;\n\n"
+            + "\n"
+            + "public class String {\n"
+            + "  private java.lang.String value;\n"
+            + "  private org.other.String other;\n"
+            + "  private String self;\n"
+            + "}\n",
+        TEMPLATE.render("org.example", "String", model));
+  }
+
+  @Test
+  public void itemsWithoutKeys_shouldBeRenderedAsThis() {
+    Map<String, Object> model = new HashMap<>();
+    model.put("names", Arrays.asList("a", "b", "c"));
+    assertEquals(
+        "[a][b][c]",
+        SourceTemplate.compile("{{#each names}}[{{this}}]{{/each}}").render("", "Names", model));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unclosedLoop_shouldBeRejected() {
+    SourceTemplate.compile("{{#each names}}{{this}}");
+  }
+
+  private static Map<String, Object> field(String field, String type) {
+    Map<String, Object> values = new HashMap<>();
+    values.put("field", field);
+    values.put("type", type);
+    return values;
+  }
+}
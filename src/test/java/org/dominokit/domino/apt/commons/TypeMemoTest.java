@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2019 Dominokit
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dominokit.domino.apt.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import com.squareup.javapoet.TypeName;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TypeMemoTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void typeNames_shouldBeEqualForTheSameTypeOnly() throws Exception {
+    Map<String, TypeName> names =
+        compile(
+            "package test;\n"
+                + "import java.util.*;\n"
+                + "public class Fields<T> {\n"
+                + "  class Inner {}\n"
+                + "  String string;\n"
+                + "  String otherString;\n"
+                + "  List<String> list;\n"
+                + "  List<String> otherList;\n"
+                + "  List<Integer> integerList;\n"
+                + "  List raw;\n"
+                + "  Map.Entry<String, T> entry;\n"
+                + "  Map.Entry<String, T> otherEntry;\n"
+                + "  Fields<String>.Inner inner;\n"
+                + "  Fields<Integer>.Inner integerInner;\n"
+                + "  String[] array;\n"
+                + "  String[] otherArray;\n"
+                + "  String[][] matrix;\n"
+                + "  int[] primitiveArray;\n"
+                + "  List<? extends Number> extendsNumber;\n"
+                + "  List<? extends Number> otherExtendsNumber;\n"
+                + "  List<? super Number> superNumber;\n"
+                + "  List<?> unbounded;\n"
+                + "}\n");
+
+    assertSame(names.get("string"), names.get("otherString"));
+    assertEquals(names.get("list"), names.get("otherList"));
+    assertNotEquals(names.get("list"), names.get("integerList"));
+    assertNotEquals(names.get("list"), names.get("raw"));
+    assertEquals(names.get("entry"), names.get("otherEntry"));
+    assertNotEquals(names.get("inner"), names.get("integerInner"));
+    assertEquals(names.get("array"), names.get("otherArray"));
+    assertNotEquals(names.get("array"), names.get("matrix"));
+    assertNotEquals(names.get("array"), names.get("primitiveArray"));
+    assertEquals(names.get("extendsNumber"), names.get("otherExtendsNumber"));
+    assertEquals(names.get("extendsNumber#0"), names.get("otherExtendsNumber#0"));
+    assertNotEquals(names.get("extendsNumber#0"), names.get("superNumber#0"));
+    assertNotEquals(names.get("extendsNumber#0"), names.get("unbounded#0"));
+    assertEquals("java.util.List<? super java.lang.Number>", names.get("superNumber").toString());
+    assertEquals("test.Fields<java.lang.Integer>.Inner", names.get("integerInner").toString());
+  }
+
+  private Map<String, TypeName> compile(String source) throws Exception {
+    NamesProcessor processor = new NamesProcessor();
+    JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                diagnostic -> {},
+                Arrays.asList(
+                    "-proc:only", "-s", temporaryFolder.newFolder("generated").getAbsolutePath()),
+                null,
+                Collections.singletonList(new StringSource("test.Fields", source)));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    return processor.names;
+  }
+
+  /**
+   * Converts the type of every field, and of the type arguments of the field types, with one memo,
+   * and checks that every conversion is the one of {@link TypeName#get(TypeMirror)}
+   */
+  private static class NamesProcessor extends AbstractProcessor {
+    private final TypeMemo typeMemo = new TypeMemo();
+    private final Map<String, TypeName> names = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      TypeElement type = processingEnv.getElementUtils().getTypeElement("test.Fields");
+      for (Element field : type.getEnclosedElements()) {
+        if (field.getKind() == ElementKind.FIELD) {
+          String name = field.getSimpleName().toString();
+          names.put(name, typeName(field.asType()));
+          if (field.asType() instanceof DeclaredType) {
+            int index = 0;
+            for (TypeMirror argument : ((DeclaredType) field.asType()).getTypeArguments()) {
+              names.put(name + "#" + index++, typeName(argument));
+            }
+          }
+        }
+      }
+      return false;
+    }
+
+    private TypeName typeName(TypeMirror type) {
+      TypeName typeName = typeMemo.typeName(type);
+      assertEquals(TypeName.get(type), typeName);
+      return typeName;
+    }
+  }
+
+  private static class StringSource extends SimpleJavaFileObject {
+    private final String source;
+
+    private StringSource(String typeName, String source) {
+      super(URI.create("string:///" + typeName.replace('.', '/') + ".java"), Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}